@@ -0,0 +1,65 @@
+package cartoland.benchmarks;
+
+import cartoland.utilities.Algorithm;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Benchmarks of {@link Algorithm#shuffle} and {@link Algorithm#randomElement}, which are used by mini games and
+ * random replies.
+ *
+ * @since 2.2
+ * @author Alex Cai
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class AlgorithmBenchmark
+{
+	@Param({"10", "1000"})
+	public int size;
+
+	private int[] ints;
+	private String[] strings;
+	private List<String> list;
+
+	@Setup
+	public void setup()
+	{
+		ints = IntStream.range(0, size).toArray();
+		strings = IntStream.range(0, size).mapToObj(Integer::toString).toArray(String[]::new);
+		list = List.of(strings);
+	}
+
+	@Benchmark
+	public int[] shuffleInts()
+	{
+		Algorithm.shuffle(ints);
+		return ints;
+	}
+
+	@Benchmark
+	public Object[] shuffleObjects()
+	{
+		Algorithm.shuffle(strings);
+		return strings;
+	}
+
+	@Benchmark
+	public String randomElementArray()
+	{
+		return Algorithm.randomElement(strings);
+	}
+
+	@Benchmark
+	public String randomElementList()
+	{
+		return Algorithm.randomElement(list);
+	}
+}
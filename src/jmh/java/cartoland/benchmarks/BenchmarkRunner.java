@@ -0,0 +1,43 @@
+package cartoland.benchmarks;
+
+import cartoland.replay.ScratchDirectory;
+import cartoland.utilities.IDs;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * {@code BenchmarkRunner} runs the JMH benchmarks of this package with {@link GCProfiler}, so that every result
+ * contains the allocation rate ({@code gc.alloc.rate.norm} is bytes per operation). It is run by
+ * {@code mvn -P jmh test-compile exec:exec} in {@code target/scratch}, and the forked JVMs inherit the directory, so
+ * the benchmarks never read or write the data of the bot, see {@link ScratchDirectory}. Can not be instantiated or
+ * inherited.
+ *
+ * @since 2.2
+ * @author Alex Cai
+ */
+public final class BenchmarkRunner
+{
+	private BenchmarkRunner()
+	{
+		throw new AssertionError(IDs.YOU_SHALL_NOT_ACCESS);
+	}
+
+	/**
+	 * The entry point of the benchmarks.
+	 *
+	 * @param args The first argument is the regular expression of benchmarks to run, default is all of them.
+	 * @throws RunnerException If JMH failed to run the benchmarks.
+	 * @since 2.2
+	 * @author Alex Cai
+	 */
+	public static void main(String[] args) throws RunnerException
+	{
+		ScratchDirectory.prepare(); //在開始之前就檢查 不用等到第一個基準測試
+		new Runner(new OptionsBuilder()
+				.include(args.length > 0 ? args[0] : "cartoland\\.benchmarks\\..*")
+				.addProfiler(GCProfiler.class) //記錄每次操作配置的記憶體
+				.build()).run();
+	}
+}
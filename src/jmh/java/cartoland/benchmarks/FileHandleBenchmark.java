@@ -0,0 +1,47 @@
+package cartoland.benchmarks;
+
+import cartoland.replay.ScratchDirectory;
+import cartoland.utilities.FileHandle;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of {@link FileHandle#log}, which is called after every command. The buffer is flushed into the
+ * {@code logs} folder of the scratch directory after every iteration, like the hourly flush of the bot.
+ *
+ * @since 2.2
+ * @author Alex Cai
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class FileHandleBenchmark
+{
+	@Setup
+	public void setup()
+	{
+		ScratchDirectory.prepare(); //flushLog會寫入logs和dms 不能是機器人的資料夾
+	}
+
+	@TearDown(Level.Iteration)
+	public void flush()
+	{
+		FileHandle.flushLog(); //避免暫存無限增長
+	}
+
+	@Benchmark
+	public void logCommand()
+	{
+		FileHandle.log("benchmark", '(', "355953951469731842", ") /", "lottery", ' ', "bet");
+	}
+
+	@Benchmark
+	public void logString()
+	{
+		FileHandle.log("benchmark log line");
+	}
+}
@@ -0,0 +1,64 @@
+package cartoland.benchmarks;
+
+import cartoland.replay.ScratchDirectory;
+import cartoland.utilities.JsonHandle;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of {@link JsonHandle}, which is used by almost every reply of this bot.
+ *
+ * @since 2.2
+ * @author Alex Cai
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class JsonHandleBenchmark
+{
+	private static final long USER_ID = 1L;
+
+	@Param({"tw", "en"})
+	public String language;
+
+	@Setup
+	public void setup()
+	{
+		ScratchDirectory.prepare(); //不要讀寫機器人的資料
+		JsonHandle.command(USER_ID, "lang", language); //設定使用者的語言
+	}
+
+	@Benchmark
+	public String getString()
+	{
+		return JsonHandle.getString(USER_ID, "lottery.ranking.title");
+	}
+
+	@Benchmark
+	public String getStringReference()
+	{
+		return JsonHandle.getString(USER_ID, "faq.name.logs"); //&開頭 要再找一次
+	}
+
+	@Benchmark
+	public String getStringFormatted()
+	{
+		return JsonHandle.getString(USER_ID, "lottery.ranking.title", "Cartoland");
+	}
+
+	@Benchmark
+	public String commandList()
+	{
+		return JsonHandle.command(USER_ID, "help");
+	}
+
+	@Benchmark
+	public String commandArgument()
+	{
+		return JsonHandle.command(USER_ID, "cmd", "tp");
+	}
+}
@@ -0,0 +1,55 @@
+package cartoland.benchmarks;
+
+import cartoland.messages.BotCanTalkChannelMessage;
+import cartoland.replay.FakeEntities;
+import cartoland.replay.ScratchDirectory;
+import net.dv8tion.jda.api.entities.Message;
+import net.dv8tion.jda.api.entities.User;
+import net.dv8tion.jda.api.entities.channel.ChannelType;
+import net.dv8tion.jda.api.entities.channel.unions.MessageChannelUnion;
+import net.dv8tion.jda.api.events.message.MessageReceivedEvent;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the keyword matching of {@link BotCanTalkChannelMessage#messageProcess}, which runs on every message
+ * in the channels that the bot can talk. The message is a fake entity of {@link FakeEntities}, and its replies don't
+ * send any request.
+ *
+ * @since 2.2
+ * @author Alex Cai
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MessageBenchmark
+{
+	@Param({"早安", "lol", "今天的原神也要啟動", "I have been waiting for the new Minecraft snapshot for a week and it's finally here"})
+	public String content;
+
+	private BotCanTalkChannelMessage botCanTalkChannelMessage;
+	private MessageReceivedEvent event;
+
+	@Setup
+	public void setup()
+	{
+		ScratchDirectory.prepare(); //不要讀寫機器人的資料
+		botCanTalkChannelMessage = new BotCanTalkChannelMessage();
+		User user = FakeEntities.user(1L, "benchmark", false);
+		MessageChannelUnion channel = FakeEntities.channel(2L, ChannelType.PRIVATE, null, 0L, ChannelType.UNKNOWN, 0L);
+		Message message = FakeEntities.fake(Message.class, Map.of("getIdLong", 3L, "getAuthor", user, "getChannel", channel,
+				"getChannelType", ChannelType.PRIVATE, "isFromGuild", false, "getContentRaw", content));
+		event = new MessageReceivedEvent(FakeEntities.jda(), 0L, message);
+	}
+
+	@Benchmark
+	public void messageProcess()
+	{
+		botCanTalkChannelMessage.messageProcess(event);
+	}
+}
@@ -0,0 +1,72 @@
+package cartoland.benchmarks;
+
+import cartoland.ToolsAccess;
+import cartoland.commands.LotteryCommand;
+import cartoland.replay.FakeEntities;
+import cartoland.replay.ScratchDirectory;
+import cartoland.utilities.CommandBlocksHandle;
+import cartoland.utilities.LedgerHandle;
+import net.dv8tion.jda.api.entities.User;
+import net.dv8tion.jda.api.events.interaction.command.SlashCommandInteractionEvent;
+import net.dv8tion.jda.api.interactions.InteractionType;
+import net.dv8tion.jda.api.interactions.commands.SlashCommandInteraction;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of {@code /lottery ranking}, which reads a page from the rank index and renders it. The
+ * users are created in memory of a scratch directory that has no lottery data, so the ledger of the bot is never
+ * touched, and the reply doesn't send any request.
+ *
+ * @since 2.2
+ * @author Alex Cai
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RankingBenchmark
+{
+	private static final long FIRST_USER_ID = 1_000_000L;
+
+	@Param({"1000", "10000"})
+	public int users;
+
+	private LotteryCommand lotteryCommand;
+	private final SplittableRandom random = new SplittableRandom(0L);
+	private SlashCommandInteractionEvent event;
+
+	@Setup
+	public void setup()
+	{
+		ScratchDirectory.prepare(); //在載入CommandBlocksHandle之前 不要讀寫機器人的資料
+		lotteryCommand = new LotteryCommand();
+		ToolsAccess.useFakeJDA();
+		for (long userID = FIRST_USER_ID; userID < FIRST_USER_ID + users; userID++)
+			CommandBlocksHandle.getLotteryData(userID).setBlocks(random.nextLong(1_000_000L));
+
+		User user = FakeEntities.user(FIRST_USER_ID, "benchmark", false);
+		event = new SlashCommandInteractionEvent(FakeEntities.jda(), 0L, FakeEntities.fake(SlashCommandInteraction.class,
+				Map.of("getIdLong", 1L, "getUser", user, "getName", "lottery", "getSubcommandName", "ranking",
+						"getOptions", List.of(), "getType", InteractionType.COMMAND)));
+	}
+
+	@Benchmark
+	public void rankingChanged()
+	{
+		CommandBlocksHandle.getLotteryData(FIRST_USER_ID + random.nextInt(users)).addBlocks(1L, LedgerHandle.TALK); //有人的方塊數變了
+		lotteryCommand.commandProcess(event);
+	}
+
+	@Benchmark
+	public void rankingUnchanged()
+	{
+		lotteryCommand.commandProcess(event);
+	}
+}
@@ -0,0 +1,52 @@
+package cartoland.benchmarks;
+
+import cartoland.utilities.RegularExpressions;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the patterns in {@link RegularExpressions} that are used by {@code /lottery bet}, {@code /transfer}
+ * and {@code /tool}.
+ *
+ * @since 2.2
+ * @author Alex Cai
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RegularExpressionsBenchmark
+{
+	@Param({"1000", "50%", "123456789012345678901"})
+	public String bet;
+
+	@Param({"59c1027b-5559-4e6a-91e4-2b8b949656ce", "59c1027b55594e6a91e42b8b949656ce"})
+	public String uuid;
+
+	@Param({"16777215", "#FFFFFF"})
+	public String rgb;
+
+	@Benchmark
+	public boolean betNumber()
+	{
+		//與LotteryCommand和TransferCommand相同的順序
+		return RegularExpressions.BET_NUMBER_REGEX.matcher(bet).matches() || RegularExpressions.BET_PERCENT_REGEX.matcher(bet).matches();
+	}
+
+	@Benchmark
+	public boolean uuid()
+	{
+		return RegularExpressions.UUID_DASH_REGEX.matcher(uuid).matches() || RegularExpressions.UUID_NO_DASH_REGEX.matcher(uuid).matches();
+	}
+
+	@Benchmark
+	public boolean rgb()
+	{
+		return RegularExpressions.DECIMAL_UNSIGNED_INT_REGEX.matcher(rgb).matches() ||
+				RegularExpressions.HEXADECIMAL_UNSIGNED_INT_REGEX.matcher(rgb).matches() ||
+				RegularExpressions.LEADING_SHARP_HEXADECIMAL_UNSIGNED_INT_REGEX.matcher(rgb).matches();
+	}
+}
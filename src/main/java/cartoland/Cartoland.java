@@ -2,11 +2,17 @@ package cartoland;
 
 import cartoland.events.*;
 import cartoland.utilities.AddCommands;
+import cartoland.utilities.MetricsHandle;
 import net.dv8tion.jda.api.JDA;
 import net.dv8tion.jda.api.JDABuilder;
 import net.dv8tion.jda.api.entities.Activity;
 import net.dv8tion.jda.api.requests.GatewayIntent;
 import net.dv8tion.jda.api.utils.MemberCachePolicy;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
+
+import java.util.concurrent.TimeUnit;
 
 /**
  * {@code Cartoland} is the class that has the {@link #main(String[])} method, which is the entry point of the entire
@@ -23,6 +29,19 @@ public class Cartoland
 		return jda;
 	}
 
+	/**
+	 * Use another JDA instead of building one. Only the tools in {@code src/tools}, which have no connection to
+	 * Discord, call this method through {@code cartoland.ToolsAccess}.
+	 *
+	 * @param jda The JDA to use.
+	 * @since 2.2
+	 * @author Alex Cai
+	 */
+	static void useJDA(JDA jda)
+	{
+		Cartoland.jda = jda;
+	}
+
 	/**
 	 * The entry point of the entire program. JDA was built here. Commands was register at here also, but
 	 * source code of commands are not in here. Instead, they are in {@link AddCommands}.
@@ -38,7 +57,16 @@ public class Cartoland
 		if (args.length == 0) //在終端機執行java -jar Cartoland.jar時 沒有帶參數
 			return;
 
-		jda = JDABuilder.createDefault(args[0]) //以第一個參數為token 啟動機器人
+		Dispatcher dispatcher = new Dispatcher();
+		dispatcher.setMaxRequestsPerHost(25); //和JDA預設的相同
+		OkHttpClient.Builder httpClientBuilder = new OkHttpClient.Builder()
+				.connectionPool(new ConnectionPool(5, 10, TimeUnit.SECONDS))
+				.dispatcher(dispatcher)
+				.addInterceptor(MetricsHandle.restInterceptor()); //計算REST請求
+
+		JDABuilder builder = JDABuilder.createDefault(args[0]) //以第一個參數為token 啟動機器人
+				.setEventManager(new MonitoredEventManager()) //計算每個聆聽者處理的事件
+				.setHttpClientBuilder(httpClientBuilder)
 				.addEventListeners( //新增事件聆聽
 						new BotOnlineOffline(args.length > 1 ? args[1] : "", args.length > 2 ? args[2] : ""), //當機器人上下線的時候
 						new MessageEvent(), //當有任何訊息
@@ -54,11 +82,20 @@ public class Cartoland
 						new EditMessage()) //當有人編輯訊息時
 				.enableIntents(GatewayIntent.MESSAGE_CONTENT, GatewayIntent.GUILD_MEMBERS) //機器人可讀取訊息和查看伺服器成員
 				.setMemberCachePolicy(MemberCachePolicy.ALL)
-				.setActivity(Activity.customStatus("Do /help for more information")) //自訂狀態
-				.build();
+				.setActivity(Activity.customStatus("Do /help for more information")); //自訂狀態
+
+		String recordFile = System.getProperty("cartoland.record_events"); //-Dcartoland.record_events=
+		if (recordFile != null) //有指定檔案才錄製
+			builder.addEventListeners(new EventRecorder(recordFile));
+
+		jda = builder.build();
 
 		jda.updateCommands().addCommands(AddCommands.commands()).queue(); //添加指令 裡面的程式簡直是一團亂 能跑就行
 
+		Integer metricsPort = Integer.getInteger("cartoland.metrics_port"); //-Dcartoland.metrics_port=
+		if (metricsPort != null) //有指定埠號才開啟
+			MetricsHandle.startServer(metricsPort);
+
 		jda.awaitReady();
 	}
 }
\ No newline at end of file
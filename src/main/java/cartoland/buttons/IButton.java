@@ -13,6 +13,7 @@ public interface IButton
 	String ARCHIVE_THREAD = "archive_thread";
 	String DELETE_THREAD = "delete_thread";
 	String RENAME_THREAD = "rename_thread";
+	String RANKING_PAGE = "ranking_page";
 
 	void buttonProcess(ButtonInteractionEvent event);
 }
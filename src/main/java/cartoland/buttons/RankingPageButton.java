@@ -0,0 +1,21 @@
+package cartoland.buttons;
+
+import cartoland.utilities.RankingHandle;
+import net.dv8tion.jda.api.events.interaction.component.ButtonInteractionEvent;
+
+public final class RankingPageButton implements IButton
+{
+	@Override
+	public void buttonProcess(ButtonInteractionEvent event)
+	{
+		String[] arguments = event.getComponentId().split(":"); //ranking_page:使用者ID:第一個名次
+		long userID = event.getUser().getIdLong();
+		int start = RankingHandle.clampStart(Integer.parseInt(arguments[2]));
+		String page = RankingHandle.render(userID, start);
+
+		if (Long.parseLong(arguments[1]) == userID) //是自己的排名
+			event.editMessage(page).setComponents(RankingHandle.buttons(userID, start)).queue(); //直接翻頁
+		else //別人的排名 不能改掉別人看的頁面
+			event.reply(page).setComponents(RankingHandle.buttons(userID, start)).setEphemeral(true).queue();
+	}
+}
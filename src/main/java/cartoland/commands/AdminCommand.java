@@ -6,13 +6,21 @@ import net.dv8tion.jda.api.JDA;
 import net.dv8tion.jda.api.Permission;
 import net.dv8tion.jda.api.entities.Guild;
 import net.dv8tion.jda.api.entities.Member;
+import net.dv8tion.jda.api.entities.Message;
 import net.dv8tion.jda.api.entities.channel.attribute.ISlowmodeChannel;
 import net.dv8tion.jda.api.events.interaction.command.SlashCommandInteractionEvent;
+import net.dv8tion.jda.api.interactions.InteractionHook;
+import net.dv8tion.jda.api.interactions.commands.OptionMapping;
+import net.dv8tion.jda.api.utils.FileUpload;
 
+import java.io.File;
 import java.io.Serial;
 import java.io.Serializable;
 import java.time.Duration;
-import java.util.Set;
+import java.util.Collection;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -26,41 +34,115 @@ import java.util.concurrent.TimeUnit;
  */
 public class AdminCommand extends HasSubcommands
 {
-	private static final String TEMP_BAN_SET = "serialize/temp_ban_set.ser";
-	public record BanData(long userID, long unbanTime, long bannedServerID) implements Serializable
+	private static final String TEMP_BAN_SET = "serialize/temp_ban_set.ser"; //檔名沿用舊版的HashSet 現在存的是PriorityQueue
+	private static final long HOUR_MILLISECONDS = 60 * 60 * 1000L;
+	private static final long HOURS_THRESHOLD = 10_000_000_000L; //舊版以小時為單位 比這個小的解除時間都是小時
+
+	/**
+	 * The data of a temporary ban. {@link #unbanTime} is in milliseconds since 1970, and the bans are ordered by it.
+	 *
+	 * @since 2.1
+	 * @author Alex Cai
+	 */
+	public record BanData(long userID, long unbanTime, long bannedServerID) implements Serializable, Comparable<BanData>
 	{
 		@Serial
 		private static final long serialVersionUID = 23_14069263277926900L;
 
-		public void tryUnban()
+		private void unban()
 		{
-			if (TimerHandle.getHoursFrom1970() < unbanTime) //還沒到這個人要被解ban的時間
-				return; //結束
 			JDA jda = Cartoland.getJDA();
 			Guild bannedServer = jda.getGuildById(bannedServerID); //找到當初ban他的群組
 			if (bannedServer != null) //群組還在
 				jda.retrieveUserById(userID).flatMap(bannedServer::unban).queue(); //找到這名使用者後解ban他
-			tempBanSet.remove(this); //不再紀錄這名使用者 無論群組是否已經不在了
+		}
+
+		@Override
+		public int compareTo(BanData other)
+		{
+			return Long.compare(unbanTime, other.unbanTime); //最早解ban的在最前面
 		}
 	}
-	@SuppressWarnings("unchecked")
-	public static final Set<BanData> tempBanSet = CastToInstance.modifiableSet(FileHandle.deserialize(TEMP_BAN_SET));
+
+	private static final PriorityQueue<BanData> tempBanQueue = new PriorityQueue<>(); //所有操作都要鎖住它
+	private static ScheduledFuture<?> unbanTimer; //只為最早的解ban設定一個計時器
 
 	public static final String MUTE = "mute";
 	public static final String TEMP_BAN = "temp_ban";
 	public static final String SLOW_MODE = "slow_mode";
+	public static final String STATS = "stats";
+	public static final String PROFILE = "profile";
 
 	static
 	{
-		FileHandle.registerSerialize(TEMP_BAN_SET, tempBanSet); //註冊串聯化
+		if (FileHandle.deserialize(TEMP_BAN_SET) instanceof Collection<?> bans) //舊版的HashSet或新版的PriorityQueue
+			for (Object ban : bans)
+				if (ban instanceof BanData banData)
+					tempBanQueue.add(banData.unbanTime < HOURS_THRESHOLD ? //舊版的小時 轉成毫秒
+							new BanData(banData.userID, Algorithm.safeMultiply(banData.unbanTime, HOUR_MILLISECONDS), banData.bannedServerID) : banData);
+		FileHandle.registerSerialize(TEMP_BAN_SET, () -> //註冊串聯化 存的是鎖住時的複本
+		{
+			synchronized (tempBanQueue)
+			{
+				return new PriorityQueue<>(tempBanQueue);
+			}
+		});
 	}
 
 	public AdminCommand()
 	{
-		super(3);
+		super(5);
 		subcommands.put(MUTE, new MuteSubcommand());
 		subcommands.put(TEMP_BAN, new TempBanSubcommand());
 		subcommands.put(SLOW_MODE, new SlowModeSubcommand());
+		subcommands.put(STATS, new StatsSubcommand());
+		subcommands.put(PROFILE, new ProfileSubcommand());
+	}
+
+	/**
+	 * Arm the timer for the earliest temporary ban. This method will be called in
+	 * {@link cartoland.events.BotOnlineOffline#onReady} when the bot is online, so the bans that expired while the bot
+	 * was offline are lifted right away.
+	 *
+	 * @since 2.2
+	 * @author Alex Cai
+	 */
+	public static void startUnbanTimer()
+	{
+		synchronized (tempBanQueue)
+		{
+			armUnbanTimer();
+		}
+	}
+
+	private static void addTempBan(BanData banData)
+	{
+		synchronized (tempBanQueue)
+		{
+			tempBanQueue.add(banData);
+			if (tempBanQueue.peek() == banData) //成為最早解ban的人 計時器要提早
+				armUnbanTimer();
+		}
+	}
+
+	//必須鎖住tempBanQueue
+	private static void armUnbanTimer()
+	{
+		if (unbanTimer != null) //取消舊的計時器
+			unbanTimer.cancel(false);
+		BanData earliest = tempBanQueue.peek();
+		unbanTimer = earliest != null ? TimerHandle.runAt(earliest.unbanTime, AdminCommand::unbanExpired) : null;
+	}
+
+	private static void unbanExpired()
+	{
+		synchronized (tempBanQueue)
+		{
+			long now = System.currentTimeMillis();
+			while (!tempBanQueue.isEmpty() && tempBanQueue.peek().unbanTime <= now) //可能有好幾個人同時到期
+				tempBanQueue.poll().unban(); //不再紀錄這名使用者 無論群組是否已經不在了
+			armUnbanTimer(); //下一個人
+		}
 	}
 
 	/**
@@ -250,9 +332,9 @@ public class AdminCommand extends HasSubcommands
 			}
 
 			String bannedTime = cleanFPString(Double.toString(duration)) + ' ' + JsonHandle.getString(userID, "admin.unit_" + unit);
+			long unbanTime = Algorithm.safeAdd(System.currentTimeMillis(), Algorithm.safeMultiply(durationHours, HOUR_MILLISECONDS)); //以毫秒為單位
 			StringBuilder replyStringBuilder = new StringBuilder(JsonHandle.getString(userID, "admin.temp_ban.success",
-					target.getAsMention(), bannedTime, System.currentTimeMillis() / 1000 + durationHours * 60 * 60)); //直到<t:> 以秒為單位
-			//TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis()) + TimeUnit.HOURS.toSeconds(durationHours)
+					target.getAsMention(), bannedTime, unbanTime / 1000)); //直到<t:> 以秒為單位
 
 			String reason = event.getOption("reason", CommonFunctions.getAsString);
 			if (reason != null)
@@ -264,8 +346,7 @@ public class AdminCommand extends HasSubcommands
 
 			Guild guild = target.getGuild();
 			//紀錄被ban的人的ID, 解除時間, 群組
-			tempBanSet.add(new BanData(target.getIdLong(), Algorithm.safeAdd(TimerHandle.getHoursFrom1970(), durationHours), guild.getIdLong()));
-			//TimeUnit.MILLISECONDS.toHours(System.currentTimeMillis())
+			addTempBan(new BanData(target.getIdLong(), unbanTime, guild.getIdLong()));
 			guild.ban(target, 0, TimeUnit.SECONDS).reason(reason + '\n' + bannedTime).queue();
 			FileHandle.log(member.getUser().getName(), '(', member.getId(), ") temp_ban ", target.getUser().getName(), '(', target.getId(), ')', bannedTime, ' ', reason);
 		}
@@ -338,4 +419,112 @@ public class AdminCommand extends HasSubcommands
 			channel.getManager().setSlowmode(timeSecond).queue(); //設定慢速時間
 		}
 	}
-}
\ No newline at end of file
+
+	/**
+	 * {@code StatsSubcommand} is a class that handles one of the subcommands of {@code /admin} command, which is
+	 * {@code /admin stats}. It shows the latency and error counts that {@link MetricsHandle} recorded.
+	 *
+	 * @since 2.2
+	 * @author Alex Cai
+	 */
+	private static class StatsSubcommand implements ICommand
+	{
+		@Override
+		public void commandProcess(SlashCommandInteractionEvent event)
+		{
+			Member member = event.getMember(); //使用指令的成員
+			if (member == null)
+			{
+				event.reply("Impossible, this is required!").queue();
+				return;
+			}
+
+			long userID = member.getIdLong(); //使用指令的成員ID
+
+			if (!member.hasPermission(Permission.ADMINISTRATOR))
+			{
+				event.reply(JsonHandle.getString(userID, "admin.stats.no_permission")).setEphemeral(true).queue();
+				return;
+			}
+
+			List<String> lines = MetricsHandle.summary();
+			if (lines.isEmpty()) //還沒有任何紀錄
+			{
+				event.reply(JsonHandle.getString(userID, "admin.stats.empty")).setEphemeral(true).queue();
+				return;
+			}
+
+			String title = JsonHandle.getString(userID, "admin.stats.title");
+			final int maxLength = Message.MAX_CONTENT_LENGTH - title.length() - 9; //扣掉標題、換行和```
+			StringBuilder statsBuilder = new StringBuilder(title).append("\n```\n");
+			int start = statsBuilder.length();
+			for (String line : lines)
+			{
+				if (statsBuilder.length() - start + line.length() + 1 > maxLength) //放不下了
+					break;
+				statsBuilder.append(line).append('\n');
+			}
+			event.reply(statsBuilder.append("```").toString()).setEphemeral(true).queue();
+		}
+	}
+
+	/**
+	 * {@code ProfileSubcommand} is a class that handles one of the subcommands of {@code /admin} command, which is
+	 * {@code /admin profile}. It starts a JFR recording by {@link ProfileHandle#record}, and uploads the {@code .jfr}
+	 * file as an ephemeral message when the recording finished. Only the owner of the bot can use it.
+	 *
+	 * @since 2.2
+	 * @author Alex Cai
+	 */
+	private static class ProfileSubcommand implements ICommand
+	{
+		private static final long DEFAULT_SECONDS = 60L;
+
+		@Override
+		public void commandProcess(SlashCommandInteractionEvent event)
+		{
+			long userID = event.getUser().getIdLong();
+			if (userID != IDs.AC_ID) //不是我
+			{
+				event.reply(JsonHandle.getString(userID, "admin.profile.not_owner")).setEphemeral(true).queue();
+				return;
+			}
+
+			long seconds = event.getOption("seconds", DEFAULT_SECONDS, OptionMapping::getAsLong);
+			Guild guild = event.getGuild();
+			long maxFileSize = guild != null ? guild.getMaxFileSize() : Message.MAX_FILE_SIZE; //上傳的大小限制
+			InteractionHook hook = event.getHook();
+			boolean started = ProfileHandle.record(seconds, file ->
+			{
+				if (file == null) //寫入失敗
+				{
+					hook.sendMessage(JsonHandle.getString(userID, "admin.profile.write_failed")).setEphemeral(true).queue();
+					return;
+				}
+				File jfrFile = file.toFile();
+				long fileSize = jfrFile.length();
+				if (fileSize > maxFileSize) //太大了 無法上傳
+				{
+					jfrFile.delete(); //不要留在暫存資料夾
+					hook.sendMessage(JsonHandle.getString(userID, "admin.profile.too_large", fileSize)).setEphemeral(true).queue();
+					return;
+				}
+				try
+				{
+					hook.sendFiles(FileUpload.fromData(jfrFile, "cartoland.jfr")).setEphemeral(true)
+							.queue(message -> jfrFile.delete(), error -> jfrFile.delete()); //上傳完就刪除
+				}
+				catch (RuntimeException exception) //連請求都送不出去
+				{
+					jfrFile.delete();
+					throw exception;
+				}
+			});
+
+			if (started)
+				event.reply(JsonHandle.getString(userID, "admin.profile.recording", seconds)).setEphemeral(true).queue();
+			else
+				event.reply(JsonHandle.getString(userID, "admin.profile.busy")).setEphemeral(true).queue();
+		}
+	}
+}
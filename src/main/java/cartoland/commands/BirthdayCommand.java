@@ -3,9 +3,12 @@ package cartoland.commands;
 import cartoland.utilities.CommonFunctions;
 import cartoland.utilities.JsonHandle;
 import cartoland.utilities.TimerHandle;
+import net.dv8tion.jda.api.entities.Message;
 import net.dv8tion.jda.api.entities.User;
 import net.dv8tion.jda.api.events.interaction.command.SlashCommandInteractionEvent;
 
+import java.util.Map;
+
 /**
  * {@code BirthdayCommand} is an execution when a user uses /birthday command. This class implements {@link ICommand}
  * interface, which is for the commands HashMap in {@link cartoland.events.CommandUsage}. This class doesn't
@@ -21,10 +24,13 @@ public class BirthdayCommand extends HasSubcommands
 	public static final String SET = "set";
 	public static final String GET = "get";
 	public static final String DELETE = "delete";
+	public static final String UPCOMING = "upcoming";
+	public static final int DEFAULT_UPCOMING_DAYS = 7;
+	public static final int MAX_UPCOMING_DAYS = 366;
 
 	public BirthdayCommand()
 	{
-		super(3);
+		super(4);
 		subcommands.put(SET, new SetSubCommand());
 		subcommands.put(GET, event ->
 		{
@@ -46,6 +52,32 @@ public class BirthdayCommand extends HasSubcommands
 			TimerHandle.deleteBirthday(userID); //刪除自己的生日
 			event.reply(JsonHandle.getString(userID, "birthday.delete")).queue();
 		});
+		subcommands.put(UPCOMING, event ->
+		{
+			long userID = event.getUser().getIdLong();
+			int days = event.getOption("days", DEFAULT_UPCOMING_DAYS, CommonFunctions.getAsInt); //接下來幾天 包含今天
+			Map<TimerHandle.Birthday, long[]> birthdays = TimerHandle.upcomingBirthdays(days);
+			if (birthdays.isEmpty()) //沒有人生日
+			{
+				event.reply(JsonHandle.getString(userID, "birthday.upcoming.none", days)).setEphemeral(true).queue();
+				return;
+			}
+
+			StringBuilder upcomingBuilder = new StringBuilder(JsonHandle.getString(userID, "birthday.upcoming.title", days));
+			for (Map.Entry<TimerHandle.Birthday, long[]> birthdayAndIDs : birthdays.entrySet())
+			{
+				TimerHandle.Birthday birthday = birthdayAndIDs.getKey();
+				StringBuilder lineBuilder = new StringBuilder("\n")
+						.append(JsonHandle.getString(userID, "birthday.month_" + birthday.month())).append(' ')
+						.append(JsonHandle.getString(userID, "birthday.date_" + birthday.date())).append(':');
+				for (long birthdayUserID : birthdayAndIDs.getValue())
+					lineBuilder.append(" <@").append(birthdayUserID).append('>');
+				if (upcomingBuilder.length() + lineBuilder.length() > Message.MAX_CONTENT_LENGTH) //放不下了
+					break;
+				upcomingBuilder.append(lineBuilder);
+			}
+			event.reply(upcomingBuilder.toString()).setEphemeral(true).queue(); //只有自己看得到 不會提及到別人
+		});
 	}
 
 	/**
@@ -11,6 +11,7 @@ import net.dv8tion.jda.api.requests.ErrorResponse;
 
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * {@code IntroduceCommand} is an execution when a user uses /introduce command. This class implements
@@ -25,7 +26,7 @@ public class IntroduceCommand extends HasSubcommands
 	private static final String INTRODUCTION_FILE_NAME = "serialize/introduction.ser";
 
 	@SuppressWarnings("unchecked")
-	private static final Map<Long, String> introduction = CastToInstance.modifiableMap(FileHandle.deserialize(INTRODUCTION_FILE_NAME));
+	private static final Map<Long, String> introduction = new ConcurrentHashMap<>(CastToInstance.modifiableMap(FileHandle.deserialize(INTRODUCTION_FILE_NAME))); //指令和自介頻道的訊息可能同時修改
 
 	public static final String USER = "user";
 
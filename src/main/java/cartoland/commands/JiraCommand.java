@@ -1,12 +1,12 @@
 package cartoland.commands;
 
 import cartoland.utilities.CommonFunctions;
+import cartoland.utilities.HttpHandle;
 import cartoland.utilities.JsonHandle;
 import cartoland.utilities.RegularExpressions;
 import net.dv8tion.jda.api.EmbedBuilder;
 import net.dv8tion.jda.api.events.interaction.command.SlashCommandInteractionEvent;
 import net.dv8tion.jda.api.interactions.InteractionHook;
-import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
 import org.jsoup.nodes.Element;
 import org.jsoup.select.Elements;
@@ -51,7 +51,7 @@ public class JiraCommand implements ICommand
 		Document document; //HTML文件
 		try
 		{
-			document = Jsoup.connect(link).get(); //嘗試連線
+			document = HttpHandle.getDocument(link); //嘗試連線
 		}
 		catch (IOException e)
 		{
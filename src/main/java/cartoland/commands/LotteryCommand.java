@@ -1,13 +1,11 @@
 package cartoland.commands;
 
-import cartoland.Cartoland;
 import cartoland.utilities.*;
-import net.dv8tion.jda.api.entities.Guild;
 import net.dv8tion.jda.api.entities.User;
 import net.dv8tion.jda.api.events.interaction.command.SlashCommandInteractionEvent;
 
-import java.util.List;
-import java.util.Random;
+import java.util.random.RandomGenerator;
+
 
 /**
  * {@code LotteryCommand} is an execution when a user uses /lottery command. This class implements {@link ICommand}
@@ -19,8 +17,8 @@ import java.util.Random;
  */
 public class LotteryCommand extends HasSubcommands
 {
-	private static final Random random = new Random(); //不使用Algorithm.chance
 	private static final long MAXIMUM = 1000000L;
+	public static final int MAX_ROUNDS = 100; //一次最多玩的回合數
 	private static final byte INVALID_BET = -1;
 
 	public static final String GET = "get";
@@ -28,15 +26,17 @@ public class LotteryCommand extends HasSubcommands
 	public static final String RANKING = "ranking";
 	public static final String DAILY = "daily";
 	public static final String SLOT = "slot";
+	public static final String DRAW = "draw";
 
 	public LotteryCommand()
 	{
-		super(5);
+		super(6);
 		subcommands.put(GET, new GetSubCommand());
 		subcommands.put(BET, new BetSubCommand());
 		subcommands.put(RANKING, new RankingSubCommand());
 		subcommands.put(DAILY, new DailySubCommand());
 		subcommands.put(SLOT, new SlotSubCommand());
+		subcommands.put(DRAW, new DrawSubCommand());
 	}
 
 	private static ObjectAndString createValidBet(String betString, long userID, long nowHave)
@@ -71,6 +71,71 @@ public class LotteryCommand extends HasSubcommands
 		return validBet.object(bet);
 	}
 
+	/**
+	 * Play several rounds of {@code /lottery bet} or {@code /lottery slot} in one interaction. The results of every
+	 * round are drawn before playing, then the rounds are played on the current command blocks until the bet is no
+	 * longer valid. The net change is applied at once, and a summary is replied instead of the result of each round.
+	 *
+	 * @param event The event of the interaction.
+	 * @param userID The ID of the user.
+	 * @param betString The bet that the user typed, which is evaluated again in every round.
+	 * @param wins Whether the user wins in each round.
+	 * @param multiplier How many times of the bet the user gains when won.
+	 * @param slot true if this is {@code /lottery slot}.
+	 * @since 2.2
+	 * @author Alex Cai
+	 */
+	private static void playRounds(SlashCommandInteractionEvent event, long userID, String betString, boolean[] wins, long multiplier, boolean slot)
+	{
+		CommandBlocksHandle.LotteryData lotteryData = CommandBlocksHandle.getLotteryData(userID);
+		long nowHave, balance, peak;
+		int played, won, lost, showHandWon, showHandLost;
+
+		do
+		{
+			nowHave = balance = peak = lotteryData.getBlocks();
+			won = lost = showHandWon = showHandLost = 0;
+			for (played = 0; played < wins.length; played++)
+			{
+				ObjectAndString validBet = createValidBet(betString, userID, balance);
+				String errorMessage = validBet.string();
+				if (!errorMessage.isEmpty()) //這回合不能賭了
+				{
+					if (played == 0) //第一回合就不行 代表輸入有誤
+					{
+						event.reply(errorMessage).setEphemeral(true).queue();
+						return;
+					}
+					break; //之後的回合都不玩了
+				}
+				long bet = (Long) validBet.object();
+				boolean showHand = bet == balance; //梭哈
+				if (wins[played])
+				{
+					balance = Algorithm.safeAdd(balance, bet * multiplier);
+					won++;
+					if (showHand)
+						showHandWon++;
+				}
+				else
+				{
+					balance -= bet;
+					lost++;
+					if (showHand)
+						showHandLost++;
+				}
+				peak = Math.max(peak, balance);
+			}
+		}
+		while (!lotteryData.compareAndSetBlocks(nowHave, balance, slot ? LedgerHandle.SLOT : LedgerHandle.BET)); //其他互動同時改變了方塊 就重新計算
+
+		if (slot)
+			lotteryData.addSlots(won, lost, showHandWon, showHandLost);
+		else
+			lotteryData.addGames(won, lost, showHandWon, showHandLost);
+		event.reply(JsonHandle.getString(userID, "lottery.bet.rounds_result", played, won, lost, peak, balance)).queue();
+	}
+
 	/**
 	 * {@code GetSubCommand} is a class that handles one of the subcommands of {@code /lottery} command, which is
 	 * {@code /lottery get}.
@@ -127,32 +192,47 @@ public class LotteryCommand extends HasSubcommands
 		public void commandProcess(SlashCommandInteractionEvent event)
 		{
 			long userID = event.getUser().getIdLong();
-			CommandBlocksHandle.LotteryData lotteryData = CommandBlocksHandle.getLotteryData(userID);
-			long nowHave = lotteryData.getBlocks();
-
-			ObjectAndString validBet = createValidBet(event.getOption("bet", "", CommonFunctions.getAsString), userID, nowHave);
-			String errorMessage = validBet.string();
-			if (!errorMessage.isEmpty()) //有錯誤訊息
+			String betString = event.getOption("bet", "", CommonFunctions.getAsString);
+			int rounds = event.getOption("rounds", 1, CommonFunctions.getAsInt);
+			if (rounds > 1) //一次玩很多回合
 			{
-				event.reply(errorMessage).setEphemeral(true).queue();
+				RandomGenerator random = Algorithm.random();
+				boolean[] wins = new boolean[Math.min(rounds, MAX_ROUNDS)];
+				long bits = 0L;
+				for (int i = 0; i < wins.length; i++, bits >>>= 1)
+				{
+					if ((i & 63) == 0) //一個long可以決定64回合
+						bits = random.nextLong();
+					wins[i] = (bits & 1L) != 0L;
+				}
+				playRounds(event, userID, betString, wins, 1L, false);
 				return;
 			}
-			long bet = (Long) validBet.object(); //沒有錯誤訊息 就轉換
+
+			CommandBlocksHandle.LotteryData lotteryData = CommandBlocksHandle.getLotteryData(userID);
+			boolean win = Algorithm.random().nextBoolean(); //輸贏
+			long nowHave;
+			long bet;
 			long afterBet;
-			String result;
-			boolean win = random.nextBoolean(); //輸贏
-			boolean showHand = bet == nowHave; //梭哈
 
-			if (win) //賭贏
-			{
-				afterBet = Algorithm.safeAdd(nowHave, bet);
-				result = JsonHandle.getString(userID, "lottery.bet.win");
-			}
-			else //賭輸
+			do
 			{
-				afterBet = nowHave - bet;
-				result = JsonHandle.getString(userID, "lottery.bet.lose");
+				nowHave = lotteryData.getBlocks();
+				ObjectAndString validBet = createValidBet(betString, userID, nowHave);
+				String errorMessage = validBet.string();
+				if (!errorMessage.isEmpty()) //有錯誤訊息
+				{
+					event.reply(errorMessage).setEphemeral(true).queue();
+					return;
+				}
+				bet = (Long) validBet.object(); //沒有錯誤訊息 就轉換
+				afterBet = win ? Algorithm.safeAdd(nowHave, bet) : nowHave - bet;
 			}
+			while (!lotteryData.compareAndSetBlocks(nowHave, afterBet, LedgerHandle.BET)); //其他互動同時改變了方塊 就重新計算
+
+			boolean showHand = bet == nowHave; //梭哈
+			lotteryData.addGame(win, showHand); //紀錄勝場和是否梭哈
+			String result = JsonHandle.getString(userID, win ? "lottery.bet.win" : "lottery.bet.lose");
 
 			StringBuilder replyBuilder = new StringBuilder(JsonHandle.getString(userID, "lottery.bet.result", bet, result, afterBet));
 			if (showHand)
@@ -162,142 +242,29 @@ public class LotteryCommand extends HasSubcommands
 				else
 					replyBuilder.append('\n').append(JsonHandle.getString(userID, "lottery.bet.play_with_your_limit"));
 			}
-			event.reply(replyBuilder.toString()).queue(); //盡快回覆比較好
-
-			lotteryData.addGame(win, showHand); //紀錄勝場和是否梭哈
-			lotteryData.setBlocks(afterBet); //設定方塊
+			event.reply(replyBuilder.toString()).queue();
 		}
 	}
 
 	/**
 	 * {@code RankingSubCommand} is a class that handles one of the subcommands of {@code /lottery} command, which is
-	 * {@code /lottery ranking}.
+	 * {@code /lottery ranking}. The pages are rendered and cached by {@link RankingHandle}, and the buttons under the
+	 * reply turn pages by {@link cartoland.buttons.RankingPageButton}. If {@code around_me} is true, the page is the
+	 * ranks around the user instead.
 	 *
 	 * @since 1.6
 	 * @author Alex Cai
 	 */
 	private static class RankingSubCommand implements ICommand
 	{
-		private List<CommandBlocksHandle.LotteryData> forSort; //需要排序的list
-		private String lastReply; //上一次回覆過的字串
-		private int lastPage = -1; //上一次查看的頁面
-		private long lastUser = -1L; //上一次使用指令的使用者
-		private int maxPage; //目前有幾頁
-
 		@Override
 		public void commandProcess(SlashCommandInteractionEvent event)
 		{
 			long userID = event.getUser().getIdLong();
-
-			int inputPage = event.getOption("page", 1, CommonFunctions.getAsInt); //page從1開始 預設1
-			int page;
-
-			//假設總共有27位使用者 (27 - 1) / 10 + 1 = 3 總共有3頁
-			maxPage = (CommandBlocksHandle.lotteryDataList.size() - 1) / 10 + 1;
-			if (inputPage > maxPage) //超出範圍
-				page = maxPage; //同上例子 就改成顯示第3頁
-			else if (inputPage < 0) //-1 = 最後一頁, -2 = 倒數第二頁 負太多就變第一頁
-				page = (-inputPage < maxPage) ? maxPage + inputPage + 1 : 1;
-			else
-				page = inputPage;
-
-			boolean sameUser = userID == lastUser;
-			lastUser = userID;
-			boolean samePage = page == lastPage;
-			lastPage = page; //換過頁了
-
-			if (!CommandBlocksHandle.changed) //指令方塊 距離上一次排序 沒有任何變動
-			{
-				if (!samePage || !sameUser) //有換頁 或 不是同一位使用者
-					lastReply = replyString(userID, page); //重新建立字串
-				event.reply(lastReply).queue();
-				return; //省略排序
-			}
-
-			forSort = CommandBlocksHandle.lotteryDataList; //直接copy reference
-
-			//排序
-			forSort.sort((user1, user2) -> Long.compare(user2.getBlocks(), user1.getBlocks())); //方塊較多的在前面 方塊較少的在後面
-
-			event.reply(lastReply = replyString(userID, page)).queue();
-			CommandBlocksHandle.changed = false; //已經排序過了
-		}
-
-		private final StringBuilder rankBuilder = new StringBuilder();
-
-		/**
-		 * Builds a page in the ranking list of command blocks.
-		 *
-		 * @param userID The ID of the user who used the command.
-		 * @param page The page that the command user want to check.
-		 * @return A page of the ranking list into a single string.
-		 * @since 1.6
-		 * @author Alex Cai
-		 */
-		private String replyString(long userID, int page)
-		{
-			//page 從1開始
-			int startElement = (page - 1) * 10; //開始的那個元素
-			int endElement = Math.min(startElement + 10, forSort.size()); //結束的那個元素 不可比list總長還長
-
-			List<CommandBlocksHandle.LotteryData> ranking = forSort.subList(startElement, endElement); //要查看的那一頁
-			CommandBlocksHandle.LotteryData myData = CommandBlocksHandle.getLotteryData(userID);
-			long blocks = myData.getBlocks(); //本使用者擁有的方塊數
-
-			Guild cartoland = Cartoland.getJDA().getGuildById(IDs.CARTOLAND_SERVER_ID);
-			rankBuilder.setLength(0);
-			rankBuilder.append("```ansi\n")
-					.append(JsonHandle.getString(userID, "lottery.ranking.title", cartoland != null ? cartoland.getName() : ""))
-					.append("\n--------------------\n")
-					.append(JsonHandle.getString(userID, "lottery.ranking.my_rank", forSortBinarySearch(blocks), blocks))
-					.append("\n\n");
-
-			for (int i = 0, add = page * 10 - 9, rankingSize = ranking.size(); i < rankingSize; i++) //add = (page - 1) * 10 + 1
-			{
-				CommandBlocksHandle.LotteryData rank = ranking.get(i);
-				rankBuilder.append("[\u001B[36m")
-						.append(String.format("%03d", add + i))
-						.append("\u001B[0m]\t")
-						.append(rank.getName())
-						.append(": \u001B[36m")
-						.append(String.format("%,d", rank.getBlocks()))
-						.append("\u001B[0m\n");
-			}
-
-			return rankBuilder.append("\n--------------------\n")
-					.append(page)
-					.append(" / ")
-					.append(maxPage)
-					.append("\n```")
-					.toString();
-		}
-
-		/**
-		 * Use binary search to find the index of the user that has these blocks in the {@link #forSort} list, in order to find
-		 * the ranking of a user. These code was stole... was <i>"borrowed"</i> from {@link java.util.Collections#binarySearch(List, Object)}
-		 *
-		 * @param blocks The number of blocks that are used to match in the {@link #forSort} list.
-		 * @return The index of the user that has these blocks in the {@link #forSort} list and add 1, because though an
-		 * array is 0-indexed, but the ranking that are going to display should be 1-indexed.
-		 * @since 2.0
-		 * @author Alex Cai
-		 */
-		private int forSortBinarySearch(long blocks)
-		{
-			long midValue;
-			for (int low = 0, middle, high = forSort.size() - 1; low <= high;)
-			{
-				middle = (low + high) >>> 1;
-				midValue = forSort.get(middle).getBlocks();
-
-				if (midValue < blocks)
-					high = middle - 1;
-				else if (midValue > blocks)
-					low = middle + 1;
-				else
-					return middle + 1;
-			}
-			return 0;
+			int start = event.getOption("around_me", Boolean.FALSE, CommonFunctions.getAsBoolean) ? //查看自己附近的排名
+					RankingHandle.aroundStart(userID) :
+					RankingHandle.pageStart(event.getOption("page", 1, CommonFunctions.getAsInt)); //page從1開始 預設1
+			event.reply(RankingHandle.render(userID, start)).setComponents(RankingHandle.buttons(userID, start)).queue();
 		}
 	}
 
@@ -310,12 +277,11 @@ public class LotteryCommand extends HasSubcommands
 	 */
 	private static class DailySubCommand implements ICommand
 	{
-		private final byte[] until = { 0,0,0 }; //until[0]為小時 [1]為分鐘 [2]為秒
-		private final boolean[] bonus = { false,false,false };
-
 		@Override
 		public void commandProcess(SlashCommandInteractionEvent event)
 		{
+			byte[] until = { 0,0,0 }; //until[0]為小時 [1]為分鐘 [2]為秒 每次使用都是新的 避免多個執行緒共用
+			boolean[] bonus = { false,false,false };
 			long userID = event.getUser().getIdLong();
 			CommandBlocksHandle.LotteryData lotteryData = CommandBlocksHandle.getLotteryData(userID); //獲取指令方塊資料
 			if (!lotteryData.tryClaimDaily(until)) //嘗試daily失敗了
@@ -372,43 +338,53 @@ public class LotteryCommand extends HasSubcommands
 		public void commandProcess(SlashCommandInteractionEvent event)
 		{
 			long userID = event.getUser().getIdLong();
-			CommandBlocksHandle.LotteryData lotteryData = CommandBlocksHandle.getLotteryData(userID);
-			long nowHave = lotteryData.getBlocks();
-
-			ObjectAndString validBet = createValidBet(event.getOption("bet", "", CommonFunctions.getAsString), userID, nowHave);
-			String errorMessage = validBet.string();
-			if (!errorMessage.isEmpty()) //有錯誤訊息
+			String betString = event.getOption("bet", "", CommonFunctions.getAsString);
+			int rounds = event.getOption("rounds", 1, CommonFunctions.getAsInt);
+			if (rounds > 1) //一次玩很多回合
 			{
-				event.reply(errorMessage).setEphemeral(true).queue();
+				RandomGenerator random = Algorithm.random();
+				boolean[] wins = new boolean[Math.min(rounds, MAX_ROUNDS)];
+				for (int i = 0; i < wins.length; i++)
+				{
+					int first = random.nextInt(emojis.length);
+					wins[i] = first == random.nextInt(emojis.length) && first == random.nextInt(emojis.length); //三個完全相同
+				}
+				playRounds(event, userID, betString, wins, 49L, true); //和一回合時相同 贏了獲得50倍
 				return;
 			}
-			long bet = (Long) validBet.object(); //沒有錯誤訊息 就轉換
-			if (bet == INVALID_BET) //輸入有誤
-				return; //直接結束 createValidBet方法內已經reply過了
-
-			EmojiData[] slotResults =
-			{
-				Algorithm.randomElement(emojis),
-				Algorithm.randomElement(emojis),
-				Algorithm.randomElement(emojis)
-			}; //轉的結果
 
+			CommandBlocksHandle.LotteryData lotteryData = CommandBlocksHandle.getLotteryData(userID);
+			EmojiData[] slotResults = new EmojiData[3];
+			Algorithm.randomElements(emojis, slotResults); //轉的結果
 			boolean win = (slotResults[0].ID == slotResults[1].ID && slotResults[1].ID == slotResults[2].ID); //完全相同
-			boolean showHand = bet == nowHave; //梭哈
-			String result;
+			long nowHave;
+			long bet;
 			long afterBet;
-			if (win) //賭贏
+
+			do
 			{
-				afterBet = Algorithm.safeAdd(nowHave, bet * 49); //機率 1 / 49
+				nowHave = lotteryData.getBlocks();
+				ObjectAndString validBet = createValidBet(betString, userID, nowHave);
+				String errorMessage = validBet.string();
+				if (!errorMessage.isEmpty()) //有錯誤訊息
+				{
+					event.reply(errorMessage).setEphemeral(true).queue();
+					return;
+				}
+				bet = (Long) validBet.object(); //沒有錯誤訊息 就轉換
+				if (bet == INVALID_BET) //輸入有誤
+					return; //直接結束 createValidBet方法內已經reply過了
+
+				//機率 1 / 49
 				//應該要先減去籌碼後獲得49倍 也就是 * 48才對
 				//但是最一開始寫錯了 乾脆將錯就錯 改成50倍 當作福利
-				result = JsonHandle.getString(userID, "lottery.bet.win");
-			}
-			else //賭輸
-			{
-				afterBet = nowHave - bet;
-				result = JsonHandle.getString(userID, "lottery.bet.lose");
+				afterBet = win ? Algorithm.safeAdd(nowHave, bet * 49) : nowHave - bet;
 			}
+			while (!lotteryData.compareAndSetBlocks(nowHave, afterBet, LedgerHandle.SLOT)); //其他互動同時改變了方塊 就重新計算
+
+			boolean showHand = bet == nowHave; //梭哈
+			lotteryData.addSlot(win, showHand); //紀錄勝場和是否梭哈
+			String result = JsonHandle.getString(userID, win ? "lottery.bet.win" : "lottery.bet.lose");
 
 			StringBuilder replyBuilder = new StringBuilder("--------------\n| ")
 					.append(slotResults[0].emojiFormat)
@@ -425,10 +401,7 @@ public class LotteryCommand extends HasSubcommands
 				else
 					replyBuilder.append('\n').append(JsonHandle.getString(userID, "lottery.bet.play_with_your_limit"));
 			}
-			event.reply(replyBuilder.toString()).queue(); //盡快回覆比較好
-
-			lotteryData.addSlot(win, showHand); //紀錄勝場和是否梭哈
-			lotteryData.setBlocks(afterBet); //設定方塊
+			event.reply(replyBuilder.toString()).queue();
 		}
 
 		private static class EmojiData
@@ -442,4 +415,64 @@ public class LotteryCommand extends HasSubcommands
 			}
 		}
 	}
-}
\ No newline at end of file
+
+	/**
+	 * {@code DrawSubCommand} is a class that handles one of the subcommands of {@code /lottery} command, which is
+	 * {@code /lottery draw}. Users buy raffle tickets with {@code buy}, and the owner of the bot draws the winners with
+	 * {@code winners}. The tickets and the drawing are handled by {@link RaffleHandle}.
+	 *
+	 * @since 2.2
+	 * @author Alex Cai
+	 */
+	private static class DrawSubCommand implements ICommand
+	{
+		@Override
+		public void commandProcess(SlashCommandInteractionEvent event)
+		{
+			long userID = event.getUser().getIdLong();
+			int winnersCount = event.getOption("winners", 0, CommonFunctions.getAsInt);
+			if (winnersCount > 0) //要開獎
+			{
+				if (userID != IDs.AC_ID) //不是我
+				{
+					event.reply(JsonHandle.getString(userID, "lottery.draw.not_owner")).setEphemeral(true).queue();
+					return;
+				}
+
+				long pot = RaffleHandle.totalTickets() * RaffleHandle.TICKET_PRICE;
+				long[] winners = RaffleHandle.draw(winnersCount);
+				if (winners.length == 0) //沒有人買
+				{
+					event.reply(JsonHandle.getString(userID, "lottery.draw.no_tickets")).queue();
+					return;
+				}
+				long[] prizes = RaffleHandle.split(pot, winners.length);
+				StringBuilder replyBuilder = new StringBuilder(JsonHandle.getString(userID, "lottery.draw.winners", prizes[winners.length - 1]));
+				for (long winner : winners)
+					replyBuilder.append("\n<@").append(winner).append('>');
+				if (prizes[0] != prizes[winners.length - 1]) //有分不完的
+					replyBuilder.append('\n').append(JsonHandle.getString(userID, "lottery.draw.remainder", prizes[0] - prizes[winners.length - 1]));
+				event.reply(replyBuilder.toString()).queue();
+				return;
+			}
+
+			int amount = event.getOption("buy", 0, CommonFunctions.getAsInt);
+			if (amount > 0) //要買彩券
+			{
+				if (!RaffleHandle.buy(userID, amount))
+				{
+					event.reply(JsonHandle.getString(userID, "lottery.draw.not_enough", amount, amount * RaffleHandle.TICKET_PRICE,
+							CommandBlocksHandle.getLotteryData(userID).getBlocks())).setEphemeral(true).queue();
+					return;
+				}
+				event.reply(JsonHandle.getString(userID, "lottery.draw.bought", amount, amount * RaffleHandle.TICKET_PRICE,
+						RaffleHandle.ticketsOf(userID))).queue();
+				return;
+			}
+
+			long total = RaffleHandle.totalTickets();
+			event.reply(JsonHandle.getString(userID, "lottery.draw.status", RaffleHandle.ticketsOf(userID), total,
+					total * RaffleHandle.TICKET_PRICE)).queue(); //只是查看
+		}
+	}
+}
@@ -5,6 +5,7 @@ import cartoland.mini_games.OneATwoBGame;
 import cartoland.utilities.CommandBlocksHandle;
 import cartoland.utilities.CommonFunctions;
 import cartoland.utilities.JsonHandle;
+import cartoland.utilities.LedgerHandle;
 import net.dv8tion.jda.api.events.interaction.command.SlashCommandInteractionEvent;
 
 /**
@@ -135,7 +136,7 @@ public class OneATwoBCommand extends HasSubcommands
 
 			if (second <= MAX_MINUTE * 60L && guesses <= MAX_GUESSES) //如果在2分鐘內猜出來 且不大於7次
 			{
-				CommandBlocksHandle.getLotteryData(userID).addBlocks(REWARD); //獎勵REWARD顆指令方塊
+				CommandBlocksHandle.getLotteryData(userID).addBlocks(REWARD, LedgerHandle.REWARD); //獎勵REWARD顆指令方塊
 				gameOver(event, replyString + JsonHandle.getString(userID, "one_a_two_b.reward", MAX_MINUTE, MAX_GUESSES, REWARD));
 			}
 			else
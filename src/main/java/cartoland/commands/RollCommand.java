@@ -15,7 +15,6 @@ import net.dv8tion.jda.api.interactions.commands.OptionMapping;
 import java.time.OffsetDateTime;
 import java.util.Collections;
 import java.util.List;
-import java.util.Random;
 
 public class RollCommand extends HasSubcommands
 {
@@ -35,7 +34,7 @@ public class RollCommand extends HasSubcommands
 			if (minimum > maximum)
 				event.reply("Minimum mustn't larger than maximum!").setEphemeral(true).queue();
 			else
-				event.reply(Integer.toString(new Random().nextInt(minimum, Algorithm.safeAdd(maximum, 1)))).queue();
+				event.reply(Integer.toString(Algorithm.random().nextInt(minimum, Algorithm.safeAdd(maximum, 1)))).queue();
 		});
 	}
 
@@ -1,12 +1,12 @@
 package cartoland.commands;
 
-import cartoland.Cartoland;
 import cartoland.utilities.CommonFunctions;
+import cartoland.utilities.CronExpression;
 import cartoland.utilities.TimerHandle;
 import net.dv8tion.jda.api.entities.channel.middleman.GuildChannel;
 import net.dv8tion.jda.api.entities.channel.middleman.GuildMessageChannel;
-import net.dv8tion.jda.api.entities.channel.middleman.MessageChannel;
 import net.dv8tion.jda.api.events.interaction.command.SlashCommandInteractionEvent;
+import net.dv8tion.jda.api.interactions.InteractionHook;
 
 import java.util.Set;
 
@@ -37,20 +37,63 @@ public class ScheduleCommand extends HasSubcommands
 			if (eventNames.isEmpty()) //如果沒有事件名稱 必須至少回覆一個字 否則會卡在deferReply
 				event.reply("There's no scheduled messages!").setEphemeral(true).queue();
 			else
-				event.reply("```\n" + String.join("\n", eventNames) + "\n```").queue();
+				event.reply("```\n" + String.join("\n", eventNames) + "\n```").queue(ScheduleCommand::sendLegacyNotice);
 		});
 	}
 
+	//舊版的排程被捨棄的話 只在第一次使用時告知
+	private static void sendLegacyNotice(InteractionHook hook)
+	{
+		String notice = TimerHandle.takeLegacyNotice();
+		if (notice != null)
+			hook.sendMessage(notice).queue();
+	}
+
 	private static class CreateSubCommand implements ICommand
 	{
 		@Override
 		public void commandProcess(SlashCommandInteractionEvent event)
 		{
-			int time = event.getOption("time", 0, CommonFunctions.getAsInt); //時間 介於0到23之間
-			if (time < 0 || time > 23) //不得超出範圍
+			String cron = event.getOption("cron", CommonFunctions.getAsString); //cron表達式 有的話就不看時間
+			String timeString;
+			boolean daily; //是否每天發送一次
+			if (cron == null) //用時間和分鐘
 			{
-				event.reply("Time must between 0 and 23!").setEphemeral(true).queue();
-				return;
+				int time = event.getOption("time", -1, CommonFunctions.getAsInt); //時間 介於0到23之間
+				if (time == -1) //兩個都沒有
+				{
+					event.reply("Please input a time or a cron expression!").setEphemeral(true).queue();
+					return;
+				}
+				if (time < 0 || time > 23) //不得超出範圍
+				{
+					event.reply("Time must between 0 and 23!").setEphemeral(true).queue();
+					return;
+				}
+				int minute = event.getOption("minute", 0, CommonFunctions.getAsInt); //分鐘 介於0到59之間
+				if (minute < 0 || minute > 59) //不得超出範圍
+				{
+					event.reply("Minute must between 0 and 59!").setEphemeral(true).queue();
+					return;
+				}
+				cron = minute + " " + time + " * * *"; //每天的這個時間
+				timeString = time + (minute < 10 ? ":0" : ":") + minute; //例如3:05
+				daily = true;
+			}
+			else
+			{
+				try
+				{
+					CronExpression compiled = CronExpression.compile(cron);
+					cron = compiled.toString(); //整理空白
+					daily = compiled.isDaily(); //看實際的欄位 */5 * * * *不是每天一次
+				}
+				catch (IllegalArgumentException exception)
+				{
+					event.reply("Invalid cron expression: " + exception.getMessage()).setEphemeral(true).queue();
+					return;
+				}
+				timeString = '`' + cron + '`';
 			}
 
 			GuildChannel guildChannel = event.getOption("channel", CommonFunctions.getAsChannel); //頻道
@@ -74,7 +117,7 @@ public class ScheduleCommand extends HasSubcommands
 			String content = event.getOption("content", " ", CommonFunctions.getAsString); //內容
 			int contentLength = content.length(); //訊息的長度
 			String first20Characters = contentLength <= 20 ? content : content.substring(0, 20); //取其前20個字
-			String name = guildChannel.getName() + '_' + time + '_' + first20Characters; //頻道名_時間_開頭前20個字
+			String name = guildChannel.getName() + '_' + timeString + '_' + first20Characters; //頻道名_時間_開頭前20個字
 
 			if (TimerHandle.hasScheduledEvent(name)) //如果已經註冊過這個事件名稱了
 			{
@@ -84,20 +127,11 @@ public class ScheduleCommand extends HasSubcommands
 
 			boolean once = event.getOption("once", Boolean.FALSE, CommonFunctions.getAsBoolean); //是否為一次性
 
-			long channelID = guildChannel.getIdLong(); //頻道ID
-			Runnable sendMessageToChannel = () -> //事件內容的Runnable
-			{
-				MessageChannel channel = Cartoland.getJDA().getChannelById(MessageChannel.class, channelID); //尋找頻道
-				if (channel != null) //如果找到頻道
-					channel.sendMessage(content).queue(); //發送訊息
-			};
-			TimerHandle.registerScheduledEvent(name, new TimerHandle.TimerEvent((byte) time, once ? () -> //如果是一次性
-			{
-				sendMessageToChannel.run(); //執行Runnable
-				TimerHandle.unregisterScheduledEvent(name); //執行完後刪除事件
-			} : sendMessageToChannel)); //不是一次性 就直接把Runnable傳入
+			//只存頻道ID、內容、cron和是否一次性 不存lambda
+			TimerHandle.registerScheduledMessage(name, new TimerHandle.ScheduledMessage(guildChannel.getIdLong(), content, cron, once));
 
-			event.reply("The bot will send \"" + first20Characters + (contentLength > 20 ? "…" : "") + "\" to " + guildChannel.getAsMention() + " at " + time + (once ? " once." : " everyday.")).queue();
+			event.reply("The bot will send \"" + first20Characters + (contentLength > 20 ? "…" : "") + "\" to " + guildChannel.getAsMention() + " at " + timeString +
+							(once ? " once." : daily ? " everyday." : " every time it matches.")).queue(ScheduleCommand::sendLegacyNotice);
 		}
 	}
 }
\ No newline at end of file
@@ -45,46 +45,47 @@ public class TransferCommand implements ICommand
 		CommandBlocksHandle.LotteryData myData = CommandBlocksHandle.getLotteryData(userID);
 		CommandBlocksHandle.LotteryData targetData = CommandBlocksHandle.getLotteryData(targetID);
 
-		long nowHave = myData.getBlocks();
+		long nowHave;
 		long transferAmount;
-		if (RegularExpressions.BET_NUMBER_REGEX.matcher(transferAmountString).matches()) //轉數字
-			transferAmount = Long.parseLong(transferAmountString);
-		else if (RegularExpressions.BET_PERCENT_REGEX.matcher(transferAmountString).matches()) //轉%數
+		do
 		{
-			short percentage = Short.parseShort(transferAmountString.substring(0, transferAmountString.length() - 1));
-			if (percentage > 100) //百分比格式錯誤 不能賭超過100%
+			nowHave = myData.getBlocks();
+			if (RegularExpressions.BET_NUMBER_REGEX.matcher(transferAmountString).matches()) //轉數字
+				transferAmount = Long.parseLong(transferAmountString);
+			else if (RegularExpressions.BET_PERCENT_REGEX.matcher(transferAmountString).matches()) //轉%數
 			{
-				event.reply(JsonHandle.getString(userID, "transfer.wrong_percent", transferAmountString)).setEphemeral(true).queue();
+				short percentage = Short.parseShort(transferAmountString.substring(0, transferAmountString.length() - 1));
+				if (percentage > 100) //百分比格式錯誤 不能賭超過100%
+				{
+					event.reply(JsonHandle.getString(userID, "transfer.wrong_percent", transferAmountString)).setEphemeral(true).queue();
+					return;
+				}
+				transferAmount = nowHave * percentage / 100;
+			}
+			else if ("all".equalsIgnoreCase(transferAmountString))
+				transferAmount = nowHave;
+			else if ("half".equalsIgnoreCase(transferAmountString))
+				transferAmount = nowHave >> 1;
+			else //都不是
+			{
+				event.reply(JsonHandle.getString(userID, "transfer.wrong_argument")).setEphemeral(true).queue(); //格式錯誤
 				return;
 			}
-			transferAmount = nowHave * percentage / 100;
-		}
-		else if ("all".equalsIgnoreCase(transferAmountString))
-			transferAmount = nowHave;
-		else if ("half".equalsIgnoreCase(transferAmountString))
-			transferAmount = nowHave >> 1;
-		else //都不是
-		{
-			event.reply(JsonHandle.getString(userID, "transfer.wrong_argument")).setEphemeral(true).queue(); //格式錯誤
-			return;
-		}
 
-		if (transferAmount == 0L) //不能轉0
-		{
-			event.reply(JsonHandle.getString(userID, "transfer.wrong_argument")).queue();
-			return;
-		}
+			if (transferAmount == 0L) //不能轉0
+			{
+				event.reply(JsonHandle.getString(userID, "transfer.wrong_argument")).queue();
+				return;
+			}
 
-		if (nowHave < transferAmount) //不夠轉
-		{
-			event.reply(JsonHandle.getString(userID, "transfer.not_enough", transferAmount, nowHave)).queue();
-			return;
+			if (nowHave < transferAmount) //不夠轉
+			{
+				event.reply(JsonHandle.getString(userID, "transfer.not_enough", transferAmount, nowHave)).queue();
+				return;
+			}
 		}
+		while (!CommandBlocksHandle.transfer(myData, targetData, nowHave, transferAmount)); //其他互動同時改變了方塊 就重新計算
 
-		long afterHave = nowHave - transferAmount;
-		event.reply(JsonHandle.getString(userID, "transfer.success", transferAmount, target.getEffectiveName(), afterHave)).queue();
-
-		targetData.addBlocks(transferAmount);
-		myData.setBlocks(afterHave);
+		event.reply(JsonHandle.getString(userID, "transfer.success", transferAmount, target.getEffectiveName(), nowHave - transferAmount)).queue();
 	}
 }
\ No newline at end of file
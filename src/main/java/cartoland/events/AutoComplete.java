@@ -1,6 +1,9 @@
 package cartoland.events;
 
+import cartoland.utilities.DeferHandle;
+import cartoland.utilities.ExecutionHandle;
 import cartoland.utilities.JsonHandle;
+import cartoland.utilities.MetricsHandle;
 import cartoland.utilities.TimerHandle;
 import net.dv8tion.jda.api.events.interaction.command.CommandAutoCompleteInteractionEvent;
 import net.dv8tion.jda.api.hooks.ListenerAdapter;
@@ -57,7 +60,9 @@ public class AutoComplete extends ListenerAdapter
 	@Override
 	public void onCommandAutoCompleteInteraction(CommandAutoCompleteInteractionEvent event)
 	{
-		commands.get(event.getName()).completeProcess(event);
+		String metricsName = "auto_complete " + event.getName();
+		DeferHandle.watch(event, metricsName); //記錄回覆選項的時間
+		ExecutionHandle.dispatch(ExecutionHandle.Bulkhead.COMPUTE, MetricsHandle.timed(metricsName, () -> commands.get(event.getName()).completeProcess(event)));
 	}
 
 	/**
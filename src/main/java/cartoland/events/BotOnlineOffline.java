@@ -1,5 +1,6 @@
 package cartoland.events;
 
+import cartoland.commands.AdminCommand;
 import cartoland.utilities.*;
 import net.dv8tion.jda.api.entities.channel.concrete.TextChannel;
 import net.dv8tion.jda.api.events.session.ReadyEvent;
@@ -41,6 +42,8 @@ public class BotOnlineOffline extends ListenerAdapter
 	{
 		if (shouldInitial)
 			CommandBlocksHandle.initial(); //初始化idAndName
+		AdminCommand.startUnbanTimer(); //離線時到期的temp_ban會馬上解除
+		QuestionForumHandle.startReminders(); //離線時該提醒的貼文會在下一分鐘提醒
 
 		if (!isReboot)
 		{
@@ -65,10 +68,17 @@ public class BotOnlineOffline extends ListenerAdapter
 	@Override
 	public void onShutdown(@NotNull ShutdownEvent event)
 	{
+		CommandBlocksHandle.foldAccruals(); //說話獲得的方塊 要在序列化前加進資料
+		CommandBlocksHandle.auditLedger(); //檢查帳本和資料是否相符
+
 		FileHandle.serialize(); //所有有註冊的物件
 
 		TimerHandle.stopTimer(); //停止每小時的事件執行緒
 
+		ExecutionHandle.shutdown(); //不再接受新的事件
+
+		MetricsHandle.stopServer(); //關閉統計資料的伺服器
+
 		String logString = "offline";
 		System.out.println(logString);
 		FileHandle.log(logString);
@@ -1,7 +1,10 @@
 package cartoland.events;
 
 import cartoland.buttons.*;
+import cartoland.utilities.DeferHandle;
+import cartoland.utilities.ExecutionHandle;
 import cartoland.utilities.FileHandle;
+import cartoland.utilities.MetricsHandle;
 import net.dv8tion.jda.api.entities.User;
 import net.dv8tion.jda.api.events.interaction.component.ButtonInteractionEvent;
 import net.dv8tion.jda.api.hooks.ListenerAdapter;
@@ -20,21 +23,29 @@ import static cartoland.buttons.IButton.*;
  */
 public class ClickedButton extends ListenerAdapter
 {
-	private final Map<String, IButton> buttons = HashMap.newHashMap(3);
+	private final Map<String, IButton> buttons = HashMap.newHashMap(4);
 
 	public ClickedButton()
 	{
 		buttons.put(ARCHIVE_THREAD, new ArchiveThreadButton());
 		buttons.put(DELETE_THREAD, event -> event.reply("This feature is no longer supported.").setEphemeral(true).queue());
 		buttons.put(RENAME_THREAD, new RenameThreadButton());
+		buttons.put(RANKING_PAGE, new RankingPageButton());
 	}
 
 	@Override
 	public void onButtonInteraction(ButtonInteractionEvent event)
 	{
-		String componentName = event.getComponentId();
-		buttons.get(componentName).buttonProcess(event);
-		User user = event.getUser();
-		FileHandle.log(user.getName(), '(', user.getId(), ") [", componentName + ']');
+		String componentID = event.getComponentId();
+		int colon = componentID.indexOf(':'); //冒號後面是按鈕的參數 例如要翻到的頁數
+		String componentName = colon != -1 ? componentID.substring(0, colon) : componentID;
+		String metricsName = "button " + componentName;
+		DeferHandle.watch(event, metricsName); //記錄回覆的時間
+		ExecutionHandle.dispatch(ExecutionHandle.Bulkhead.COMPUTE, MetricsHandle.timed(metricsName, () ->
+		{
+			buttons.get(componentName).buttonProcess(event);
+			User user = event.getUser();
+			FileHandle.log(user.getName(), '(', user.getId(), ") [", componentID + ']');
+		}));
 	}
 }
\ No newline at end of file
@@ -13,6 +13,7 @@ import net.dv8tion.jda.api.hooks.ListenerAdapter;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
 
 import static cartoland.commands.ICommand.*;
 
@@ -30,6 +31,23 @@ public class CommandUsage extends ListenerAdapter
 	 */
 	private final Map<String, ICommand> commands = new HashMap<>();
 
+	/**
+	 * Commands that wait for network in their handlers, they run in {@link ExecutionHandle.Bulkhead#NETWORK}.
+	 */
+	private final Set<String> networkCommands = Set.of(JIRA, BUG, ROLL, QUOTE);
+
+	/**
+	 * Commands that change state which isn't thread-safe, such as the games of the mini games and the lottery data of
+	 * users, they run in {@link ExecutionHandle.Bulkhead#SERIAL}.
+	 */
+	private final Set<String> serialCommands = Set.of(ONE_A_TWO_B, TIC_TAC_TOE, CONNECT_FOUR, LIGHT_OUT, LOTTERY, TRANSFER);
+
+	/**
+	 * Commands and subcommands that reply ephemerally when they succeed, see {@link MetricsHandle#commandName}. If they
+	 * are too slow, {@link DeferHandle} defers their replies ephemerally, so that nothing they reply shows publicly.
+	 */
+	private final Set<String> ephemeralCommands = Set.of("/admin stats", "/admin profile", "/birthday upcoming", "/introduce user");
+
 	/**
 	 * 403 images about Megumin.
 	 */
@@ -185,9 +203,23 @@ public class CommandUsage extends ListenerAdapter
 	public void onSlashCommandInteraction(SlashCommandInteractionEvent event)
 	{
 		String commandName = event.getName();
-		commands.get(commandName).commandProcess(event);
-		User user = event.getUser();
-		FileHandle.log(user.getName(), '(', user.getId(), ") /", commandName, ' ', event.getSubcommandName()); //IO放最後 避免超過3秒限制
+		String metricsName = MetricsHandle.commandName(commandName, event.getSubcommandName()); //例如/lottery bet
+		SlashCommandInteractionEvent watched = DeferHandle.watch(event, metricsName, ephemeralCommands.contains(metricsName)); //超過時間還沒回覆就自動deferReply
+		ExecutionHandle.Bulkhead bulkhead = networkCommands.contains(commandName) ? ExecutionHandle.Bulkhead.NETWORK :
+				serialCommands.contains(commandName) ? ExecutionHandle.Bulkhead.SERIAL : ExecutionHandle.Bulkhead.COMPUTE;
+		ExecutionHandle.dispatch(bulkhead, MetricsHandle.timed(metricsName, () ->
+		{
+			User user = event.getUser();
+			try
+			{
+				ProfileHandle.command(metricsName, user.getIdLong(), event, () -> commands.get(commandName).commandProcess(watched)).run();
+			}
+			finally
+			{
+				DeferHandle.handled(watched); //自動deferReply後沒有回覆的話 就收回「思考中」
+			}
+			FileHandle.log(user.getName(), '(', user.getId(), ") /", commandName, ' ', event.getSubcommandName()); //IO放最後 避免超過3秒限制
+		}));
 	}
 
 	/**
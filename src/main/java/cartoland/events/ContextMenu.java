@@ -1,8 +1,12 @@
 package cartoland.events;
 
 import cartoland.commands.QuoteCommand;
+import cartoland.utilities.DeferHandle;
+import cartoland.utilities.ExecutionHandle;
 import cartoland.utilities.FileHandle;
 import cartoland.utilities.IDs;
+import cartoland.utilities.MetricsHandle;
+import cartoland.utilities.ProfileHandle;
 import net.dv8tion.jda.api.Permission;
 import net.dv8tion.jda.api.entities.Member;
 import net.dv8tion.jda.api.entities.Message;
@@ -14,6 +18,7 @@ import net.dv8tion.jda.api.interactions.InteractionHook;
 import net.dv8tion.jda.api.utils.FileUpload;
 
 import java.nio.charset.StandardCharsets;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 /**
@@ -31,8 +36,31 @@ public class ContextMenu extends ListenerAdapter
 	public static final String QUOTE_ = "Quote";
 	public static final String PIN = "Pin";
 
+	/**
+	 * Context menus that reply ephemerally, if they are too slow, {@link DeferHandle} defers their replies ephemerally.
+	 */
+	private final Set<String> ephemeralMenus = Set.of(RAW_TEXT, REACTIONS);
+
 	@Override
 	public void onMessageContextInteraction(MessageContextInteractionEvent event)
+	{
+		String metricsName = "context " + event.getName();
+		MessageContextInteractionEvent watched = DeferHandle.watch(event, metricsName, ephemeralMenus.contains(event.getName())); //超過時間還沒回覆就自動deferReply
+		Runnable handler = ProfileHandle.command(metricsName, event.getUser().getIdLong(), event, () -> contextMenuProcess(watched));
+		ExecutionHandle.dispatch(ExecutionHandle.Bulkhead.COMPUTE, MetricsHandle.timed(metricsName, () ->
+		{
+			try
+			{
+				handler.run();
+			}
+			finally
+			{
+				DeferHandle.handled(watched); //自動deferReply後沒有回覆的話 就收回「思考中」
+			}
+		}));
+	}
+
+	private void contextMenuProcess(MessageContextInteractionEvent event)
 	{
 		User user = event.getUser();
 		long userID = user.getIdLong();
@@ -0,0 +1,192 @@
+package cartoland.events;
+
+import cartoland.utilities.FileHandle;
+import net.dv8tion.jda.api.entities.Guild;
+import net.dv8tion.jda.api.entities.User;
+import net.dv8tion.jda.api.entities.channel.Channel;
+import net.dv8tion.jda.api.entities.channel.ChannelType;
+import net.dv8tion.jda.api.entities.channel.attribute.ICategorizableChannel;
+import net.dv8tion.jda.api.entities.channel.concrete.ThreadChannel;
+import net.dv8tion.jda.api.events.interaction.command.CommandAutoCompleteInteractionEvent;
+import net.dv8tion.jda.api.events.interaction.command.SlashCommandInteractionEvent;
+import net.dv8tion.jda.api.events.message.MessageReceivedEvent;
+import net.dv8tion.jda.api.events.session.ShutdownEvent;
+import net.dv8tion.jda.api.hooks.ListenerAdapter;
+import net.dv8tion.jda.api.interactions.commands.CommandInteractionPayload;
+import net.dv8tion.jda.api.interactions.commands.OptionMapping;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.*;
+import java.util.List;
+
+/**
+ * {@code EventRecorder} is a listener that writes the messages, slash commands and auto completes it received into a
+ * compact binary file, which can be replayed by {@code cartoland.replay.ReplayHarness} of {@code src/tools} without a
+ * connection to Discord. Only the data that the listeners of this bot read are written: the author, the guild, the channel and its
+ * category, the content of messages and the options of interactions. This class was registered in
+ * {@link cartoland.Cartoland#main(String[])} only if the bot was started with
+ * {@code -Dcartoland.record_events=<file>}.
+ *
+ * <p>The file starts with {@link #MAGIC} and {@link #VERSION}, followed by records. Every record starts with its
+ * kind, the time it was received, the guild ID, the channel (ID, type, parent ID, parent type and category ID) and
+ * the user (ID, name and whether it is a bot). A {@link #MESSAGE} record is followed by the message ID and content.
+ * A {@link #SLASH} record is followed by the name, subcommand group, subcommand and options of the command, and an
+ * {@link #AUTO_COMPLETE} record adds the name of the focused option after them.</p>
+ *
+ * @since 2.2
+ * @author Alex Cai
+ */
+public class EventRecorder extends ListenerAdapter
+{
+	public static final int MAGIC = 0x43415254; //CART
+	public static final short VERSION = 1;
+
+	public static final byte MESSAGE = 1;
+	public static final byte SLASH = 2;
+	public static final byte AUTO_COMPLETE = 3;
+
+	private final DataOutputStream output;
+	private boolean closed = false;
+
+	/**
+	 * Open the file to record. Existing content of the file will be overwritten.
+	 *
+	 * @param fileName The name of the file.
+	 * @throws UncheckedIOException If the file can't be opened.
+	 * @since 2.2
+	 * @author Alex Cai
+	 */
+	public EventRecorder(String fileName)
+	{
+		try
+		{
+			output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(fileName)));
+			output.writeInt(MAGIC);
+			output.writeShort(VERSION);
+		}
+		catch (IOException exception)
+		{
+			throw new UncheckedIOException(exception);
+		}
+	}
+
+	@Override
+	public void onMessageReceived(MessageReceivedEvent event)
+	{
+		write(MESSAGE, event.isFromGuild() ? event.getGuild() : null, event.getChannel(), event.getAuthor(), () ->
+		{
+			output.writeLong(event.getMessageIdLong());
+			output.writeUTF(event.getMessage().getContentRaw());
+		});
+	}
+
+	@Override
+	public void onSlashCommandInteraction(SlashCommandInteractionEvent event)
+	{
+		write(SLASH, event.getGuild(), event.getChannel(), event.getUser(), () -> writeCommand(event));
+	}
+
+	@Override
+	public void onCommandAutoCompleteInteraction(CommandAutoCompleteInteractionEvent event)
+	{
+		write(AUTO_COMPLETE, event.getGuild(), event.getChannel(), event.getUser(), () ->
+		{
+			writeCommand(event);
+			output.writeUTF(event.getFocusedOption().getName());
+		});
+	}
+
+	@Override
+	public void onShutdown(@NotNull ShutdownEvent event)
+	{
+		synchronized (this)
+		{
+			closed = true;
+			try
+			{
+				output.close();
+			}
+			catch (IOException exception)
+			{
+				FileHandle.log(exception);
+			}
+		}
+	}
+
+	private void writeCommand(CommandInteractionPayload payload) throws IOException
+	{
+		output.writeUTF(payload.getName());
+		output.writeUTF(nullToEmpty(payload.getSubcommandGroup()));
+		output.writeUTF(nullToEmpty(payload.getSubcommandName()));
+		List<OptionMapping> options = payload.getOptions();
+		output.writeByte(options.size()); //最多25個選項
+		for (OptionMapping option : options)
+		{
+			output.writeUTF(option.getName());
+			output.writeByte(option.getType().getKey());
+			output.writeUTF(option.getAsString()); //使用者、身分組和頻道會是ID
+		}
+	}
+
+	private synchronized void write(byte kind, Guild guild, Channel channel, User user, RecordBody body)
+	{
+		if (closed) //已經關閉了
+			return;
+		try
+		{
+			output.writeByte(kind);
+			output.writeLong(System.currentTimeMillis());
+			output.writeLong(guild != null ? guild.getIdLong() : 0L);
+			writeChannel(channel);
+			output.writeLong(user.getIdLong());
+			output.writeUTF(user.getName());
+			output.writeBoolean(user.isBot());
+			body.write();
+		}
+		catch (IOException exception)
+		{
+			FileHandle.log(exception);
+		}
+	}
+
+	private void writeChannel(Channel channel) throws IOException
+	{
+		if (channel == null) //例如無法存取的頻道
+		{
+			output.writeLong(0L);
+			output.writeInt(ChannelType.UNKNOWN.getId());
+			output.writeLong(0L);
+			output.writeInt(ChannelType.UNKNOWN.getId());
+			output.writeLong(0L);
+			return;
+		}
+
+		output.writeLong(channel.getIdLong());
+		output.writeInt(channel.getType().getId());
+		Channel categorizable = channel;
+		if (channel instanceof ThreadChannel thread) //討論串要記錄它所在的頻道
+		{
+			Channel parent = thread.getParentChannel();
+			output.writeLong(parent.getIdLong());
+			output.writeInt(parent.getType().getId());
+			categorizable = parent;
+		}
+		else
+		{
+			output.writeLong(0L);
+			output.writeInt(ChannelType.UNKNOWN.getId());
+		}
+		output.writeLong(categorizable instanceof ICategorizableChannel categorizableChannel ? categorizableChannel.getParentCategoryIdLong() : 0L);
+	}
+
+	private static String nullToEmpty(String string)
+	{
+		return string != null ? string : "";
+	}
+
+	@FunctionalInterface
+	private interface RecordBody
+	{
+		void write() throws IOException;
+	}
+}
@@ -1,6 +1,8 @@
 package cartoland.events;
 
 import cartoland.messages.*;
+import cartoland.utilities.ExecutionHandle;
+import cartoland.utilities.ProfileHandle;
 import net.dv8tion.jda.api.entities.User;
 import net.dv8tion.jda.api.events.message.MessageReceivedEvent;
 import net.dv8tion.jda.api.hooks.ListenerAdapter;
@@ -32,8 +34,11 @@ public class MessageEvent extends ListenerAdapter
 		if (author.isBot() || author.isSystem()) //傳訊息的是機器人或系統
 			return; //不用執行
 
-		for (IMessage messageEvent : messageEvents)
-			if (messageEvent.messageCondition(event)) //讓類別自己檢測是否通過
-				messageEvent.messageProcess(event); //執行訊息事件
+		ExecutionHandle.dispatch(ExecutionHandle.Bulkhead.NETWORK, () -> //GuildMessage和PrivateMessage可能會等待網路
+		{
+			for (IMessage messageEvent : messageEvents)
+				if (messageEvent.messageCondition(event)) //讓類別自己檢測是否通過
+					ProfileHandle.messageHandler(messageEvent.getClass().getSimpleName(), () -> messageEvent.messageProcess(event)); //執行訊息事件
+		});
 	}
 }
\ No newline at end of file
@@ -0,0 +1,97 @@
+package cartoland.events;
+
+import cartoland.utilities.FileHandle;
+import cartoland.utilities.MetricsHandle;
+import cartoland.utilities.StallHandle;
+import net.dv8tion.jda.api.events.GenericEvent;
+import net.dv8tion.jda.api.events.guild.member.GenericGuildMemberEvent;
+import net.dv8tion.jda.api.events.message.MessageReceivedEvent;
+import net.dv8tion.jda.api.events.message.react.GenericMessageReactionEvent;
+import net.dv8tion.jda.api.events.user.GenericUserEvent;
+import net.dv8tion.jda.api.hooks.EventListener;
+import net.dv8tion.jda.api.hooks.InterfacedEventManager;
+import net.dv8tion.jda.api.hooks.ListenerAdapter;
+import net.dv8tion.jda.api.interactions.Interaction;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * {@code MonitoredEventManager} is the event manager of JDA, which passes every gateway event to the listeners like
+ * {@link InterfacedEventManager} does, and counts how many events each listener actually handled. A listener handles
+ * an event if it overrides one of the methods of {@link ListenerAdapter} that accept this event. Every dispatch to a
+ * listener that handles the event is watched by {@link cartoland.utilities.StallHandle}. This class was
+ * registered in {@link cartoland.Cartoland#main(String[])}, with the build of JDA.
+ *
+ * @since 2.2
+ * @author Alex Cai
+ */
+public class MonitoredEventManager extends InterfacedEventManager
+{
+	private final Map<Class<?>, Map<Class<?>, Boolean>> handles = new ConcurrentHashMap<>(); //聆聽者類別為key 事件類別與是否處理為value
+
+	@Override
+	public void handle(GenericEvent event)
+	{
+		Class<?> eventClass = event.getClass();
+		String eventName = eventClass.getSimpleName();
+		for (Object listener : getRegisteredListeners())
+		{
+			Class<?> listenerClass = listener.getClass();
+			StallHandle.InFlight inFlight = null;
+			if (handles.computeIfAbsent(listenerClass, key -> new ConcurrentHashMap<>())
+					.computeIfAbsent(eventClass, key -> overrides(listenerClass, eventClass))) //這個聆聽者有處理這個事件
+			{
+				String listenerName = listenerClass.getSimpleName();
+				MetricsHandle.countEvent(listenerName, eventName);
+				inFlight = StallHandle.enter(listenerName + '/' + eventName, userIDOf(event)); //開始監視
+			}
+
+			try
+			{
+				((EventListener) listener).onEvent(event);
+			}
+			catch (Exception exception) //不要因為一個聆聽者出錯就影響其他聆聽者
+			{
+				FileHandle.log(exception);
+			}
+			finally
+			{
+				if (inFlight != null)
+					StallHandle.exit(inFlight);
+			}
+		}
+	}
+
+	private static long userIDOf(GenericEvent event)
+	{
+		return switch (event)
+		{
+			case Interaction interaction -> interaction.getUser().getIdLong();
+			case MessageReceivedEvent messageEvent -> messageEvent.getAuthor().getIdLong();
+			case GenericMessageReactionEvent reactionEvent -> reactionEvent.getUserIdLong();
+			case GenericGuildMemberEvent memberEvent -> memberEvent.getUser().getIdLong();
+			case GenericUserEvent userEvent -> userEvent.getUser().getIdLong();
+			default -> 0L; //和使用者無關的事件
+		};
+	}
+
+	private static boolean overrides(Class<?> listenerClass, Class<?> eventClass)
+	{
+		//從聆聽者往上找 直到ListenerAdapter為止
+		for (Class<?> type = listenerClass; type != null && type != ListenerAdapter.class && type != Object.class; type = type.getSuperclass())
+		{
+			for (Method method : type.getDeclaredMethods())
+			{
+				if (!method.getName().startsWith("on") || method.getParameterCount() != 1 || Modifier.isStatic(method.getModifiers()))
+					continue;
+				Class<?> parameterType = method.getParameterTypes()[0];
+				if (GenericEvent.class.isAssignableFrom(parameterType) && parameterType.isAssignableFrom(eventClass))
+					return true;
+			}
+		}
+		return false;
+	}
+}
@@ -1,6 +1,9 @@
 package cartoland.events;
 
+import cartoland.utilities.DeferHandle;
+import cartoland.utilities.ExecutionHandle;
 import cartoland.utilities.JsonHandle;
+import cartoland.utilities.MetricsHandle;
 import net.dv8tion.jda.api.entities.User;
 import net.dv8tion.jda.api.events.interaction.ModalInteractionEvent;
 import net.dv8tion.jda.api.hooks.ListenerAdapter;
@@ -20,6 +23,13 @@ public class ReceiveModal extends ListenerAdapter
 
 	@Override
 	public void onModalInteraction(ModalInteractionEvent event)
+	{
+		String metricsName = "modal " + event.getModalId();
+		DeferHandle.watch(event, metricsName); //記錄回覆的時間
+		ExecutionHandle.dispatch(ExecutionHandle.Bulkhead.COMPUTE, MetricsHandle.timed(metricsName, () -> modalProcess(event)));
+	}
+
+	private void modalProcess(ModalInteractionEvent event)
 	{
 		User user = event.getUser();
 		long userID = user.getIdLong();
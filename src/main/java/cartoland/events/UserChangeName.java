@@ -2,12 +2,15 @@ package cartoland.events;
 
 import cartoland.utilities.CommandBlocksHandle;
 import net.dv8tion.jda.api.entities.User;
+import net.dv8tion.jda.api.events.user.update.GenericUserUpdateEvent;
+import net.dv8tion.jda.api.events.user.update.UserUpdateGlobalNameEvent;
 import net.dv8tion.jda.api.events.user.update.UserUpdateNameEvent;
 import net.dv8tion.jda.api.hooks.ListenerAdapter;
 
 /**
- * {@code UserChangeName} is a listener that triggers when a user changed his/her name. This class was registered in
- * {@link cartoland.Cartoland#main(String[])}, with the build of JDA.
+ * {@code UserChangeName} is a listener that triggers when a user changed his/her name or global name, which are what
+ * {@link User#getEffectiveName()} depends on. This class was registered in {@link cartoland.Cartoland#main(String[])},
+ * with the build of JDA.
  *
  * @since 1.6
  * @author Alex Cai
@@ -16,9 +19,19 @@ public class UserChangeName extends ListenerAdapter
 {
 	@Override
 	public void onUserUpdateName(UserUpdateNameEvent event)
+	{
+		updateName(event);
+	}
+
+	@Override
+	public void onUserUpdateGlobalName(UserUpdateGlobalNameEvent event)
+	{
+		updateName(event);
+	}
+
+	private void updateName(GenericUserUpdateEvent<?> event)
 	{
 		User user = event.getUser();
-		CommandBlocksHandle.getLotteryData(user.getIdLong()).setName(user.getEffectiveName()); //修改紀錄內的名字
-		CommandBlocksHandle.changed = true; //下次用/lottery ranking的時候要重新排序
+		CommandBlocksHandle.getLotteryData(user.getIdLong()).setName(user.getEffectiveName()); //修改紀錄內的名字 下次用/lottery ranking的時候會重新產生頁面
 	}
-}
\ No newline at end of file
+}
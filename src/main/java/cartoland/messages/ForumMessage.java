@@ -19,18 +19,18 @@ import java.util.Set;
  */
 public class ForumMessage implements IMessage
 {
-	private ThreadChannel forumPost;
 	private final Set<Long> pinFirstMessage = Set.of(IDs.MAP_DISCUSS_CHANNEL_ID, IDs.RESOURCE_CHANNEL_ID, IDs.POOP_JAM_CHANNEL_ID);
 
 	@Override
 	public boolean messageCondition(MessageReceivedEvent event)
 	{
-		return event.getChannel() instanceof ThreadChannel thread && (forumPost = thread).getParentChannel().getType() == ChannelType.FORUM;
+		return event.getChannel() instanceof ThreadChannel thread && thread.getParentChannel().getType() == ChannelType.FORUM;
 	}
 
 	@Override
 	public void messageProcess(MessageReceivedEvent event)
 	{
+		ThreadChannel forumPost = event.getChannel().asThreadChannel(); //不存成欄位 因為事件可能同時在不同執行緒上處理
 		long parentID = forumPost.getParentChannel().getIdLong();
 		if (pinFirstMessage.contains(parentID)) //是地圖論壇或素材頻道
 		{
@@ -2,6 +2,7 @@ package cartoland.messages;
 
 import cartoland.utilities.Algorithm;
 import cartoland.utilities.CommandBlocksHandle;
+import cartoland.utilities.HttpHandle;
 import cartoland.utilities.IDs;
 import cartoland.utilities.RegularExpressions;
 import net.dv8tion.jda.api.entities.Message;
@@ -9,7 +10,6 @@ import net.dv8tion.jda.api.entities.channel.concrete.Category;
 import net.dv8tion.jda.api.entities.emoji.Emoji;
 import net.dv8tion.jda.api.events.message.MessageReceivedEvent;
 import net.dv8tion.jda.api.exceptions.InsufficientPermissionException;
-import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
 import org.jsoup.nodes.Element;
 
@@ -77,8 +77,8 @@ public class GuildMessage implements IMessage
 		Category category = message.getCategory(); //嘗試從訊息獲取類別
 		//在一般、技術討論區、創作展示或公眾區域類別 且不是在機器人專區
 		if (message.getChannel().getIdLong() != IDs.BOT_CHANNEL_ID && category != null && commandBlockCategories.contains(category.getIdLong()))
-			CommandBlocksHandle.getLotteryData(message.getAuthor().getIdLong())
-					.addBlocks(rawMessage.length() + 1 + message.getAttachments().size() + message.getStickers().size()); //說話加等級 +1當作加上\0 附加一個檔案或貼圖算1個
+			CommandBlocksHandle.accrue(message.getAuthor().getIdLong(),
+					rawMessage.length() + 1 + message.getAttachments().size() + message.getStickers().size()); //說話加等級 +1當作加上\0 附加一個檔案或貼圖算1個 稍後才會加進資料
 	}
 
 	private String jiraLink(String link)
@@ -87,9 +87,9 @@ public class GuildMessage implements IMessage
 
 		try
 		{
-			document = Jsoup.connect(link).get(); //連線
+			document = HttpHandle.getDocument(link); //連線
 		}
-		catch (IOException e) //連線失敗就算了
+		catch (IOException e) //連線失敗或斷路中就算了
 		{
 			return null;
 		}
@@ -101,10 +101,11 @@ public class ConnectFourGame extends MiniGame
 		}
 		else //玩家的左 中 右 至少有一行還有個空格
 		{
-			Algorithm.shuffle(ZERO_ONE_TWO); //隨機排序0、1、2
+			int[] zeroOneTwo = ZERO_ONE_TWO.clone(); //其他遊戲可能同時在洗
+			Algorithm.shuffle(zeroOneTwo); //隨機排序0、1、2
 			int i = 0;
 			do //column必須要先取值一次 雖然用while(isFull(column))也可以 但是難得有do-while的表現機會
-				column = lastHumanPlace - 1 + ZERO_ONE_TWO[i++]; //從玩家下的左 中 右 當中 隨機選一直行
+				column = lastHumanPlace - 1 + zeroOneTwo[i++]; //從玩家下的左 中 右 當中 隨機選一直行
 			while (column < 0 || column >= COLUMNS || isFull(column)); //如果數字不對 或已經滿了 就再隨機選一次
 		}
 
@@ -39,17 +39,18 @@ public class LightOutGame extends MiniGame
 
 	public LightOutGame()
 	{
-		Algorithm.shuffle(PLACE_ON); //洗牌 藉此隨機選出要點亮的格子
+		byte[][] placeOn = PLACE_ON.clone(); //其他遊戲可能同時在洗
+		Algorithm.shuffle(placeOn); //洗牌 藉此隨機選出要點亮的格子
 		byte light;
 		for (light = 0; light < INITIAL_LIGHTS; light++) //取出前INITIAL_LIGHTS項 作為要點亮的格子
 		{
-			byte row = PLACE_ON[light][0],
-				column = PLACE_ON[light][1];
+			byte row = placeOn[light][0],
+				column = placeOn[light][1];
 			board[row][column] = true; //設為點亮
 			updateBoardString(ON, row, column);
 		}
-		for (; light < PLACE_ON.length; light++)
-			board[PLACE_ON[light][0]][PLACE_ON[light][1]] = false; //剩下的就設為關閉
+		for (; light < placeOn.length; light++)
+			board[placeOn[light][0]][placeOn[light][1]] = false; //剩下的就設為關閉
 	}
 
 	@Override
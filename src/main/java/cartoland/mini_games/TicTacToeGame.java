@@ -341,14 +341,12 @@ public class TicTacToeGame extends MiniGame
 		@Override
 		protected int round2()
 		{
-			synchronized (TicTacToeGame.class) //避免洗牌時造成干擾
-			{
-				Algorithm.shuffle(WINNING_COMBINATIONS); //隨機更換檢測勝利的順序 為人類玩家的策略帶來不定性
-			}
+			int[][] winningCombinations = WINNING_COMBINATIONS.clone(); //洗複製的陣列 不用鎖住共用的陣列
+			Algorithm.shuffle(winningCombinations); //隨機更換檢測勝利的順序 為人類玩家的策略帶來不定性
 
 			int first, second, third;
 			char f, s, t;
-			for (int[] winLine: WINNING_COMBINATIONS) //檢查O是否即將連線 如果O確實即將連線則阻止
+			for (int[] winLine: winningCombinations) //檢查O是否即將連線 如果O確實即將連線則阻止
 			{
 				f = game.board[first = winLine[0]]; //可能連線的第一格 同時將索引存進first中
 				s = game.board[second = winLine[1]]; //可能連線的第二格 同時將索引存進second中
@@ -367,9 +365,9 @@ public class TicTacToeGame extends MiniGame
 			//因為這是第二回合 O只放了兩個 代表必定能找到一組空的
 			int[][] possibleWays;
 			if (game.board[LEFT_CORNER] == CROSS) //第一手下在左上角 只有玩家第一手下中間才有可能
-				possibleWays = tryAtLeftCorner;
+				possibleWays = tryAtLeftCorner.clone();
 			else //如果不是下在左上角 那就肯定是下在中間了
-				possibleWays = tryAtCenter;
+				possibleWays = tryAtCenter.clone();
 
 			Algorithm.shuffle(possibleWays);
 			for (int[] co : possibleWays)
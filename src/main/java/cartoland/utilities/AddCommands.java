@@ -321,7 +321,17 @@ public final class AddCommands
 									.setDescriptionLocalization(CHINESE_CHINA, "想确认的用户")),
 						new SubcommandData(BirthdayCommand.DELETE, "Delete your birthday setting")
 							.setDescriptionLocalization(CHINESE_TAIWAN, "刪除你的生日設定")
-							.setDescriptionLocalization(CHINESE_CHINA, "删除你的生日设置")),
+							.setDescriptionLocalization(CHINESE_CHINA, "删除你的生日设置"),
+						new SubcommandData(BirthdayCommand.UPCOMING, "List the birthdays in the next days")
+							.setDescriptionLocalization(CHINESE_TAIWAN, "列出接下來幾天的生日")
+							.setDescriptionLocalization(CHINESE_CHINA, "列出接下来几天的生日")
+							.addOptions(
+								new OptionData(OptionType.INTEGER, "days", "How many days, including today", false, false)
+									.setNameLocalization(CHINESE_TAIWAN, "天數")
+									.setNameLocalization(CHINESE_CHINA, "天数")
+									.setDescriptionLocalization(CHINESE_TAIWAN, "幾天 包含今天")
+									.setDescriptionLocalization(CHINESE_CHINA, "几天 包含今天")
+									.setRequiredRange(1L, BirthdayCommand.MAX_UPCOMING_DAYS))),
 
 			Commands.slash(ROLL, "Rolling")
 					.setDescriptionLocalization(CHINESE_TAIWAN, "抽出一個結果")
@@ -500,7 +510,20 @@ public final class AddCommands
 											.setNameLocalization(CHINESE_CHINA, "小时"),
 										new Command.Choice("Double Hour", "double_hour")
 											.setNameLocalization(CHINESE_TAIWAN, "時辰")
-											.setNameLocalization(CHINESE_CHINA, "时辰")))),
+											.setNameLocalization(CHINESE_CHINA, "时辰"))),
+						new SubcommandData(AdminCommand.STATS, "Show the latency of commands")
+							.setDescriptionLocalization(CHINESE_TAIWAN, "顯示指令的延遲")
+							.setDescriptionLocalization(CHINESE_CHINA, "显示命令的延迟"),
+						new SubcommandData(AdminCommand.PROFILE, "Record a JFR profile of the bot")
+							.setDescriptionLocalization(CHINESE_TAIWAN, "錄製機器人的JFR效能紀錄")
+							.setDescriptionLocalization(CHINESE_CHINA, "录制机器人的JFR性能记录")
+							.addOptions(
+								new OptionData(OptionType.INTEGER, "seconds", "How long the recording lasts", false, false)
+									.setNameLocalization(CHINESE_TAIWAN, "秒數")
+									.setNameLocalization(CHINESE_CHINA, "秒数")
+									.setDescriptionLocalization(CHINESE_TAIWAN, "錄製多久")
+									.setDescriptionLocalization(CHINESE_CHINA, "录制多久")
+									.setRequiredRange(1L, ProfileHandle.MAX_RECORD_SECONDS))),
 			Commands.slash(SCHEDULE, "Schedule a message to be send to a channel")
 					.setDescriptionLocalization(CHINESE_TAIWAN, "排程一則訊息發送至一個頻道")
 					.setDescriptionLocalization(CHINESE_CHINA, "排程一则信息发送至一个频道")
@@ -511,11 +534,21 @@ public final class AddCommands
 							.setDescriptionLocalization(CHINESE_TAIWAN, "建立一個訊息排程")
 							.setDescriptionLocalization(CHINESE_CHINA, "建立一个信息排程")
 							.addOptions(
-								new OptionData(OptionType.INTEGER, "time", "The time to send message", true, false)
+								new OptionData(OptionType.CHANNEL, "channel", "The channel to send message", true, false)
+									.setNameLocalization(CHINESE_TAIWAN, "頻道")
+									.setNameLocalization(CHINESE_CHINA, "频道")
+									.setDescriptionLocalization(CHINESE_TAIWAN, "要發送訊息的頻道")
+									.setDescriptionLocalization(CHINESE_CHINA, "要发送信息的频道"),
+								new OptionData(OptionType.STRING, "content", "The string to send", true, false)
+									.setNameLocalization(CHINESE_TAIWAN, "內容")
+									.setNameLocalization(CHINESE_CHINA, "内容")
+									.setDescriptionLocalization(CHINESE_TAIWAN, "訊息的內容")
+									.setDescriptionLocalization(CHINESE_CHINA, "信息的内容"),
+								new OptionData(OptionType.INTEGER, "time", "The time to send message, required if there's no cron", false, false)
 									.setNameLocalization(CHINESE_TAIWAN, "時間")
 									.setNameLocalization(CHINESE_CHINA, "时间")
-									.setDescriptionLocalization(CHINESE_TAIWAN, "要發送訊息的時間")
-									.setDescriptionLocalization(CHINESE_CHINA, "要发送信息的时间")
+									.setDescriptionLocalization(CHINESE_TAIWAN, "要發送訊息的時間 沒有cron時必填")
+									.setDescriptionLocalization(CHINESE_CHINA, "要发送信息的时间 没有cron时必填")
 									.addChoices(
 										new Command.Choice("12 a.m.", 0L)
 											.setNameLocalization(CHINESE_TAIWAN, "半夜十二點")
@@ -589,21 +622,20 @@ public final class AddCommands
 										new Command.Choice("11 p.m.", 23L)
 											.setNameLocalization(CHINESE_TAIWAN, "下午十一點")
 											.setNameLocalization(CHINESE_CHINA, "下午十一点")),
-								new OptionData(OptionType.CHANNEL, "channel", "The channel to send message", true, false)
-									.setNameLocalization(CHINESE_TAIWAN, "頻道")
-									.setNameLocalization(CHINESE_CHINA, "频道")
-									.setDescriptionLocalization(CHINESE_TAIWAN, "要發送訊息的頻道")
-									.setDescriptionLocalization(CHINESE_CHINA, "要发送信息的频道"),
-								new OptionData(OptionType.STRING, "content", "The string to send", true, false)
-									.setNameLocalization(CHINESE_TAIWAN, "內容")
-									.setNameLocalization(CHINESE_CHINA, "内容")
-									.setDescriptionLocalization(CHINESE_TAIWAN, "訊息的內容")
-									.setDescriptionLocalization(CHINESE_CHINA, "信息的内容"),
 								new OptionData(OptionType.BOOLEAN, "once", "Whether the message send is only once", false, false)
 									.setNameLocalization(CHINESE_TAIWAN, "一次性")
 									.setNameLocalization(CHINESE_CHINA, "一次性")
 									.setDescriptionLocalization(CHINESE_TAIWAN, "訊息發送是否為一次性的")
-									.setDescriptionLocalization(CHINESE_CHINA, "信息发送是否为一次性的")),
+									.setDescriptionLocalization(CHINESE_CHINA, "信息发送是否为一次性的"),
+								new OptionData(OptionType.INTEGER, "minute", "The minute of the time, 0 by default", false, false)
+									.setNameLocalization(CHINESE_TAIWAN, "分鐘")
+									.setNameLocalization(CHINESE_CHINA, "分钟")
+									.setDescriptionLocalization(CHINESE_TAIWAN, "時間的分鐘 預設為0")
+									.setDescriptionLocalization(CHINESE_CHINA, "时间的分钟 预设为0")
+									.setRequiredRange(0L, 59L),
+								new OptionData(OptionType.STRING, "cron", "A cron expression in UTC+8 such as 30 8 * * 1-5, replaces time and minute", false, false)
+									.setDescriptionLocalization(CHINESE_TAIWAN, "UTC+8的cron表達式 例如30 8 * * 1-5 會取代時間和分鐘")
+									.setDescriptionLocalization(CHINESE_CHINA, "UTC+8的cron表达式 例如30 8 * * 1-5 会取代时间和分钟")),
 						new SubcommandData(ScheduleCommand.DELETE, "Delete a scheduled message")
 							.setDescriptionLocalization(CHINESE_TAIWAN, "刪除一個訊息排程")
 							.setDescriptionLocalization(CHINESE_CHINA, "删除一个信息排程")
@@ -661,7 +693,13 @@ public final class AddCommands
 									.setNameLocalization(CHINESE_TAIWAN, "賭注")
 									.setNameLocalization(CHINESE_CHINA, "賭注")
 									.setDescriptionLocalization(CHINESE_TAIWAN, "想賭上的數量")
-									.setDescriptionLocalization(CHINESE_CHINA, "想赌上的数量")),
+									.setDescriptionLocalization(CHINESE_CHINA, "想赌上的数量"),
+								new OptionData(OptionType.INTEGER, "rounds", "How many rounds to play at once", false, false)
+									.setNameLocalization(CHINESE_TAIWAN, "回合數")
+									.setNameLocalization(CHINESE_CHINA, "回合数")
+									.setDescriptionLocalization(CHINESE_TAIWAN, "一次要玩幾回合")
+									.setDescriptionLocalization(CHINESE_CHINA, "一次要玩几回合")
+									.setRequiredRange(1L, LotteryCommand.MAX_ROUNDS)),
 						new SubcommandData(LotteryCommand.RANKING, "Rank all users")
 							.setDescriptionLocalization(CHINESE_TAIWAN, "獲得所有使用者們的排行")
 							.setDescriptionLocalization(CHINESE_CHINA, "获得所有用户们的排行")
@@ -670,7 +708,12 @@ public final class AddCommands
 									.setNameLocalization(CHINESE_TAIWAN, "頁數")
 									.setNameLocalization(CHINESE_CHINA, "页数")
 									.setDescriptionLocalization(CHINESE_TAIWAN, "排名清單的頁數")
-									.setDescriptionLocalization(CHINESE_CHINA, "排名清单的页数")),
+									.setDescriptionLocalization(CHINESE_CHINA, "排名清单的页数"),
+								new OptionData(OptionType.BOOLEAN, "around_me", "Show the ranks around you instead of a page", false, false)
+									.setNameLocalization(CHINESE_TAIWAN, "我的附近")
+									.setNameLocalization(CHINESE_CHINA, "我的附近")
+									.setDescriptionLocalization(CHINESE_TAIWAN, "顯示你附近的排名，而不是某一頁")
+									.setDescriptionLocalization(CHINESE_CHINA, "显示你附近的排名，而不是某一页")),
 						new SubcommandData(LotteryCommand.DAILY, "Daily rewards")
 							.setDescriptionLocalization(CHINESE_TAIWAN, "每日獎勵")
 							.setDescriptionLocalization(CHINESE_CHINA, "每日奖励"),
@@ -682,7 +725,29 @@ public final class AddCommands
 									.setNameLocalization(CHINESE_TAIWAN, "賭注")
 									.setNameLocalization(CHINESE_CHINA, "賭注")
 									.setDescriptionLocalization(CHINESE_TAIWAN, "想賭上的數量")
-									.setDescriptionLocalization(CHINESE_CHINA, "想赌上的数量"))),
+									.setDescriptionLocalization(CHINESE_CHINA, "想赌上的数量"),
+								new OptionData(OptionType.INTEGER, "rounds", "How many rounds to play at once", false, false)
+									.setNameLocalization(CHINESE_TAIWAN, "回合數")
+									.setNameLocalization(CHINESE_CHINA, "回合数")
+									.setDescriptionLocalization(CHINESE_TAIWAN, "一次要玩幾回合")
+									.setDescriptionLocalization(CHINESE_CHINA, "一次要玩几回合")
+									.setRequiredRange(1L, LotteryCommand.MAX_ROUNDS)),
+						new SubcommandData(LotteryCommand.DRAW, "Buy raffle tickets or see the raffle")
+							.setDescriptionLocalization(CHINESE_TAIWAN, "購買抽獎券或查看抽獎")
+							.setDescriptionLocalization(CHINESE_CHINA, "购买抽奖券或查看抽奖")
+							.addOptions(
+								new OptionData(OptionType.INTEGER, "buy", "The amount of tickets to buy", false, false)
+									.setNameLocalization(CHINESE_TAIWAN, "購買")
+									.setNameLocalization(CHINESE_CHINA, "购买")
+									.setDescriptionLocalization(CHINESE_TAIWAN, "要購買的抽獎券數量")
+									.setDescriptionLocalization(CHINESE_CHINA, "要购买的抽奖券数量")
+									.setRequiredRange(1L, 1000L),
+								new OptionData(OptionType.INTEGER, "winners", "Draw this amount of winners (bot owner only)", false, false)
+									.setNameLocalization(CHINESE_TAIWAN, "開獎")
+									.setNameLocalization(CHINESE_CHINA, "开奖")
+									.setDescriptionLocalization(CHINESE_TAIWAN, "抽出這個數量的得獎者（限機器人擁有者）")
+									.setDescriptionLocalization(CHINESE_CHINA, "抽出这个数量的得奖者（限机器人拥有者）")
+									.setRequiredRange(1L, 25L))),
 			Commands.slash(TRANSFER, "Transfer your command blocks")
 					.setDescriptionLocalization(CHINESE_TAIWAN, "轉帳你的指令方塊")
 					.setDescriptionLocalization(CHINESE_CHINA, "转帐你的命令方块")
@@ -1,10 +1,16 @@
 package cartoland.utilities;
 
 import java.util.List;
-import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.random.RandomGenerator;
 
 /**
- * {@code Algorithm} is a class that provides functions that helps calculate. Can not be instantiated or inherited.
+ * {@code Algorithm} is a class that provides functions that helps calculate. Every random number of this bot comes from
+ * {@link #random()}, which is the generator of the current thread, so threads don't contend for one generator. If the
+ * bot was started with {@code -Dcartoland.random_seed=}, or {@link #setSeed(long)} was called, every random number
+ * comes from one seeded generator instead, so replays and tests get the same lotteries and moves of bots. Can not be
+ * instantiated or inherited.
  *
  * @since 1.5
  * @author Alex Cai
@@ -24,9 +30,52 @@ public final class Algorithm
 	}
 
 	/**
-	 * The random core of all functions that related to random and chance.
+	 * The seeded generator, or null if every thread uses its own generator.
 	 */
-	private static final Random random = new Random();
+	private static volatile RandomGenerator seededRandom = null;
+
+	static
+	{
+		Long seed = Long.getLong("cartoland.random_seed");
+		if (seed != null)
+			setSeed(seed);
+	}
+
+	/**
+	 * Get the random core of all functions that related to random and chance. Don't keep the returned generator, since
+	 * it belongs to the current thread.
+	 *
+	 * @return The generator of the current thread, or the seeded generator.
+	 * @since 2.2
+	 * @author Alex Cai
+	 */
+	public static RandomGenerator random()
+	{
+		RandomGenerator seeded = seededRandom;
+		return seeded != null ? seeded : ThreadLocalRandom.current();
+	}
+
+	/**
+	 * Make every random number come from one generator with the seed, so the same sequence of calls gets the same
+	 * numbers. The generator is shared by every thread and locked on each number, so this should only be used in
+	 * replays and tests.
+	 *
+	 * @param seed The seed of the generator.
+	 * @since 2.2
+	 * @author Alex Cai
+	 */
+	public static void setSeed(long seed)
+	{
+		SplittableRandom splittableRandom = new SplittableRandom(seed);
+		seededRandom = new RandomGenerator()
+		{
+			@Override
+			public synchronized long nextLong() //其他方法都會透過nextLong產生
+			{
+				return splittableRandom.nextLong();
+			}
+		};
+	}
 
 	/**
 	 * Shuffle an array.
@@ -37,6 +86,7 @@ public final class Algorithm
 	 */
 	public static void shuffle(int[] array)
 	{
+		RandomGenerator random = random(); //整個洗牌只取一次
 		for (int index = 0, endIndex = array.length - 1; index < endIndex; index++) //到endIndex為止 因為最後一項沒必要交換
 		{
 			int destinationIndex = random.nextInt(array.length - index) + index; //0會得到0 ~ endIndex 1會得到1 ~ endIndex 2會得到2 ~ endIndex
@@ -56,6 +106,7 @@ public final class Algorithm
 	 */
 	public static void shuffle(Object[] array)
 	{
+		RandomGenerator random = random(); //整個洗牌只取一次
 		for (int index = 0, endIndex = array.length - 1; index < endIndex; index++) //到endIndex為止 因為最後一項沒必要交換
 		{
 			int destinationIndex = random.nextInt(array.length - index) + index; //0會得到0~endIndex 1會得到1~endIndex 2會得到2~endIndex
@@ -96,6 +147,22 @@ public final class Algorithm
 		return sum >= 0 ? sum : Long.MAX_VALUE; //避免溢位
 	}
 
+	/**
+	 * Multiply two non-negative long integers without overflow.
+	 *
+	 * @param multiplicand multiplicand
+	 * @param multiplier multiplier
+	 * @return product, or {@link Long#MAX_VALUE} if it overflows
+	 * @since 2.2
+	 * @author Alex Cai
+	 */
+	public static long safeMultiply(long multiplicand, long multiplier)
+	{
+		long high = Math.multiplyHigh(multiplicand, multiplier);
+		long product = multiplicand * multiplier;
+		return high == 0L && product >= 0L ? product : Long.MAX_VALUE; //避免溢位
+	}
+
 	/**
 	 * Returns if it passed based on the percent parameter as percentage.<br>
 	 * Usage:
@@ -107,7 +174,7 @@ public final class Algorithm
 	 * }</pre>
 	 * Although {@code Algorithm.chance(100)} equals to {@code true} and {@code Algorithm.chance(0)}
 	 * equals to {@code false}, there's no actual check such as {@code if (percent == 100) return true},
-	 * just simply returns {@code percent > random.nextInt(100);}. This is because usually we won't use
+	 * just simply returns {@code percent > random().nextInt(100);}. This is because usually we won't use
 	 * {@code Algorithm.chance(100)} or {@code Algorithm.chance(0)}, so there's no need to do the extra
 	 * check and waste performance.
 	 *
@@ -118,7 +185,7 @@ public final class Algorithm
 	 */
 	public static boolean chance(int percent)
 	{
-		return percent > random.nextInt(100);
+		return percent > random().nextInt(100);
 	}
 
 	/**
@@ -132,7 +199,7 @@ public final class Algorithm
 	 */
 	public static<T> T randomElement(T[] array)
 	{
-		return array[random.nextInt(array.length)];
+		return array[random().nextInt(array.length)];
 	}
 
 	/**
@@ -145,7 +212,7 @@ public final class Algorithm
 	 */
 	public static int randomElement(int[] array)
 	{
-		return array[random.nextInt(array.length)];
+		return array[random().nextInt(array.length)];
 	}
 
 	/**
@@ -158,7 +225,7 @@ public final class Algorithm
 	 */
 	public static long randomElement(long[] array)
 	{
-		return array[random.nextInt(array.length)];
+		return array[random().nextInt(array.length)];
 	}
 
 	/**
@@ -171,6 +238,23 @@ public final class Algorithm
 	 */
 	public static<T> T randomElement(List<T> list)
 	{
-		return list.get(random.nextInt(list.size()));
+		return list.get(random().nextInt(list.size()));
+	}
+
+	/**
+	 * Fill an array with random elements of another array, which is faster than calling
+	 * {@link #randomElement(Object[])} for each element.
+	 *
+	 * @param array The array that random elements come from.
+	 * @param destination The array to fill.
+	 * @param <T> Type of elements.
+	 * @since 2.2
+	 * @author Alex Cai
+	 */
+	public static<T> void randomElements(T[] array, T[] destination)
+	{
+		RandomGenerator random = random();
+		for (int i = 0; i < destination.length; i++)
+			destination[i] = array[random.nextInt(array.length)];
 	}
-}
\ No newline at end of file
+}
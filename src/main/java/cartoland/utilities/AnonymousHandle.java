@@ -7,13 +7,14 @@ import net.dv8tion.jda.api.entities.Role;
 import net.dv8tion.jda.api.entities.channel.concrete.TextChannel;
 
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public final class AnonymousHandle
 {
 	private static final String PRIVATE_TO_UNDERGROUND_MAP = "serialize/private_to_underground.ser";
 
 	@SuppressWarnings("unchecked")
-	private static final Map<Long, Long> privateToUnderground = CastToInstance.modifiableMap(FileHandle.deserialize(PRIVATE_TO_UNDERGROUND_MAP));
+	private static final Map<Long, Long> privateToUnderground = new ConcurrentHashMap<>(CastToInstance.modifiableMap(FileHandle.deserialize(PRIVATE_TO_UNDERGROUND_MAP))); //在JDA的回呼中寫入 在編輯訊息時讀取
 
 	static
 	{
@@ -0,0 +1,100 @@
+package cartoland.utilities;
+
+import java.util.Arrays;
+
+/**
+ * {@code BirthdayIndex} is an index of users by the day of year of their birthdays. User IDs are kept in a primitive
+ * array sorted by day of year, and {@link #offsets} tells where each day starts, so the users of a day are found in
+ * O(1), and the users of a range of days are found without looking at anyone outside the range. It is used by
+ * {@link TimerHandle} for the birthday announcements and {@code /birthday upcoming}. All methods lock the index itself.
+ *
+ * @since 2.2
+ * @author Alex Cai
+ */
+final class BirthdayIndex
+{
+	private final int days;
+	private final int[] offsets; //offsets[day]是這一天的第一個使用者 offsets[days]是使用者數量
+	private long[] userIDs = new long[16];
+
+	/**
+	 * A visitor of the users in a range of days.
+	 *
+	 * @since 2.2
+	 * @author Alex Cai
+	 */
+	@FunctionalInterface
+	interface DayVisitor
+	{
+		void visit(int day, long[] userIDs, int from, int to);
+	}
+
+	BirthdayIndex(int days)
+	{
+		this.days = days;
+		offsets = new int[days + 1];
+	}
+
+	/**
+	 * Add a user to a day.
+	 *
+	 * @param day The day of year, starts from 0.
+	 * @param userID The ID of the user, who must not be in the index.
+	 * @since 2.2
+	 * @author Alex Cai
+	 */
+	synchronized void add(int day, long userID)
+	{
+		int size = offsets[days];
+		if (size == userIDs.length) //滿了
+			userIDs = Arrays.copyOf(userIDs, size << 1);
+		int index = offsets[day + 1]; //放在這一天的最後面
+		System.arraycopy(userIDs, index, userIDs, index + 1, size - index);
+		userIDs[index] = userID;
+		for (int i = day + 1; i <= days; i++) //之後的日子都往後一格
+			offsets[i]++;
+	}
+
+	synchronized void remove(int day, long userID)
+	{
+		int index = -1;
+		for (int i = offsets[day], end = offsets[day + 1]; i < end; i++) //只需要找這一天
+		{
+			if (userIDs[i] == userID)
+			{
+				index = i;
+				break;
+			}
+		}
+		if (index == -1) //不在這一天
+			return;
+		System.arraycopy(userIDs, index + 1, userIDs, index, offsets[days] - index - 1);
+		for (int i = day + 1; i <= days; i++) //之後的日子都往前一格
+			offsets[i]--;
+	}
+
+	synchronized long[] usersOn(int day)
+	{
+		return Arrays.copyOfRange(userIDs, offsets[day], offsets[day + 1]);
+	}
+
+	/**
+	 * Visit the users in a range of days. The range wraps around to the start of the year.
+	 *
+	 * @param from The first day of the range, starts from 0.
+	 * @param count The amount of days, no more than a year.
+	 * @param visitor Visits every day that has users, in the order of the range.
+	 * @since 2.2
+	 * @author Alex Cai
+	 */
+	synchronized void visitRange(int from, int count, DayVisitor visitor)
+	{
+		count = Math.min(count, days);
+		for (int i = 0; i < count; i++)
+		{
+			int day = (from + i) % days;
+			if (offsets[day] != offsets[day + 1]) //這一天有人生日
+				visitor.visit(day, userIDs, offsets[day], offsets[day + 1]);
+		}
+	}
+}
@@ -1,20 +1,37 @@
 package cartoland.utilities;
 
 import cartoland.Cartoland;
-import net.dv8tion.jda.api.JDA;
 import net.dv8tion.jda.api.entities.Guild;
+import net.dv8tion.jda.api.entities.Member;
 import net.dv8tion.jda.api.entities.Role;
+import net.dv8tion.jda.api.entities.User;
 
+import java.io.IOException;
 import java.io.Serial;
 import java.io.Serializable;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
 
 /**
  * {@code CommandBlocksHandle} is a utility class that handles command blocks of users. Command blocks is a
  * feature that whatever a user say in some specific channels, the user will gain command blocks as a kind of
- * reward point. Can not be instantiated or inherited.
+ * reward point. The command blocks gained by talking are accumulated by {@link #accrue(long, long)} without touching
+ * the lottery data, and are folded into the lottery data every {@link #ACCRUAL_PERIOD} seconds (can be changed by
+ * {@code -Dcartoland.accrual_period=}). Users whose command blocks crossed {@link #GAMBLE_ROLE_MIN} are marked, and
+ * the God of Gamblers role of them is reconciled every {@link #ROLE_PERIOD} seconds (can be changed by
+ * {@code -Dcartoland.role_period=}).
+ *
+ * <p>Every change of command blocks holds the lock of the user's stripe in {@link #locks}, and a transfer holds the
+ * locks of both users in the order of stripes, so the same user can't be changed by two interactions at once. The
+ * command blocks are volatile, so they can be read without the lock, such as by the reconcile of roles. A change
+ * doesn't touch {@link #rankIndex}, it only marks the user in {@link #rankDirty}, and the users are moved to their new
+ * places when the ranking is read, so changes in different stripes don't contend for the rank index.
+ * Bets, slots and transfers are compare-and-set operations that fail if the command blocks were changed after they
+ * were read. Every change is appended to {@link LedgerHandle}, which can be replayed against the lottery data by
+ * {@link #auditLedger()}. Can not be instantiated or inherited.</p>
  *
  * @since 1.5
  * @author Alex Cai
@@ -26,21 +43,283 @@ public final class CommandBlocksHandle
 		throw new AssertionError(IDs.YOU_SHALL_NOT_ACCESS);
 	}
 
-	public static boolean changed = true; //清單是否更改過 用於決定/lottery ranking時是否重新排序
+	private static final AtomicLong rankingVersion = new AtomicLong(); //排名每次改變都會加1 用於決定/lottery ranking時是否重新產生頁面
 	private static final String LOTTERY_DATA_FILE_NAME = "serialize/lottery_data.ser";
 	private static final long GAMBLE_ROLE_MIN = 100000L;
 
 	//會有unchecked assignment的警告 but I did it anyway
 	@SuppressWarnings("unchecked")
-	private static final Map<Long, LotteryData> lotteryDataMap = CastToInstance.modifiableMap(FileHandle.deserialize(LOTTERY_DATA_FILE_NAME));
+	private static final Map<Long, LotteryData> lotteryDataMap = new ConcurrentHashMap<>(CastToInstance.modifiableMap(FileHandle.deserialize(LOTTERY_DATA_FILE_NAME))); //每個處理者和folder都會讀寫
+
+	private static final RankIndex rankIndex = new RankIndex(); //依照方塊數排名 讀取排名時才更新
+	private static final Set<LotteryData> rankDirty = ConcurrentHashMap.newKeySet(); //方塊數改變了 還沒移到排名中新位置的使用者
 
-	public static final List<LotteryData> lotteryDataList = new ArrayList<>(lotteryDataMap.values()); //將map轉換為array list
-	//因為每次修改的是LotteryData的內容 而不是參考本身 所以可以事先建好
-	//它唯一的用處是ranking時的排序 相對來說風險比較小 因此直接設成public
+	private static final int STRIPES = 64; //必須是2的次方
+	private static final Object[] locks = new Object[STRIPES]; //依照使用者ID分配的鎖
+	private static final int MISMATCHES_LOGGED = 10; //帳本和資料不符時 最多記錄幾名使用者
+
+	private static final long ACCRUAL_PERIOD = Long.getLong("cartoland.accrual_period", 10L);
+	private static final Map<Long, Accrual> accruals = new ConcurrentHashMap<>(); //說話獲得但還沒加進資料的方塊
+	private static final List<Accrual> retiredAccruals = new ArrayList<>(); //已經移出accruals 下一次還要再結算一次
+	private static final ScheduledExecutorService folder = Executors.newSingleThreadScheduledExecutor(runnable ->
+	{
+		Thread thread = new Thread(runnable, "CommandBlocksHandle");
+		thread.setDaemon(true); //不阻止程式結束
+		return thread;
+	});
+
+	private static final long ROLE_PERIOD = Long.getLong("cartoland.role_period", 60L);
+	private static final long ROLE_PACE_MILLIS = 1000L; //每個身分組請求之間的間隔
+	private static final long ROLE_BATCH = Math.max(ROLE_PERIOD * 1000L / ROLE_PACE_MILLIS, 1L); //一次最多送出的請求 在下一次調整前送完
+	private static final Set<Long> roleDirty = ConcurrentHashMap.newKeySet(); //方塊數跨過GAMBLE_ROLE_MIN 需要檢查身分組的使用者
+	private static boolean roleSwept = false; //是否已經檢查過所有人
+
+	private static final int MEMBERS_PER_CHUNK = 100; //一次向gateway要求的成員數
+	private static final long NAME_PACE_MILLIS = 500L; //每次查詢名字的間隔
+	private static final Queue<Long> namesToRetrieve = new ConcurrentLinkedQueue<>(); //快取中找不到名字的使用者
 
 	static
 	{
 		FileHandle.registerSerialize(LOTTERY_DATA_FILE_NAME, lotteryDataMap);
+		for (int i = 0; i < STRIPES; i++)
+			locks[i] = new Object();
+		boolean openLedger = LedgerHandle.isEmpty(); //新的帳本 要先記下每個人現有的方塊
+		for (LotteryData lotteryData : lotteryDataMap.values()) //建立排名
+		{
+			rankIndex.insert(lotteryData.blocks, lotteryData.userID, lotteryData);
+			lotteryData.rankedBlocks = lotteryData.blocks;
+			if (openLedger && lotteryData.blocks != 0L)
+				LedgerHandle.append(LedgerHandle.OPEN, lotteryData.userID, 0L, lotteryData.blocks, lotteryData.blocks);
+			if (lotteryData.name != null)
+				lotteryData.name = lotteryData.name.intern(); //相同的名字只保留一份
+		}
+		folder.scheduleWithFixedDelay(CommandBlocksHandle::foldAccruals, ACCRUAL_PERIOD, ACCRUAL_PERIOD, TimeUnit.SECONDS);
+		folder.scheduleWithFixedDelay(CommandBlocksHandle::reconcileRoles, ROLE_PERIOD, ROLE_PERIOD, TimeUnit.SECONDS);
+		folder.scheduleWithFixedDelay(CommandBlocksHandle::retrieveNextName, NAME_PACE_MILLIS, NAME_PACE_MILLIS, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * The command blocks that a user gained by talking. {@link #adder} is striped, so threads that add to it don't
+	 * contend with each other. {@link #folded} is only accessed by {@link #foldAccruals()}.
+	 *
+	 * @since 2.2
+	 * @author Alex Cai
+	 */
+	private static class Accrual
+	{
+		private final long userID;
+		private final LongAdder adder = new LongAdder();
+		private long folded = 0L; //已經加進資料的量
+
+		private Accrual(long userID)
+		{
+			this.userID = userID;
+		}
+
+		//把還沒加進資料的方塊加進去 回傳是否有新的方塊
+		private boolean fold()
+		{
+			long sum = adder.sum(); //不重設adder 避免和正在增加的執行緒競爭
+			long add = sum - folded;
+			if (add == 0L) //這段時間沒有說話
+				return false;
+			folded = sum;
+			getLotteryData(userID).addBlocks(add, LedgerHandle.TALK);
+			return true;
+		}
+	}
+
+	/**
+	 * Record that a user gained command blocks. The command blocks will be added into the lottery data of the user in
+	 * the next fold, so this method doesn't change the ranking version or the role of the user.
+	 *
+	 * @param userID The ID of the user.
+	 * @param add The amount of command blocks.
+	 * @since 2.2
+	 * @author Alex Cai
+	 */
+	public static void accrue(long userID, long add)
+	{
+		accruals.computeIfAbsent(userID, Accrual::new).adder.add(add);
+	}
+
+	/**
+	 * Add every accrued command blocks into the lottery data. This method will be called periodically, and in
+	 * {@link cartoland.events.BotOnlineOffline#onShutdown} before the lottery data was serialized. The accrual of a
+	 * user who didn't talk for a whole period is removed, so {@link #accruals} only holds users who talk recently. A
+	 * thread in {@link #accrue(long, long)} might still add to a removed accrual, so it is folded once more in the
+	 * next call. The users whose command blocks changed are also moved to their new places in the ranking.
+	 *
+	 * @since 2.2
+	 * @author Alex Cai
+	 */
+	public static synchronized void foldAccruals()
+	{
+		for (Accrual accrual : retiredAccruals) //移除之後才加上去的方塊
+			accrual.fold();
+		retiredAccruals.clear();
+
+		for (Iterator<Accrual> iterator = accruals.values().iterator(); iterator.hasNext();)
+		{
+			Accrual accrual = iterator.next();
+			if (accrual.fold()) //還在說話
+				continue;
+			iterator.remove(); //一整段時間沒有說話 已經全部加進資料了
+			retiredAccruals.add(accrual);
+		}
+		synchronized (rankIndex) //順便更新排名 讀取排名時就不用移動太多人
+		{
+			syncRanking();
+		}
+		LedgerHandle.flush(); //順便把帳本寫入檔案
+	}
+
+	private static int stripeOf(long userID)
+	{
+		return (int) ((userID * 0x9E3779B97F4A7C15L) >>> (Long.SIZE - Integer.numberOfTrailingZeros(STRIPES))); //雪花ID的低位不平均 先打散
+	}
+
+	/**
+	 * Transfer command blocks from a user to another user, if the command blocks of the sender are still
+	 * {@code expected}. The locks of the two users are held in the order of their stripes, so two transfers in opposite
+	 * directions can't deadlock.
+	 *
+	 * @param from The lottery data of the sender.
+	 * @param to The lottery data of the receiver.
+	 * @param expected The command blocks of the sender that the amount was calculated from.
+	 * @param amount The amount of command blocks to transfer, must not be more than {@code expected}.
+	 * @return true if the command blocks were transferred, false if the command blocks of the sender were changed.
+	 * @since 2.2
+	 * @author Alex Cai
+	 */
+	public static boolean transfer(LotteryData from, LotteryData to, long expected, long amount)
+	{
+		int fromStripe = stripeOf(from.userID);
+		int toStripe = stripeOf(to.userID);
+		synchronized (locks[Math.min(fromStripe, toStripe)]) //永遠先鎖編號小的
+		{
+			synchronized (locks[Math.max(fromStripe, toStripe)]) //同一個鎖的話可以重入
+			{
+				if (from.blocks != expected) //在讀取之後被改變了
+					return false;
+				from.applyBlocks(expected - amount, LedgerHandle.TRANSFER, to.userID);
+				to.applyBlocks(Algorithm.safeAdd(to.blocks, amount), LedgerHandle.TRANSFER, from.userID);
+				return true;
+			}
+		}
+	}
+
+	/**
+	 * Replay {@link LedgerHandle} and check that the balance of every user, and so the total supply, equals to the
+	 * command blocks in the lottery data. A mismatch means that command blocks were changed without the ledger, or the
+	 * ledger lost records, and will be logged. The command blocks and the end of the ledger are taken with every lock
+	 * of {@link #locks}, so that they are at the same moment, and the ledger is read after the locks are released, so
+	 * it can be audited while the bot is running.
+	 *
+	 * @return true if the ledger matches the lottery data.
+	 * @since 2.2
+	 * @author Alex Cai
+	 */
+	public static boolean auditLedger()
+	{
+		Map<Long, Long> blocks = HashMap.newHashMap(lotteryDataMap.size());
+		long end = withEveryLock(0, () -> //每名使用者的方塊數都不能被改變
+		{
+			for (LotteryData lotteryData : lotteryDataMap.values())
+				if (lotteryData.blocks != 0L)
+					blocks.put(lotteryData.userID, lotteryData.blocks);
+			return LedgerHandle.position();
+		});
+
+		Map<Long, Long> balances;
+		try
+		{
+			balances = LedgerHandle.replay(end);
+		}
+		catch (IOException exception)
+		{
+			FileHandle.log(exception);
+			return false;
+		}
+		balances.values().removeIf(balance -> balance == 0L); //和沒有方塊的使用者一樣
+		if (balances.equals(blocks))
+			return true;
+
+		long ledgerSupply = 0L, dataSupply = 0L;
+		for (long balance : balances.values())
+			ledgerSupply += balance;
+		for (long userBlocks : blocks.values())
+			dataSupply += userBlocks;
+		FileHandle.log("ledger mismatch: supply of ledger ", ledgerSupply, ", lottery data ", dataSupply);
+		Set<Long> users = new HashSet<>(balances.keySet());
+		users.addAll(blocks.keySet());
+		int logged = 0;
+		for (long userID : users)
+		{
+			long balance = balances.getOrDefault(userID, 0L), userBlocks = blocks.getOrDefault(userID, 0L);
+			if (balance == userBlocks)
+				continue;
+			FileHandle.log("ledger mismatch: user ", userID, ", ledger ", balance, ", lottery data ", userBlocks);
+			if (++logged == MISMATCHES_LOGGED) //太多了 只記錄前幾名
+				break;
+		}
+		return false;
+	}
+
+	//依照編號持有每一個鎖 和transfer的順序相同 所以不會死結
+	private static <T> T withEveryLock(int stripe, Supplier<T> action)
+	{
+		if (stripe == STRIPES)
+			return action.get();
+		synchronized (locks[stripe])
+		{
+			return withEveryLock(stripe + 1, action);
+		}
+	}
+
+	/**
+	 * Give or take the God of Gamblers role of the users whose command blocks crossed {@link #GAMBLE_ROLE_MIN} since
+	 * the last reconcile. The desired state is compared with the roles in the member cache, so a user who crossed back
+	 * and forth doesn't cause any request, and the requests are paced by {@link #ROLE_PACE_MILLIS}. The first
+	 * reconcile checks every user who has the role or should have it.
+	 *
+	 * @since 2.2
+	 * @author Alex Cai
+	 */
+	private static void reconcileRoles()
+	{
+		Guild cartoland = Cartoland.getJDA().getGuildById(IDs.CARTOLAND_SERVER_ID); //創聯
+		if (cartoland == null) //找不到創聯
+			return;
+		Role godOfGamblersRole = cartoland.getRoleById(IDs.GOD_OF_GAMBLERS_ROLE_ID); //賭神身分組
+		if (godOfGamblersRole == null) //找不到賭神身分組
+			return;
+
+		if (!roleSwept) //剛啟動 不知道之前的身分組是否正確
+		{
+			roleSwept = true;
+			for (Member member : cartoland.getMembersWithRoles(godOfGamblersRole))
+				roleDirty.add(member.getIdLong());
+			for (LotteryData lotteryData : lotteryDataMap.values())
+				if (lotteryData.blocks >= GAMBLE_ROLE_MIN)
+					roleDirty.add(lotteryData.userID);
+		}
+
+		long requests = 0L;
+		for (Iterator<Long> iterator = roleDirty.iterator(); iterator.hasNext() && requests < ROLE_BATCH;)
+		{
+			long userID = iterator.next();
+			iterator.remove();
+			Member member = cartoland.getMemberById(userID); //所有成員都在快取中
+			if (member == null) //不在創聯
+				continue;
+			LotteryData lotteryData = lotteryDataMap.get(userID);
+			boolean shouldHave = lotteryData != null && lotteryData.blocks >= GAMBLE_ROLE_MIN;
+			if (shouldHave == member.getRoles().contains(godOfGamblersRole)) //跨過去又跨回來 不用改變
+				continue;
+			(shouldHave ? cartoland.addRoleToMember(member, godOfGamblersRole) : cartoland.removeRoleFromMember(member, godOfGamblersRole))
+					.queueAfter(requests++ * ROLE_PACE_MILLIS, TimeUnit.MILLISECONDS); //給予或剝奪賭神身分組
+		}
 	}
 
 	/**
@@ -53,24 +332,167 @@ public final class CommandBlocksHandle
 	 */
 	public static LotteryData getLotteryData(long userID)
 	{
-		LotteryData lotteryData = lotteryDataMap.get(userID); //從map中獲得指令方塊資料
-		if (lotteryData != null) //已經有這名玩家
-			return lotteryData;
-
-		//如果沒有記錄這名玩家
-		LotteryData newUser = new LotteryData(userID); //建立新資料
-		lotteryDataMap.put(userID, newUser); //放入這名玩家
-		lotteryDataList.add(newUser); //放入這名玩家
-		Cartoland.getJDA().retrieveUserById(userID).queue(user -> newUser.name = user.getEffectiveName()); //初始化新資料
-		return newUser; //絕不回傳null
+		return lotteryDataMap.computeIfAbsent(userID, id -> //從map中獲得指令方塊資料 沒有記錄這名玩家的話 只會建立一次
+		{
+			LotteryData newUser = new LotteryData(id); //建立新資料
+			rankIndex.insert(0L, id, newUser); //放入排名 其他執行緒拿到這份資料之前就在排名中了
+			rankingVersion.incrementAndGet(); //多了一名
+			User user = Cartoland.getJDA().getUserById(id); //先從快取找名字
+			if (user != null)
+				newUser.setName(user.getEffectiveName()); //初始化新資料
+			else
+				namesToRetrieve.add(id); //之後再找
+			return newUser;
+		}); //絕不回傳null
+	}
+
+	/**
+	 * Get the version of the ranking. The version increases whenever the command blocks or the name of a user changes,
+	 * or a new user joins the ranking.
+	 *
+	 * @return The version of the ranking.
+	 * @since 2.2
+	 * @author Alex Cai
+	 */
+	public static long getRankingVersion()
+	{
+		return rankingVersion.get();
+	}
+
+	/**
+	 * Mark that the ranking was changed, such as a user changed their name, so the pages of {@code /lottery ranking}
+	 * that were rendered before will not be reused.
+	 *
+	 * @since 2.2
+	 * @author Alex Cai
+	 */
+	public static void rankingChanged()
+	{
+		rankingVersion.incrementAndGet();
 	}
 
+	/**
+	 * Get the amount of users in the ranking.
+	 *
+	 * @return The amount of users that have lottery data.
+	 * @since 2.2
+	 * @author Alex Cai
+	 */
+	public static int rankingSize()
+	{
+		return rankIndex.size();
+	}
+
+	/**
+	 * Get the rank of a user, by command blocks. Users that have the same command blocks are ordered by their IDs.
+	 *
+	 * @param lotteryData The lottery data of the user.
+	 * @return The rank of the user, starts from 1.
+	 * @since 2.2
+	 * @author Alex Cai
+	 */
+	public static int rankOf(LotteryData lotteryData)
+	{
+		synchronized (rankIndex)
+		{
+			syncRanking();
+			return rankIndex.rankOf(lotteryData.rankedBlocks, lotteryData.userID); //排名中的方塊數 不是之後才改變的
+		}
+	}
+
+	/**
+	 * Get the lottery data of a range of ranks.
+	 *
+	 * @param from The first rank, starts from 0.
+	 * @param count The maximum amount of users.
+	 * @return The lottery data, the one that has more command blocks comes first.
+	 * @since 2.2
+	 * @author Alex Cai
+	 */
+	public static List<LotteryData> ranking(int from, int count)
+	{
+		synchronized (rankIndex)
+		{
+			syncRanking();
+			return rankIndex.range(from, count);
+		}
+	}
+
+	//把方塊數改變過的使用者移到排名中新的位置 呼叫者必須持有rankIndex的鎖
+	private static void syncRanking()
+	{
+		for (Iterator<LotteryData> iterator = rankDirty.iterator(); iterator.hasNext();)
+		{
+			LotteryData lotteryData = iterator.next();
+			iterator.remove(); //先移除再讀取方塊數 之後才改變的話會再被標記
+			long blocks = lotteryData.blocks;
+			if (blocks == lotteryData.rankedBlocks) //改回原本的數量了
+				continue;
+			rankIndex.remove(lotteryData.rankedBlocks, lotteryData.userID);
+			rankIndex.insert(blocks, lotteryData.userID, lotteryData);
+			lotteryData.rankedBlocks = blocks;
+		}
+	}
+
+	/**
+	 * Refresh the names of every user. Names are taken from the member cache of Cartoland first, then the members that
+	 * aren't cached are requested through the gateway in chunks of {@link #MEMBERS_PER_CHUNK}, and only the users
+	 * who aren't members are retrieved one by one, paced by {@link #NAME_PACE_MILLIS}.
+	 *
+	 * @since 2.0
+	 * @author Alex Cai
+	 */
 	public static void initial()
 	{
-		JDA jda = Cartoland.getJDA();
-		for (Map.Entry<Long, LotteryData> idAndData : lotteryDataMap.entrySet()) //找到每位使用者
-			jda.retrieveUserById(idAndData.getKey()).queue(user -> idAndData.getValue().name = user.getEffectiveName()); //更新名字
-		changed = true;
+		Guild cartoland = Cartoland.getJDA().getGuildById(IDs.CARTOLAND_SERVER_ID); //創聯
+		List<Long> notCached = new ArrayList<>();
+		for (LotteryData lotteryData : lotteryDataMap.values()) //找到每位使用者
+		{
+			Member member = cartoland != null ? cartoland.getMemberById(lotteryData.userID) : null;
+			if (member != null) //快取裡就有
+				lotteryData.setName(member.getUser().getEffectiveName()); //更新名字
+			else
+				notCached.add(lotteryData.userID);
+		}
+
+		if (cartoland == null) //找不到創聯 只能一個一個找
+		{
+			namesToRetrieve.addAll(notCached);
+			return;
+		}
+		for (int i = 0, size = notCached.size(); i < size; i += MEMBERS_PER_CHUNK)
+		{
+			List<Long> chunk = notCached.subList(i, Math.min(i + MEMBERS_PER_CHUNK, size));
+			cartoland.retrieveMembersByIds(chunk).onSuccess(members ->
+			{
+				Set<Long> found = HashSet.newHashSet(members.size());
+				for (Member member : members)
+				{
+					found.add(member.getIdLong());
+					getLotteryData(member.getIdLong()).setName(member.getUser().getEffectiveName());
+				}
+				for (long userID : chunk)
+					if (!found.contains(userID)) //已經不在創聯了
+						namesToRetrieve.add(userID);
+			}).onError(exception -> namesToRetrieve.addAll(chunk));
+		}
+	}
+
+	/**
+	 * Retrieve the name of one user in {@link #namesToRetrieve}. This method will be called every
+	 * {@link #NAME_PACE_MILLIS} milliseconds, so names of users who aren't cached don't flood the REST API.
+	 *
+	 * @since 2.2
+	 * @author Alex Cai
+	 */
+	private static void retrieveNextName()
+	{
+		Long userID = namesToRetrieve.poll();
+		if (userID == null) //沒有要找的
+			return;
+		LotteryData lotteryData = getLotteryData(userID);
+		Cartoland.getJDA().retrieveUserById(userID).queue(user -> lotteryData.setName(user.getEffectiveName()),
+				exception -> FileHandle.log(exception));
 	}
 
 	/**
@@ -87,7 +509,8 @@ public final class CommandBlocksHandle
 		public static final long YEARLY = 10000L;
 		private String name; //名字
 		private final long userID;
-		private long blocks; //方塊數
+		private volatile long blocks; //方塊數 在使用者的鎖中寫入 不用鎖就能讀取
+		private transient long rankedBlocks; //在rankIndex中的方塊數 在rankIndex的鎖中讀寫
 		private int betWon; //勝場
 		private int betLost; //敗場
 		private int betShowHandWon; //梭哈勝
@@ -118,9 +541,21 @@ public final class CommandBlocksHandle
 			streak = 0;
 		}
 
+		/**
+		 * Set the name of the user. The name is interned, since users often have the same name, and the ranking is
+		 * marked as changed.
+		 *
+		 * @param newName The new name of the user.
+		 * @since 2.0
+		 * @author Alex Cai
+		 */
 		public void setName(String newName)
 		{
-			name = newName;
+			String internedName = newName.intern();
+			if (internedName == name) //名字沒變
+				return;
+			name = internedName;
+			rankingVersion.incrementAndGet(); //排名上的名字改變了
 		}
 
 		public String getName()
@@ -128,17 +563,26 @@ public final class CommandBlocksHandle
 			return name;
 		}
 
+		public long getUserID()
+		{
+			return userID;
+		}
+
 		/**
 		 * Add command blocks to the user. This method calls {@link Algorithm#safeAdd(long, long)} in
 		 * order to add without overflow.
 		 *
 		 * @param add The amount of command blocks that are going to add on this user.
+		 * @param reason The reason in {@link LedgerHandle}, such as {@link LedgerHandle#REWARD}.
 		 * @since 2.0
 		 * @author Alex Cai
 		 */
-		public void addBlocks(long add)
+		public void addBlocks(long add, String reason)
 		{
-			setBlocks(Algorithm.safeAdd(blocks, add));
+			synchronized (locks[stripeOf(userID)])
+			{
+				applyBlocks(Algorithm.safeAdd(blocks, add), reason, 0L);
+			}
 		}
 
 		/**
@@ -150,29 +594,44 @@ public final class CommandBlocksHandle
 		 */
 		public void setBlocks(long newValue)
 		{
-			changed = true; //指令方塊改變過了
+			synchronized (locks[stripeOf(userID)])
+			{
+				applyBlocks(newValue, LedgerHandle.SET, 0L);
+			}
+		}
 
+		/**
+		 * Set command blocks to the user, if the command blocks are still {@code expected}.
+		 *
+		 * @param expected The command blocks that {@code newValue} was calculated from.
+		 * @param newValue The amount of command blocks that are going to set on this user.
+		 * @param reason The reason in {@link LedgerHandle}, such as {@link LedgerHandle#BET}.
+		 * @return true if the command blocks were set, false if they were changed by others after being read.
+		 * @since 2.2
+		 * @author Alex Cai
+		 */
+		public boolean compareAndSetBlocks(long expected, long newValue, String reason)
+		{
+			synchronized (locks[stripeOf(userID)])
+			{
+				if (blocks != expected) //在讀取之後被改變了
+					return false;
+				applyBlocks(newValue, reason, 0L);
+				return true;
+			}
+		}
+
+		//呼叫者必須持有這名使用者的鎖
+		private void applyBlocks(long newValue, String reason, long otherID)
+		{
 			long oldValue = blocks; //更新方塊前的方塊數量
 			blocks = newValue; //更新方塊
+			rankDirty.add(this); //讀取排名時才移動 不在使用者的鎖中等待rankIndex
+			rankingVersion.incrementAndGet(); //指令方塊改變過了
+			LedgerHandle.append(reason, userID, otherID, newValue - oldValue, newValue); //記帳
 
-			boolean less = newValue < GAMBLE_ROLE_MIN; //true = 新值依舊比GAMBLE_ROLE_MIN少
-			if (oldValue < GAMBLE_ROLE_MIN == less) //沒有跨過GAMBLE_ROLE_MIN
-				return;
-
-			Guild cartoland = Cartoland.getJDA().getGuildById(IDs.CARTOLAND_SERVER_ID); //創聯
-			if (cartoland == null) //找不到創聯
-				return;
-			cartoland.retrieveMemberById(userID).queue(member -> //根據userID 從創聯中找到這名成員
-			{
-				Role godOfGamblersRole = cartoland.getRoleById(IDs.GOD_OF_GAMBLERS_ROLE_ID); //賭神身分組
-				if (godOfGamblersRole == null) //找不到賭神身分組
-					return;
-				boolean hasRole = member.getRoles().contains(godOfGamblersRole);
-				if (!less && !hasRole) //大於等於GAMBLE_ROLE_MIN 且沒有身分組
-					cartoland.addRoleToMember(member, godOfGamblersRole).queue(); //給予賭神身分組
-				else if (less && hasRole) //小於GAMBLE_ROLE_MIN 且有身分組
-					cartoland.removeRoleFromMember(member, godOfGamblersRole).queue(); //剝奪賭神身分組
-			});
+			if (oldValue < GAMBLE_ROLE_MIN != newValue < GAMBLE_ROLE_MIN) //跨過了GAMBLE_ROLE_MIN
+				roleDirty.add(userID); //下次調整身分組時檢查
 		}
 
 		public long getBlocks()
@@ -223,34 +682,82 @@ public final class CommandBlocksHandle
 		public void addGame(boolean isWon, boolean isShowHand)
 		{
 			//這是/lottery bet的
-			if (isWon)
-			{
-				betWon++;
-				if (isShowHand)
-					betShowHandWon++;
-			}
-			else
+			synchronized (locks[stripeOf(userID)])
 			{
-				betLost++;
-				if (isShowHand)
-					betShowHandLost++;
+				if (isWon)
+				{
+					betWon++;
+					if (isShowHand)
+						betShowHandWon++;
+				}
+				else
+				{
+					betLost++;
+					if (isShowHand)
+						betShowHandLost++;
+				}
 			}
 		}
 
 		public void addSlot(boolean isWon, boolean isShowHand)
 		{
 			//這是/lottery slot的
-			if (isWon)
+			synchronized (locks[stripeOf(userID)])
 			{
-				slotWon++;
-				if (isShowHand)
-					slotShowHandWon++;
+				if (isWon)
+				{
+					slotWon++;
+					if (isShowHand)
+						slotShowHandWon++;
+				}
+				else
+				{
+					slotLost++;
+					if (isShowHand)
+						slotShowHandLost++;
+				}
 			}
-			else
+		}
+
+		/**
+		 * Record the results of several rounds of {@code /lottery bet} at once.
+		 *
+		 * @param won The rounds that the user won.
+		 * @param lost The rounds that the user lost.
+		 * @param showHandWon The rounds that the user won with all command blocks.
+		 * @param showHandLost The rounds that the user lost with all command blocks.
+		 * @since 2.2
+		 * @author Alex Cai
+		 */
+		public void addGames(int won, int lost, int showHandWon, int showHandLost)
+		{
+			synchronized (locks[stripeOf(userID)])
 			{
-				slotLost++;
-				if (isShowHand)
-					slotShowHandLost++;
+				betWon += won;
+				betLost += lost;
+				betShowHandWon += showHandWon;
+				betShowHandLost += showHandLost;
+			}
+		}
+
+		/**
+		 * Record the results of several rounds of {@code /lottery slot} at once.
+		 *
+		 * @param won The rounds that the user won.
+		 * @param lost The rounds that the user lost.
+		 * @param showHandWon The rounds that the user won with all command blocks.
+		 * @param showHandLost The rounds that the user lost with all command blocks.
+		 * @since 2.2
+		 * @author Alex Cai
+		 */
+		public void addSlots(int won, int lost, int showHandWon, int showHandLost)
+		{
+			synchronized (locks[stripeOf(userID)])
+			{
+				slotWon += won;
+				slotLost += lost;
+				slotShowHandWon += showHandWon;
+				slotShowHandLost += showHandLost;
 			}
 		}
 
@@ -265,45 +772,51 @@ public final class CommandBlocksHandle
 		 */
 		public boolean tryClaimDaily(byte[] until)
 		{
-			long nowSecond = System.currentTimeMillis() / 1000L; //現在距離1970/1/1有幾秒
-			long difference = nowSecond - lastClaimSecond; //和上次領的時間差
-			if (difference < 60 * 60 * 24) //時間小於一天 86400秒
+			synchronized (locks[stripeOf(userID)]) //同一名使用者不能同時領取
 			{
-				//不超過一天
-				int secondsUntil = 60 * 60 * 24 - (int) difference;
-				until[0] = (byte) (secondsUntil / (60 * 60)); //小時
-				until[1] = (byte) ((secondsUntil / 60) % 60); //分鐘
-				until[2] = (byte) (secondsUntil % 60); //秒
-				return false; //時間還沒到 不能領取
+				long nowSecond = System.currentTimeMillis() / 1000L; //現在距離1970/1/1有幾秒
+				long difference = nowSecond - lastClaimSecond; //和上次領的時間差
+				if (difference < 60 * 60 * 24) //時間小於一天 86400秒
+				{
+					//不超過一天
+					int secondsUntil = 60 * 60 * 24 - (int) difference;
+					until[0] = (byte) (secondsUntil / (60 * 60)); //小時
+					until[1] = (byte) ((secondsUntil / 60) % 60); //分鐘
+					until[2] = (byte) (secondsUntil % 60); //秒
+					return false; //時間還沒到 不能領取
+				}
+
+				addBlocks(DAILY, LedgerHandle.DAILY); //增加每日獎勵
+				lastClaimSecond = nowSecond; //最後一次領的時間為現在
+				if (difference >= 60 * 60 * 24 * 2) //大於兩天 代表超過48小時沒領了
+					streak = 0; //連續歸零
+				streak++; //+1 連續領
+				return true;
 			}
-
-			addBlocks(DAILY); //增加每日獎勵
-			lastClaimSecond = nowSecond; //最後一次領的時間為現在
-			if (difference >= 60 * 60 * 24 * 2) //大於兩天 代表超過48小時沒領了
-				streak = 0; //連續歸零
-			streak++; //+1 連續領
-			return true;
 		}
 
 		@SuppressWarnings("AssignmentUsedAsCondition")
 		public boolean tryClaimBonus(boolean[] bonus)
 		{
-			long addBonus = 0L; //獎勵的額外指令方塊
-
-			if (bonus[0] = (streak % 7 == 0)) //一週
-				addBonus += WEEKLY;
-			if (bonus[1] = (streak % 30 == 0)) //一個月
-				addBonus += MONTHLY;
-			if (bonus[2] = (streak % 365 == 0)) //一年
-				addBonus += YEARLY;
-
-			if (addBonus != 0L) //有獎勵
+			synchronized (locks[stripeOf(userID)])
 			{
-				addBlocks(addBonus); //增加方塊
-				return true;
+				long addBonus = 0L; //獎勵的額外指令方塊
+
+				if (bonus[0] = (streak % 7 == 0)) //一週
+					addBonus += WEEKLY;
+				if (bonus[1] = (streak % 30 == 0)) //一個月
+					addBonus += MONTHLY;
+				if (bonus[2] = (streak % 365 == 0)) //一年
+					addBonus += YEARLY;
+
+				if (addBonus != 0L) //有獎勵
+				{
+					addBlocks(addBonus, LedgerHandle.DAILY); //增加方塊
+					return true;
+				}
+				else
+					return false;
 			}
-			else
-				return false;
 		}
 
 		public int getStreak()
@@ -0,0 +1,197 @@
+package cartoland.utilities;
+
+import java.time.LocalDate;
+
+/**
+ * {@code CronExpression} is a compiled cron expression of 5 fields: minute, hour, day of month, month and day of week,
+ * in the time zone of UTC+8. Every field supports {@code *}, numbers, ranges {@code a-b}, steps {@code /n} and lists
+ * separated by {@code ,}. Day of week is from 0 to 7, both 0 and 7 are Sunday. Same as cron, if both day of month and
+ * day of week are restricted, a day matches either of them. The fields are compiled to bit sets, so finding the next
+ * minute only checks each day once and finds the hour and the minute by bit operations.
+ *
+ * @since 2.2
+ * @author Alex Cai
+ */
+public final class CronExpression
+{
+	private static final long MINUTES_PER_DAY = 24 * 60;
+	private static final long UTC8_OFFSET = 8 * 60; //UTC+8比UTC快8小時
+	private static final int MAX_SEARCH_DAYS = 366 * 8 + 1; //8年內一定有2月29日 再找下去也不會符合了
+	private static final int ALL_DAYS = -1 << 1; //1 ~ 31
+	private static final int ALL_MONTHS = ((1 << 12) - 1) << 1; //1 ~ 12
+	private static final int ALL_WEEKDAYS = (1 << 7) - 1; //0 ~ 6
+
+	private final String expression;
+	private final long minutes; //第幾位元代表第幾分
+	private final int hours;
+	private final int days; //1 ~ 31
+	private final int months; //1 ~ 12
+	private final int weekdays; //0 ~ 6 0是星期日
+	private final boolean everyDay; //日是*
+	private final boolean everyWeekday; //星期是*
+
+	private CronExpression(String expression, long minutes, int hours, int days, int months, int weekdays, boolean everyDay, boolean everyWeekday)
+	{
+		this.expression = expression;
+		this.minutes = minutes;
+		this.hours = hours;
+		this.days = days;
+		this.months = months;
+		this.weekdays = weekdays;
+		this.everyDay = everyDay;
+		this.everyWeekday = everyWeekday;
+	}
+
+	/**
+	 * Compile a cron expression.
+	 *
+	 * @param expression The expression, such as {@code 30 8 * * 1-5}.
+	 * @return The compiled expression.
+	 * @throws IllegalArgumentException If the expression doesn't have 5 fields, or a field is out of range.
+	 * @since 2.2
+	 * @author Alex Cai
+	 */
+	public static CronExpression compile(String expression)
+	{
+		String[] fields = expression.trim().split("\\s+");
+		if (fields.length != 5)
+			throw new IllegalArgumentException("A cron expression must have 5 fields: " + expression);
+
+		int weekdays = (int) parseField(fields[4], 0, 7);
+		if ((weekdays & (1 << 7)) != 0) //7也是星期日
+			weekdays = (weekdays | 1) & ~(1 << 7);
+		return new CronExpression(String.join(" ", fields),
+				parseField(fields[0], 0, 59),
+				(int) parseField(fields[1], 0, 23),
+				(int) parseField(fields[2], 1, 31),
+				(int) parseField(fields[3], 1, 12),
+				weekdays,
+				fields[2].startsWith("*"),
+				fields[4].startsWith("*"));
+	}
+
+	/**
+	 * Find the next minute that matches the expression.
+	 *
+	 * @param afterMinute The minute since 1970, which is not included.
+	 * @return The next minute since 1970 that matches, or {@link Long#MAX_VALUE} if it never matches, such as
+	 * {@code 0 0 30 2 *}.
+	 * @since 2.2
+	 * @author Alex Cai
+	 */
+	public long next(long afterMinute)
+	{
+		long local = afterMinute + 1 + UTC8_OFFSET;
+		long day = Math.floorDiv(local, MINUTES_PER_DAY);
+		int fromMinute = (int) Math.floorMod(local, MINUTES_PER_DAY); //只有第一天要從這分鐘開始找
+		for (int i = 0; i < MAX_SEARCH_DAYS; i++, day++, fromMinute = 0)
+		{
+			if (!matchesDay(LocalDate.ofEpochDay(day)))
+				continue;
+			int minuteOfDay = firstMinute(fromMinute);
+			if (minuteOfDay != -1) //這一天還有符合的時間
+				return day * MINUTES_PER_DAY + minuteOfDay - UTC8_OFFSET;
+		}
+		return Long.MAX_VALUE;
+	}
+
+	/**
+	 * Check if the expression matches exactly once every day, such as {@code 30 8 * * *} or {@code 0 12 1-31 * 0-6}.
+	 * Expressions such as {@code 0/5 * * * *} or {@code 0 8 * * 1-5} are not daily.
+	 *
+	 * @return true if the minute and the hour are single values, and every day of every month and every day of week
+	 * match.
+	 * @since 2.2
+	 * @author Alex Cai
+	 */
+	public boolean isDaily()
+	{
+		return Long.bitCount(minutes) == 1 && Integer.bitCount(hours) == 1 && months == ALL_MONTHS &&
+				(everyDay || everyWeekday ? days == ALL_DAYS && weekdays == ALL_WEEKDAYS : days == ALL_DAYS || weekdays == ALL_WEEKDAYS); //和matchesDay相同的規則
+	}
+
+	@Override
+	public String toString()
+	{
+		return expression;
+	}
+
+	private boolean matchesDay(LocalDate date)
+	{
+		if ((months & (1 << date.getMonthValue())) == 0)
+			return false;
+		boolean dayMatches = (days & (1 << date.getDayOfMonth())) != 0;
+		boolean weekdayMatches = (weekdays & (1 << (date.getDayOfWeek().getValue() % 7))) != 0; //星期日是7 轉成0
+		return everyDay || everyWeekday ? dayMatches && weekdayMatches : dayMatches || weekdayMatches; //兩個都有限制時 符合其中一個就好
+	}
+
+	//一天之中 從fromMinute開始第一個符合的分鐘 沒有就回傳-1
+	private int firstMinute(int fromMinute)
+	{
+		int hour = fromMinute / 60;
+		if ((hours & (1 << hour)) != 0) //這個小時符合 找剩下的分鐘
+		{
+			long restMinutes = minutes & (-1L << (fromMinute % 60));
+			if (restMinutes != 0L)
+				return hour * 60 + Long.numberOfTrailingZeros(restMinutes);
+		}
+		int laterHours = hours & (-1 << (hour + 1)); //之後的小時
+		return laterHours != 0 ? Integer.numberOfTrailingZeros(laterHours) * 60 + Long.numberOfTrailingZeros(minutes) : -1;
+	}
+
+	private static long parseField(String field, int min, int max)
+	{
+		long bits = 0L;
+		for (String part : field.split(","))
+		{
+			int step = 1;
+			int slash = part.indexOf('/');
+			if (slash != -1)
+			{
+				step = parseNumber(part.substring(slash + 1), 1, max, field);
+				part = part.substring(0, slash);
+			}
+
+			int from, to;
+			if (part.equals("*"))
+			{
+				from = min;
+				to = max;
+			}
+			else
+			{
+				int dash = part.indexOf('-');
+				if (dash != -1) //a-b
+				{
+					from = parseNumber(part.substring(0, dash), min, max, field);
+					to = parseNumber(part.substring(dash + 1), from, max, field);
+				}
+				else
+				{
+					from = parseNumber(part, min, max, field);
+					to = slash != -1 ? max : from; //a/n 代表從a開始每n個
+				}
+			}
+
+			for (int value = from; value <= to; value += step)
+				bits |= 1L << value;
+		}
+		return bits;
+	}
+
+	private static int parseNumber(String number, int min, int max, String field)
+	{
+		int value;
+		try
+		{
+			value = Integer.parseInt(number);
+		}
+		catch (NumberFormatException exception)
+		{
+			throw new IllegalArgumentException("Not a number in cron field: " + field, exception);
+		}
+		if (value < min || value > max)
+			throw new IllegalArgumentException("Cron field out of range " + min + '-' + max + ": " + field);
+		return value;
+	}
+}
@@ -0,0 +1,497 @@
+package cartoland.utilities;
+
+import net.dv8tion.jda.api.events.interaction.command.MessageContextInteractionEvent;
+import net.dv8tion.jda.api.events.interaction.command.SlashCommandInteractionEvent;
+import net.dv8tion.jda.api.interactions.Interaction;
+import net.dv8tion.jda.api.interactions.InteractionHook;
+import net.dv8tion.jda.api.interactions.callbacks.IReplyCallback;
+import net.dv8tion.jda.api.requests.RestAction;
+import net.dv8tion.jda.api.requests.restaction.interactions.ReplyCallbackAction;
+import net.dv8tion.jda.api.utils.messages.MessageCreateBuilder;
+import net.dv8tion.jda.api.utils.messages.MessageCreateData;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * {@code DeferHandle} is a utility class that watches how interactions are replied. Discord only waits 3 seconds for
+ * the first reply of an interaction. For slash commands and message context menus,
+ * {@link #watch(SlashCommandInteractionEvent, String, boolean)} arms a timer, and the handler gets a wrapped event. If
+ * the handler hasn't replied within {@link #BUDGET_MILLIS} (can be changed by {@code -Dcartoland.defer_budget=}), the
+ * timer defers the reply with the ephemeral state that the command usually replies with, and every reply the handler
+ * makes after that is sent through {@link InteractionHook} instead. Handlers don't need to know whether they were
+ * rescued, they keep calling {@code event.reply(...)}. Other interactions, such as buttons and auto complete, are
+ * watched by {@link #watch(Interaction, String)}, which only counts and logs late replies, because a button might reply
+ * with a modal, and auto complete can't be deferred. The time to the first reply and the time of each reply request
+ * are recorded by {@link MetricsHandle}, from the REST requests that carry the token of the interaction. Can not be
+ * instantiated or inherited.
+ *
+ * @since 2.2
+ * @author Alex Cai
+ */
+public final class DeferHandle
+{
+	private DeferHandle()
+	{
+		throw new AssertionError(IDs.YOU_SHALL_NOT_ACCESS);
+	}
+
+	private static final long BUDGET_MILLIS = Long.getLong("cartoland.defer_budget", 2000L); //超過這個時間還沒回覆 就自動deferReply
+	private static final long SETTLE_MILLIS = 10L * 1000; //處理者結束後 等待非同步回覆的時間
+	private static final long TOKEN_MILLIS = 15L * 60 * 1000; //互動的token在15分鐘後過期 之後不會再有回覆
+
+	private static final int OPEN = 0; //還沒回覆
+	private static final int REPLIED = 1; //處理者自己回覆了
+	private static final int DEFERRED = 2; //計時器幫忙deferReply了
+
+	private static final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(runnable ->
+	{
+		Thread thread = new Thread(runnable, "DeferHandle");
+		thread.setDaemon(true); //不阻止程式結束
+		return thread;
+	});
+	private static final Map<String, Watch> watches = new ConcurrentHashMap<>(); //互動的token為key 互動的狀態為value
+	private static final Map<String, LongAdder> lateReplies = new ConcurrentHashMap<>(); //名稱為key 超過時間還沒回覆的次數為value
+	private static final Map<String, LongAdder> rescues = new ConcurrentHashMap<>(); //名稱為key 被自動deferReply的次數為value
+
+	/**
+	 * Arm a timer for a slash command interaction, which defers the reply if the handler is too slow.
+	 *
+	 * @param event The event that carries information of the user and the command.
+	 * @param name The name that the metrics and rescues will be recorded as, see {@link MetricsHandle#commandName}.
+	 * @param ephemeral The ephemeral state that the command usually replies with, the timer defers with it.
+	 * @return An event that should be passed to the handler instead of the original event.
+	 * @since 2.2
+	 * @author Alex Cai
+	 */
+	public static SlashCommandInteractionEvent watch(SlashCommandInteractionEvent event, String name, boolean ephemeral)
+	{
+		return new WatchedSlashCommandEvent(event, arm(new Watch(name, event.getInteraction(), event.getInteraction(), ephemeral)));
+	}
+
+	/**
+	 * Arm a timer for a message context menu interaction, which defers the reply if the handler is too slow.
+	 *
+	 * @param event The event that carries information of the user and the target message.
+	 * @param name The name that the metrics and rescues will be recorded as.
+	 * @param ephemeral The ephemeral state that the context menu usually replies with, the timer defers with it.
+	 * @return An event that should be passed to the handler instead of the original event.
+	 * @since 2.2
+	 * @author Alex Cai
+	 */
+	public static MessageContextInteractionEvent watch(MessageContextInteractionEvent event, String name, boolean ephemeral)
+	{
+		return new WatchedMessageContextEvent(event, arm(new Watch(name, event.getInteraction(), event.getInteraction(), ephemeral)));
+	}
+
+	/**
+	 * Arm a timer for an interaction that can't be deferred automatically, and start to record the REST requests that
+	 * reply to it. If it isn't acknowledged within the budget, it is only counted and logged.
+	 *
+	 * @param interaction The interaction, such as a button, a modal or an auto complete.
+	 * @param name The name that the metrics and late replies will be recorded as.
+	 * @since 2.2
+	 * @author Alex Cai
+	 */
+	public static void watch(Interaction interaction, String name)
+	{
+		arm(new Watch(name, interaction, null, false));
+	}
+
+	private static Watch arm(Watch watch)
+	{
+		String token = watch.interaction.getToken();
+		if (token != null) //重播的假互動沒有token
+			watches.put(token, watch);
+		timer.schedule(() ->
+		{
+			watch.check();
+			if (token != null)
+				timer.schedule(() -> watches.remove(token, watch), TOKEN_MILLIS - BUDGET_MILLIS, TimeUnit.MILLISECONDS);
+		}, BUDGET_MILLIS, TimeUnit.MILLISECONDS);
+		return watch;
+	}
+
+	/**
+	 * Tell that the handler of a watched event has returned. If the timer deferred the reply and the handler hasn't
+	 * replied yet, the deferred reply is deleted after {@link #SETTLE_MILLIS}, so that it won't stay "thinking" until
+	 * the token expires. Replies that the handler queued in callbacks can still arrive in time.
+	 *
+	 * @param event The event returned by one of the {@code watch} methods.
+	 * @since 2.2
+	 * @author Alex Cai
+	 */
+	public static void handled(Object event)
+	{
+		if (!(event instanceof Watched watched))
+			return;
+		Watch watch = watched.watch();
+		if (watch.state.get() == DEFERRED && !watch.routed.get()) //計時器deferReply了 處理者卻還沒回覆
+			timer.schedule(watch::settle, SETTLE_MILLIS, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Check if an interaction wasn't acknowledged within the budget.
+	 *
+	 * @param interaction The interaction that was watched.
+	 * @return true if the timer found the interaction not acknowledged, including the ones it deferred, false if it was
+	 * acknowledged in time, the timer hasn't checked it yet, or it isn't watched.
+	 * @since 2.2
+	 * @author Alex Cai
+	 */
+	public static boolean isLate(Interaction interaction)
+	{
+		String token = interaction.getToken();
+		Watch watch = token != null ? watches.get(token) : null;
+		return watch != null && watch.late;
+	}
+
+	/**
+	 * Get how many times each name wasn't acknowledged within the budget.
+	 *
+	 * @return A snapshot of the counts, sorted by names.
+	 * @since 2.2
+	 * @author Alex Cai
+	 */
+	public static Map<String, Long> getLateReplies()
+	{
+		Map<String, Long> snapshot = new TreeMap<>();
+		lateReplies.forEach((name, count) -> snapshot.put(name, count.sum()));
+		return snapshot;
+	}
+
+	/**
+	 * Check if the reply of an interaction was deferred automatically.
+	 *
+	 * @param interaction The interaction that was watched.
+	 * @return true if the timer deferred the reply, false if the handler replied in time or it can't be deferred
+	 * automatically.
+	 * @since 2.2
+	 * @author Alex Cai
+	 */
+	public static boolean isDeferred(Interaction interaction)
+	{
+		String token = interaction.getToken();
+		Watch watch = token != null ? watches.get(token) : null;
+		return watch != null && watch.state.get() == DEFERRED;
+	}
+
+	/**
+	 * Get how many times each name needed to be deferred automatically.
+	 *
+	 * @return A snapshot of the counts, sorted by names.
+	 * @since 2.2
+	 * @author Alex Cai
+	 */
+	public static Map<String, Long> getRescues()
+	{
+		Map<String, Long> snapshot = new TreeMap<>();
+		rescues.forEach((name, count) -> snapshot.put(name, count.sum()));
+		return snapshot;
+	}
+
+	/**
+	 * Find the watched interaction that a REST request replies to, and record the time to its first reply. This
+	 * method will be called by the interceptor of {@link MetricsHandle#restInterceptor()} before every request.
+	 *
+	 * @param pathSegments The segments of the path of the request, such as
+	 * {@code [api, v10, interactions, id, token, callback]} or {@code [api, v10, webhooks, application id, token]}.
+	 * @return The name of the interaction, or null if the request doesn't reply to a watched interaction.
+	 * @since 2.2
+	 * @author Alex Cai
+	 */
+	static String replySent(List<String> pathSegments)
+	{
+		for (int i = 0, end = pathSegments.size() - 2; i < end; i++)
+		{
+			String segment = pathSegments.get(i);
+			if (!"interactions".equals(segment) && !"webhooks".equals(segment))
+				continue;
+			Watch watch = watches.get(pathSegments.get(i + 2)); //兩種路徑的token都在第三段
+			if (watch == null) //不是被監視的互動 例如一般的webhook
+				return null;
+			if (watch.firstReplied.compareAndSet(false, true)) //只記錄第一次
+				MetricsHandle.record(watch.name, MetricsHandle.Stage.FIRST_REPLY, watch.startNanos, false);
+			return watch.name;
+		}
+		return null;
+	}
+
+	/**
+	 * The state of an interaction, shared by the timer, the handler and the REST requests.
+	 *
+	 * @since 2.2
+	 * @author Alex Cai
+	 */
+	private static class Watch
+	{
+		private final String name;
+		private final Interaction interaction;
+		private final IReplyCallback callback; //null代表不能自動deferReply
+		private final boolean ephemeral; //自動deferReply時的隱藏狀態
+		private final long startNanos = System.nanoTime(); //收到事件的時間
+		private final AtomicInteger state = new AtomicInteger(OPEN);
+		private final AtomicBoolean firstReplied = new AtomicBoolean(false);
+		private final AtomicBoolean routed = new AtomicBoolean(false); //自動deferReply後 處理者回覆過了
+		private volatile boolean late = false;
+
+		private Watch(String name, Interaction interaction, IReplyCallback callback, boolean ephemeral)
+		{
+			this.name = name;
+			this.interaction = interaction;
+			this.callback = callback;
+			this.ephemeral = ephemeral;
+		}
+
+		private void check()
+		{
+			if (callback == null)
+			{
+				if (interaction.isAcknowledged()) //已經回覆或deferReply了
+					return;
+				late = true;
+				lateReplies.computeIfAbsent(name, key -> new LongAdder()).increment();
+				FileHandle.log("interaction not acknowledged in ", BUDGET_MILLIS, "ms: ", name); //應該在慢的地方加上deferReply
+				return;
+			}
+
+			if (!state.compareAndSet(OPEN, DEFERRED)) //處理者已經回覆了
+				return;
+			late = true;
+			callback.deferReply(ephemeral).queue(); //延後回覆 之後的回覆都會透過hook送出
+			rescues.computeIfAbsent(name, key -> new LongAdder()).increment();
+			FileHandle.log("interaction deferred after ", BUDGET_MILLIS, "ms: ", name);
+		}
+
+		/**
+		 * Decide which way a reply should go when the handler sends it.
+		 *
+		 * @return true if the reply can be sent as the interaction response, false if it needs to go through the hook.
+		 */
+		private boolean claim()
+		{
+			if (state.compareAndSet(OPEN, REPLIED)) //搶在計時器之前
+				return true;
+			return state.get() == REPLIED; //第二次回覆就讓JDA自己擲出例外
+		}
+
+		/**
+		 * Send a reply of the handler through the hook, after the timer deferred the reply.
+		 *
+		 * @param message The reply, or null if the handler only wanted to defer.
+		 * @param replyEphemeral The ephemeral state that the handler set on the reply.
+		 * @return The action that sends the reply, or null if nothing needs to be sent.
+		 */
+		private RestAction<InteractionHook> route(MessageCreateData message, boolean replyEphemeral)
+		{
+			InteractionHook hook = callback.getHook();
+			boolean first = routed.compareAndSet(false, true);
+			if (!first || replyEphemeral == ephemeral) //第一則後續訊息會取代「思考中」 隱藏狀態和deferReply時相同
+				return message != null ? hook.sendMessage(message).setEphemeral(replyEphemeral).map(sent -> hook) : null;
+
+			//隱藏狀態在deferReply時就決定了 只能刪掉「思考中」 再用處理者的隱藏狀態送出
+			hook.setEphemeral(replyEphemeral); //處理者之後直接透過hook送的訊息也一樣
+			if (message == null) //處理者只是想要deferReply 之後會自己透過hook回覆
+			{
+				hook.deleteOriginal().queue();
+				return null;
+			}
+			return hook.deleteOriginal().flatMap(deleted -> hook.sendMessage(message).setEphemeral(replyEphemeral)).map(sent -> hook);
+		}
+
+		private void settle()
+		{
+			if (routed.get()) //處理者在回呼中回覆了
+				return;
+			callback.getHook().deleteOriginal().queue(); //不要一直「思考中」
+			FileHandle.log("deferred reply deleted, the handler never replied: ", name);
+		}
+	}
+
+	/**
+	 * The {@link ReplyCallbackAction} that handlers get from {@code event.reply(...)} of a watched event. Every builder
+	 * method is applied to the real action right away, and the proxy is returned instead of the real action, so that
+	 * the handler keeps calling the proxy. When the handler queues the action, it either goes out as the interaction
+	 * response, or is rebuilt from the real action and sent through the hook if the timer deferred first.
+	 *
+	 * @since 2.2
+	 * @author Alex Cai
+	 */
+	private static class RoutedReply implements InvocationHandler
+	{
+		private final Watch watch;
+		private final ReplyCallbackAction real;
+		private boolean ephemeral = false;
+
+		private RoutedReply(Watch watch, ReplyCallbackAction real)
+		{
+			this.watch = watch;
+			this.real = real;
+		}
+
+		private static ReplyCallbackAction proxy(Watch watch, ReplyCallbackAction real)
+		{
+			return (ReplyCallbackAction) Proxy.newProxyInstance(ReplyCallbackAction.class.getClassLoader(),
+					new Class<?>[] { ReplyCallbackAction.class }, new RoutedReply(watch, real));
+		}
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable
+		{
+			String methodName = method.getName();
+			if (method.getDeclaringClass() == Object.class)
+				return "equals".equals(methodName) ? proxy == args[0] : invokeOn(real, method, args);
+
+			boolean isTerminal = "queue".equals(methodName) || "submit".equals(methodName) || "complete".equals(methodName);
+			if (method.isDefault() && (isTerminal || !overriddenByReal(method))) //例如queue()、flatMap() 最後都會呼叫到下面的抽象方法
+				return InvocationHandler.invokeDefault(proxy, method, args);
+
+			if (isTerminal)
+				return terminal(method, args);
+
+			Object result = invokeOn(real, method, args);
+			if (result != real) //不是建構方法 例如getContent()
+				return result;
+			if ("setEphemeral".equals(methodName))
+				ephemeral = (Boolean) args[0];
+			return proxy; //讓處理者繼續串接
+		}
+
+		/**
+		 * Run one of the terminal operations of {@link RestAction}, which are {@code queue(Consumer, Consumer)},
+		 * {@code submit(boolean)} and {@code complete(boolean)}.
+		 */
+		@SuppressWarnings("unchecked")
+		private Object terminal(Method method, Object[] args) throws Throwable
+		{
+			if (watch.claim()) //計時器還沒deferReply
+				return invokeOn(real, method, args);
+
+			MessageCreateBuilder builder = new MessageCreateBuilder()
+					.setContent(real.getContent())
+					.setEmbeds(real.getEmbeds())
+					.setComponents(real.getComponents())
+					.setFiles(real.getAttachments())
+					.setPoll(real.getPoll())
+					.setSuppressEmbeds(real.isSuppressEmbeds())
+					.setAllowedMentions(real.getAllowedMentions())
+					.mentionUsers(real.getMentionedUsers())
+					.mentionRoles(real.getMentionedRoles());
+			RestAction<InteractionHook> routed = watch.route(builder.isEmpty() ? null : builder.build(), ephemeral);
+			if (routed != null) //有訊息內容 透過hook送出
+				return invokeOn(routed, method, args);
+
+			//處理者只是想要deferReply 計時器已經做過了
+			InteractionHook hook = watch.callback.getHook();
+			if ("queue".equals(method.getName()))
+			{
+				if (args[0] != null)
+					((Consumer<? super InteractionHook>) args[0]).accept(hook);
+				return null;
+			}
+			return "submit".equals(method.getName()) ? CompletableFuture.completedFuture(hook) : hook;
+		}
+
+		private boolean overriddenByReal(Method method)
+		{
+			try
+			{
+				return !real.getClass().getMethod(method.getName(), method.getParameterTypes()).getDeclaringClass().isInterface();
+			}
+			catch (NoSuchMethodException exception)
+			{
+				return false;
+			}
+		}
+
+		private static Object invokeOn(Object target, Method method, Object[] args) throws Throwable
+		{
+			try
+			{
+				return method.invoke(target, args);
+			}
+			catch (InvocationTargetException exception)
+			{
+				throw exception.getCause();
+			}
+		}
+	}
+
+	private interface Watched
+	{
+		Watch watch();
+	}
+
+	private static class WatchedSlashCommandEvent extends SlashCommandInteractionEvent implements Watched
+	{
+		private final Watch watch;
+
+		private WatchedSlashCommandEvent(SlashCommandInteractionEvent event, Watch watch)
+		{
+			super(event.getJDA(), event.getResponseNumber(), event.getInteraction());
+			this.watch = watch;
+		}
+
+		@Override
+		public Watch watch()
+		{
+			return watch;
+		}
+
+		@Override
+		public ReplyCallbackAction deferReply()
+		{
+			return RoutedReply.proxy(watch, super.deferReply());
+		}
+
+		@Override
+		public ReplyCallbackAction reply(MessageCreateData message)
+		{
+			return deferReply().applyData(message); //原本的實作會把deferReply()的結果轉型成JDA內部的類別
+		}
+	}
+
+	private static class WatchedMessageContextEvent extends MessageContextInteractionEvent implements Watched
+	{
+		private final Watch watch;
+
+		private WatchedMessageContextEvent(MessageContextInteractionEvent event, Watch watch)
+		{
+			super(event.getJDA(), event.getResponseNumber(), event.getInteraction());
+			this.watch = watch;
+		}
+
+		@Override
+		public Watch watch()
+		{
+			return watch;
+		}
+
+		@Override
+		public ReplyCallbackAction deferReply()
+		{
+			return RoutedReply.proxy(watch, super.deferReply());
+		}
+
+		@Override
+		public ReplyCallbackAction reply(MessageCreateData message)
+		{
+			return deferReply().applyData(message);
+		}
+	}
+}
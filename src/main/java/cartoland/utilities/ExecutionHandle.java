@@ -0,0 +1,137 @@
+package cartoland.utilities;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+/**
+ * {@code ExecutionHandle} is a utility class that decides which thread runs the events from listeners. By default,
+ * every event runs directly on the event thread of JDA. If the bot was started with
+ * {@code -Dcartoland.virtual_threads=true}, every interaction and message event runs on its own virtual thread
+ * instead, so a handler that blocks (such as a {@code .complete()} call or an HTTP request) can no longer stall
+ * the other events. The concurrency of each {@link Bulkhead} is limited by a semaphore.
+ * <p>
+ * Handlers in {@link Bulkhead#SERIAL} change state that isn't thread-safe, such as the games of the mini games and the
+ * lottery data of users, so they always run on the event thread of JDA in the order of the events. Every other handler
+ * might run at the same time as them, so the state shared by all handlers is thread-safe: the language settings in
+ * {@link JsonHandle}, the introductions of {@code /introduce}, the anonymous messages in {@link AnonymousHandle}, the
+ * question posts in {@link QuestionForumHandle}, and the birthdays and scheduled messages in {@link TimerHandle}. Can
+ * not be instantiated or inherited.
+ *
+ * @since 2.2
+ * @author Alex Cai
+ */
+public final class ExecutionHandle
+{
+	private ExecutionHandle()
+	{
+		throw new AssertionError(IDs.YOU_SHALL_NOT_ACCESS);
+	}
+
+	/**
+	 * The categories of handlers. Each category has its own limit of concurrency, which can be changed by
+	 * {@code -Dcartoland.bulkhead.network=} and {@code -Dcartoland.bulkhead.compute=}, except {@link #SERIAL}.
+	 *
+	 * @since 2.2
+	 * @author Alex Cai
+	 */
+	public enum Bulkhead
+	{
+		/**
+		 * Handlers that wait for network, such as HTTP requests or {@code .complete()} calls.
+		 */
+		NETWORK(Integer.getInteger("cartoland.bulkhead.network", 32)),
+		/**
+		 * Handlers that only do calculation and queue their REST requests.
+		 */
+		COMPUTE(Integer.getInteger("cartoland.bulkhead.compute", Runtime.getRuntime().availableProcessors() * 2)),
+		/**
+		 * Handlers that change state which isn't thread-safe. They always run on the event thread of JDA.
+		 */
+		SERIAL(1);
+
+		private final int limit;
+		private final Semaphore permits;
+
+		Bulkhead(int limit)
+		{
+			this.limit = limit;
+			permits = new Semaphore(limit, true); //公平 先來的先執行
+		}
+
+		public int getLimit()
+		{
+			return limit;
+		}
+
+		//正在執行的處理者數量
+		public int getActive()
+		{
+			return limit - permits.availablePermits();
+		}
+
+		//正在等待的處理者數量 是估計值
+		public int getQueueLength()
+		{
+			return permits.getQueueLength();
+		}
+	}
+
+	private static final boolean virtualThreads = Boolean.getBoolean("cartoland.virtual_threads"); //是否使用虛擬執行緒
+	private static final ExecutorService executor = virtualThreads ? Executors.newVirtualThreadPerTaskExecutor() : null;
+
+	public static boolean isVirtualThreads()
+	{
+		return virtualThreads;
+	}
+
+	/**
+	 * Run the handler of an event. If virtual threads mode is off or the handler is in {@link Bulkhead#SERIAL}, the
+	 * handler runs on the calling thread directly. Otherwise, the handler runs on a new virtual thread, after it
+	 * acquired a permit of its bulkhead.
+	 *
+	 * @param bulkhead The category of the handler.
+	 * @param handler The handler of the event.
+	 * @since 2.2
+	 * @author Alex Cai
+	 */
+	public static void dispatch(Bulkhead bulkhead, Runnable handler)
+	{
+		if (!virtualThreads || bulkhead == Bulkhead.SERIAL) //沒有開啟虛擬執行緒模式 或是不能同時執行
+		{
+			handler.run(); //直接在JDA的執行緒上執行
+			return;
+		}
+
+		Runnable tracked = StallHandle.propagate(handler); //讓虛擬執行緒也被StallHandle監視
+		executor.execute(() ->
+		{
+			bulkhead.permits.acquireUninterruptibly(); //等待同類別的處理完成
+			try
+			{
+				tracked.run();
+			}
+			catch (Exception exception) //不會有JDA幫忙記錄了 只好自己來
+			{
+				FileHandle.log(exception);
+			}
+			finally
+			{
+				bulkhead.permits.release();
+			}
+		});
+	}
+
+	/**
+	 * Stop accepting new events. This method will be called in
+	 * {@link cartoland.events.BotOnlineOffline#onShutdown} when the bot went offline.
+	 *
+	 * @since 2.2
+	 * @author Alex Cai
+	 */
+	public static void shutdown()
+	{
+		if (executor != null)
+			executor.shutdown();
+	}
+}
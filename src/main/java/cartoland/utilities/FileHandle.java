@@ -5,8 +5,8 @@ import cartoland.Cartoland;
 import java.io.*;
 import java.nio.file.Files;
 import java.nio.file.Paths;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.*;
+import java.util.function.Supplier;
 
 /**
  * {@code FileHandle} is a utility class that provides every functions that this program need to deal with file input and
@@ -56,7 +56,22 @@ public final class FileHandle
 	public static void registerSerialize(String fileName, Object object)
 	{
 		if (object instanceof Serializable)
-			serializeObjects.add(new SerializeObject(fileName, object)); //向註冊清單中新增一個註冊物件
+			serializeObjects.add(new SerializeObject(fileName, () -> object)); //向註冊清單中新增一個註冊物件
+	}
+
+	/**
+	 * Register an object that can't be serialized as it is, because it is guarded by a lock and other threads might
+	 * change it while it is being written. {@code snapshot} is called by {@link #serialize()} every time, and should
+	 * return a copy taken with the lock of the object.
+	 *
+	 * @param fileName The name of the serialize file. Usually has {@code .ser} as file name extension.
+	 * @param snapshot Returns a {@link Serializable} copy of the object.
+	 * @since 2.2
+	 * @author Alex Cai
+	 */
+	public static void registerSerialize(String fileName, Supplier<? extends Serializable> snapshot)
+	{
+		serializeObjects.add(new SerializeObject(fileName, snapshot));
 	}
 
 	/**
@@ -94,20 +109,47 @@ public final class FileHandle
 		}
 	}
 
-	private record SerializeObject(String fileName, Object object)
+	/**
+	 * Get the sizes of every registered object that is a {@link Collection} or a {@link Map}. The sizes are read
+	 * without any lock, so they are only approximate if the objects are being modified.
+	 *
+	 * @return The names of the serialize files as keys, and the sizes of the objects as values.
+	 * @since 2.2
+	 * @author Alex Cai
+	 */
+	public static Map<String, Integer> getSerializeSizes()
+	{
+		Map<String, Integer> sizes = new TreeMap<>();
+		for (SerializeObject serializeObject : serializeObjects)
+		{
+			Object object = serializeObject.snapshot.get();
+			if (object instanceof Collection<?> collection)
+				sizes.put(serializeObject.fileName, collection.size());
+			else if (object instanceof Map<?, ?> map)
+				sizes.put(serializeObject.fileName, map.size());
+		}
+		return sizes;
+	}
+
+	private record SerializeObject(String fileName, Supplier<?> snapshot)
 	{
 		private void serialize()
 		{
+			ProfileHandle.PersistenceEvent persistenceEvent = new ProfileHandle.PersistenceEvent();
+			persistenceEvent.begin();
 			try (FileOutputStream fileStream = new FileOutputStream(fileName);
 				 ObjectOutputStream objectStream = new ObjectOutputStream(fileStream))
 			{
-				objectStream.writeObject(object);
+				objectStream.writeObject(snapshot.get());
 				objectStream.flush();
+				persistenceEvent.bytes = fileStream.getChannel().position(); //寫了多少位元組
 			}
 			catch (IOException exception)
 			{
 				log(exception);
 			}
+			persistenceEvent.fileName = fileName;
+			persistenceEvent.commit();
 		}
 	}
 
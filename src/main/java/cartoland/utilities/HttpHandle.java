@@ -0,0 +1,199 @@
+package cartoland.utilities;
+
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Serial;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * {@code HttpHandle} is a utility class that handles every outbound HTTP fetch of this program, such as the pages of
+ * Mojang Jira. All requests share one {@link HttpClient}, so connections are reused and HTTP/2 is negotiated when
+ * the host supports it. Every host has a concurrency limit and a circuit breaker, the breaker opens after
+ * {@link #FAILURE_THRESHOLD} consecutive failures and makes every request to that host fail fast until
+ * {@link #OPEN_MILLIS} passed. After that, only one trial request is let through, and its result decides whether the
+ * breaker closes or opens again. Can not be instantiated or inherited.
+ *
+ * @since 2.2
+ * @author Alex Cai
+ */
+public final class HttpHandle
+{
+	private HttpHandle()
+	{
+		throw new AssertionError(IDs.YOU_SHALL_NOT_ACCESS);
+	}
+
+	private static final Duration CONNECT_TIMEOUT = Duration.ofSeconds(2L); //連線的時間限制
+	private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(5L); //整個請求的時間限制
+	private static final int PERMITS_PER_HOST = 4; //每個網域同時最多幾個請求
+	private static final int FAILURE_THRESHOLD = 3; //連續失敗幾次後斷路
+	private static final long OPEN_MILLIS = 60_000L; //斷路多久
+
+	private static final HttpClient client = HttpClient.newBuilder()
+			.version(HttpClient.Version.HTTP_2) //可以的話就用HTTP/2
+			.connectTimeout(CONNECT_TIMEOUT)
+			.followRedirects(HttpClient.Redirect.NORMAL)
+			.build();
+
+	private static final Map<String, Host> hosts = new ConcurrentHashMap<>(); //網域為key 該網域的狀態為value
+
+	/**
+	 * Fetch a web page and parse it into a Jsoup {@link Document}. The response is compressed with gzip if the
+	 * server supports it. Only connection failures, timeouts and 5xx responses count as failures of the host.
+	 *
+	 * @param link The link of the web page.
+	 * @return The parsed document.
+	 * @throws IOException If the link has no host, the host is unreachable, the circuit of the host is open, the
+	 * response status isn't 2xx or the request timed out.
+	 * @since 2.2
+	 * @author Alex Cai
+	 */
+	public static Document getDocument(String link) throws IOException
+	{
+		URI uri = URI.create(link);
+		String hostName = uri.getHost();
+		if (hostName == null) //例如相對路徑
+			throw new IOException("No host in " + link);
+		Host host = hosts.computeIfAbsent(hostName, name -> new Host());
+
+		if (!host.tryPass()) //斷路中 或是半開時已經有請求在試了
+			throw new IOException("Circuit open for " + hostName);
+		try
+		{
+			if (!host.permits.tryAcquire(REQUEST_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS)) //等太久了
+			{
+				host.abandoned();
+				throw new IOException("Too many requests to " + hostName);
+			}
+		}
+		catch (InterruptedException exception)
+		{
+			Thread.currentThread().interrupt();
+			host.abandoned();
+			throw new IOException(exception);
+		}
+
+		try
+		{
+			HttpRequest request = HttpRequest.newBuilder(uri)
+					.timeout(REQUEST_TIMEOUT)
+					.header("Accept-Encoding", "gzip")
+					.GET()
+					.build();
+			HttpResponse<InputStream> response = client.send(request, HttpResponse.BodyHandlers.ofInputStream());
+			int status = response.statusCode();
+			if (status < 200 || status >= 300) //不是2xx
+			{
+				response.body().close();
+				if (status < 500) //4xx是請求本身的問題 例如bug不存在 網域是正常的
+					host.succeeded();
+				else
+					host.failed();
+				throw new HttpStatusException(status, link);
+			}
+
+			Document document;
+			boolean gzip = response.headers().firstValue("Content-Encoding").map("gzip"::equalsIgnoreCase).orElse(false);
+			try (InputStream body = gzip ? new GZIPInputStream(response.body()) : response.body())
+			{
+				document = Jsoup.parse(body, null, link); //讓Jsoup從meta判斷編碼
+			}
+			host.succeeded();
+			return document;
+		}
+		catch (HttpStatusException exception)
+		{
+			throw exception; //已經記錄過了
+		}
+		catch (IOException exception)
+		{
+			host.failed();
+			throw exception;
+		}
+		catch (InterruptedException exception)
+		{
+			Thread.currentThread().interrupt();
+			host.failed();
+			throw new IOException(exception);
+		}
+		finally
+		{
+			host.permits.release();
+		}
+	}
+
+	/**
+	 * Thrown when the response status isn't 2xx.
+	 *
+	 * @since 2.2
+	 * @author Alex Cai
+	 */
+	private static class HttpStatusException extends IOException
+	{
+		@Serial
+		private static final long serialVersionUID = 6_62607015L;
+
+		private HttpStatusException(int status, String link)
+		{
+			super("HTTP " + status + " from " + link);
+		}
+	}
+
+	/**
+	 * The state of a host, including its concurrency limit and its circuit breaker.
+	 *
+	 * @since 2.2
+	 * @author Alex Cai
+	 */
+	private static class Host
+	{
+		private final Semaphore permits = new Semaphore(PERMITS_PER_HOST);
+		private final AtomicInteger failures = new AtomicInteger(); //連續失敗的次數
+		private final AtomicBoolean probing = new AtomicBoolean(false); //半開時是否已經有請求在試了
+		private volatile long openUntil = 0L; //斷路到何時 0代表沒有斷路
+
+		private boolean tryPass()
+		{
+			long until = openUntil;
+			if (until == 0L) //沒有斷路
+				return true;
+			return System.currentTimeMillis() >= until && probing.compareAndSet(false, true); //時間到了就是半開 只讓一個請求試試看
+		}
+
+		private void succeeded()
+		{
+			failures.set(0);
+			openUntil = 0L; //半開時試成功了 就恢復
+			probing.set(false);
+		}
+
+		private void failed()
+		{
+			if (openUntil != 0L || failures.incrementAndGet() >= FAILURE_THRESHOLD) //半開時試失敗了 或是失敗太多次
+			{
+				failures.set(0);
+				openUntil = System.currentTimeMillis() + OPEN_MILLIS; //斷路
+				probing.set(false);
+			}
+		}
+
+		private void abandoned()
+		{
+			probing.set(false); //試的請求沒有送出去 讓下一個請求試
+		}
+	}
+}
@@ -4,9 +4,9 @@ import org.json.JSONArray;
 import org.json.JSONObject;
 
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * {@code JsonHandle} is a utility class that handles all the need of JSON. It will load every JSON files that the bot need
@@ -26,11 +26,11 @@ public final class JsonHandle
 	private static final String USERS_FILE_NAME = "serialize/users.ser";
 
 	@SuppressWarnings("unchecked")
-	private static final Map<Long, String> users = CastToInstance.modifiableMap(FileHandle.deserialize(USERS_FILE_NAME)); //使用者的語言設定 id為key en, tw 等等的語言字串為value
-	private static final Map<String, JSONObject> languageFileMap = HashMap.newHashMap(7); //語言字串為key 語言檔案為value
-	private static final Map<String, List<String>> commandListMap = HashMap.newHashMap(4); //cmd.list等等為key 語言檔案對應的JSONArray為value
+	private static final Map<Long, String> users = new ConcurrentHashMap<>(CastToInstance.modifiableMap(FileHandle.deserialize(USERS_FILE_NAME))); //使用者的語言設定 id為key en, tw 等等的語言字串為value 每個處理者都會讀寫
+	private static final Map<String, JSONObject> languageFileMap = new ConcurrentHashMap<>(7); //語言字串為key 語言檔案為value /reload時會被替換
+	private static final Map<String, List<String>> commandListMap = new ConcurrentHashMap<>(4); //cmd.list等等為key 語言檔案對應的JSONArray為value
 
-	private static JSONObject englishFile; //英文檔案
+	private static volatile JSONObject englishFile; //英文檔案
 
 	static
 	{
@@ -98,6 +98,19 @@ public final class JsonHandle
 		commandListMap.put("dtp.list",  buildStringListFromJsonArray(englishFile.getJSONArray("dtp.list")));
 	}
 
+	/**
+	 * Get the language that a user set.
+	 *
+	 * @param userID The ID of the user.
+	 * @return The language string of the user, such as {@code tw}.
+	 * @since 2.2
+	 * @author Alex Cai
+	 */
+	public static String getLanguage(long userID)
+	{
+		return users.getOrDefault(userID, Languages.TW_MANDARIN);
+	}
+
 	/**
 	 * Get string from json file based on the ID of a user and a key.
 	 *
@@ -0,0 +1,155 @@
+package cartoland.utilities;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * {@code LedgerHandle} is a utility class that keeps an append-only ledger of every change of command blocks. Each
+ * line of {@link #LEDGER_FILE_NAME} is the time, the reason, the user, the other user of a transfer (0 if none), the
+ * change and the balance after the change, separated by tabs. A new ledger starts with an {@link #OPEN} record of every
+ * user who already has command blocks, so the balance of every user is the sum of the changes of the user, and
+ * {@link CommandBlocksHandle#auditLedger()} can replay the ledger against the lottery data. Can not be instantiated or
+ * inherited.
+ *
+ * @since 2.2
+ * @author Alex Cai
+ */
+public final class LedgerHandle
+{
+	private LedgerHandle()
+	{
+		throw new AssertionError(IDs.YOU_SHALL_NOT_ACCESS);
+	}
+
+	public static final String OPEN = "open";
+	public static final String SET = "set";
+	public static final String TALK = "talk";
+	public static final String REWARD = "reward";
+	public static final String DAILY = "daily";
+	public static final String BET = "bet";
+	public static final String SLOT = "slot";
+	public static final String TRANSFER = "transfer";
+	public static final String RAFFLE = "raffle";
+
+	private static final String LEDGER_FILE_NAME = "logs/ledger.tsv";
+	private static final Object writeLock = new Object(); //一次只有一個執行緒寫入檔案 寫入的順序才會和記錄的順序相同
+	private static StringBuilder pending = new StringBuilder(); //還沒寫入檔案的紀錄 在LedgerHandle.class的鎖中改變
+	private static long position = new File(LEDGER_FILE_NAME).length(); //檔案和pending加起來的長度 紀錄只有ASCII字元
+
+	static synchronized void append(String reason, long userID, long otherID, long change, long balance)
+	{
+		int length = pending.length();
+		pending.append(System.currentTimeMillis()).append('\t')
+				.append(reason).append('\t')
+				.append(userID).append('\t')
+				.append(otherID).append('\t')
+				.append(change).append('\t')
+				.append(balance).append('\n');
+		position += pending.length() - length;
+	}
+
+	/**
+	 * Get the end of the last record, including the records that haven't been written into the file yet. The position
+	 * can be passed to {@link #replay(long)} later, to replay the ledger up to this moment.
+	 *
+	 * @return The end of the last record in bytes.
+	 * @since 2.2
+	 * @author Alex Cai
+	 */
+	static synchronized long position()
+	{
+		return position;
+	}
+
+	/**
+	 * Write the pending records to the end of the ledger file. This method will be called after every fold of
+	 * {@link CommandBlocksHandle}, including the one before the bot goes offline. The pending records are swapped out
+	 * with the lock that {@link #append} needs, and written after the lock is released, so changes of command blocks
+	 * don't wait for the file.
+	 *
+	 * @since 2.2
+	 * @author Alex Cai
+	 */
+	static void flush()
+	{
+		synchronized (writeLock)
+		{
+			StringBuilder records;
+			synchronized (LedgerHandle.class)
+			{
+				if (pending.isEmpty()) //沒有新紀錄
+					return;
+				records = pending;
+				pending = new StringBuilder(records.length());
+			}
+
+			try (FileWriter ledger = new FileWriter(LEDGER_FILE_NAME, true)) //只會往後加
+			{
+				ledger.write(records.toString());
+			}
+			catch (IOException exception)
+			{
+				FileHandle.log(exception);
+				synchronized (LedgerHandle.class)
+				{
+					pending = records.append(pending); //留著下次再寫 放在新紀錄的前面
+				}
+			}
+		}
+	}
+
+	/**
+	 * Check if the ledger has no records at all, which means it starts from now.
+	 *
+	 * @return true if the ledger file is empty or doesn't exist, and nothing was appended.
+	 * @since 2.2
+	 * @author Alex Cai
+	 */
+	static synchronized boolean isEmpty()
+	{
+		return position == 0L;
+	}
+
+	/**
+	 * Replay the ledger from the first record up to {@code end}, and sum the changes of every user.
+	 *
+	 * @param end The position returned by {@link #position()}.
+	 * @return The balance of every user that has records, the key is the user ID.
+	 * @throws IOException If the ledger can't be read, is shorter than {@code end}, or has a broken record.
+	 * @since 2.2
+	 * @author Alex Cai
+	 */
+	static Map<Long, Long> replay(long end) throws IOException
+	{
+		flush(); //end之前的紀錄都要在檔案裡
+		Map<Long, Long> balances = new HashMap<>();
+		long read = 0L;
+		try (BufferedReader ledger = new BufferedReader(new FileReader(LEDGER_FILE_NAME)))
+		{
+			String line;
+			while (read < end && (line = ledger.readLine()) != null)
+			{
+				read += line.length() + 1; //加上換行
+				String[] fields = line.split("\t");
+				if (fields.length != 6)
+					throw new IOException("Broken record at " + read + " of " + LEDGER_FILE_NAME + ": " + line);
+				try
+				{
+					balances.merge(Long.parseLong(fields[2]), Long.parseLong(fields[4]), Long::sum); //使用者ID 變化量
+				}
+				catch (NumberFormatException exception)
+				{
+					throw new IOException("Broken record at " + read + " of " + LEDGER_FILE_NAME + ": " + line, exception);
+				}
+			}
+		}
+		if (read != end) //寫入失敗 或是檔案被改過
+			throw new IOException(LEDGER_FILE_NAME + " ends at " + read + " instead of " + end);
+		return balances;
+	}
+}
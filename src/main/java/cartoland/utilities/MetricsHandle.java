@@ -0,0 +1,596 @@
+package cartoland.utilities;
+
+import com.sun.net.httpserver.HttpServer;
+import okhttp3.Interceptor;
+import okhttp3.Response;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryUsage;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * {@code MetricsHandle} is a utility class that records how long the handlers of interactions take. Every command,
+ * subcommand, button, modal and context menu has its own histograms for {@link Stage#HANDLER}, {@link Stage#FIRST_REPLY}
+ * and {@link Stage#REST}. Recording doesn't take any lock, it only increments a counter in a logarithmic bucket,
+ * so it can be called from any thread. The results can be seen by {@code /admin stats}, and are written into the log
+ * every hour. If the bot was started with {@code -Dcartoland.metrics_port=}, these metrics, along with gateway events,
+ * REST requests, executors, stores and the JVM, are also served in the Prometheus text format on
+ * {@code http://localhost:<port>/metrics}. The server only listens on the loopback address. Can not be instantiated
+ * or inherited.
+ *
+ * @since 2.2
+ * @author Alex Cai
+ */
+public final class MetricsHandle
+{
+	private MetricsHandle()
+	{
+		throw new AssertionError(IDs.YOU_SHALL_NOT_ACCESS);
+	}
+
+	/**
+	 * The stages of handling an interaction.
+	 *
+	 * @since 2.2
+	 * @author Alex Cai
+	 */
+	public enum Stage
+	{
+		/**
+		 * From the handler started to the handler returned.
+		 */
+		HANDLER,
+		/**
+		 * From the event was received to the first reply request was sent to Discord, which might be a
+		 * {@code deferReply()}.
+		 */
+		FIRST_REPLY,
+		/**
+		 * From a reply request was sent to Discord responded, see {@link DeferHandle#replySent}.
+		 */
+		REST
+	}
+
+	private static final Map<String, Metrics> metricsMap = new ConcurrentHashMap<>(); //名稱為key 統計資料為value
+	private static final Map<String, Map<String, LongAdder>> eventCounts = new ConcurrentHashMap<>(); //聆聽者為key 事件名稱與次數為value
+	private static final Map<String, LongAdder> restCounts = new ConcurrentHashMap<>(); //HTTP方法與狀態碼類別為key 次數為value
+	private static final Histogram restLatency = new Histogram();
+	private static final Map<String, LongAdder> stallCounts = new ConcurrentHashMap<>(); //事件類型為key 卡住的次數為value
+	private static final Map<String, Histogram> stallDurations = new ConcurrentHashMap<>(); //事件類型為key 卡住的事件花了多久為value
+	private static final Map<String, Histogram> timerJobDurations = new ConcurrentHashMap<>(); //計時器工作為key 花了多久為value
+	private static final Map<String, LongAdder> timerJobFailures = new ConcurrentHashMap<>(); //計時器工作與原因為key 次數為value
+	private static final double[] BUCKET_SECONDS = { 0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1.0, 2.5, 5.0, 10.0 };
+	private static HttpServer server;
+
+	/**
+	 * Build the name of a slash command that the metrics will be recorded as, for example {@code "/lottery bet"}.
+	 *
+	 * @param commandName The name of the command.
+	 * @param subcommandName The name of the subcommand, can be null.
+	 * @return The name of the metrics.
+	 * @since 2.2
+	 * @author Alex Cai
+	 */
+	public static String commandName(String commandName, String subcommandName)
+	{
+		return subcommandName == null ? '/' + commandName : '/' + commandName + ' ' + subcommandName;
+	}
+
+	/**
+	 * Wrap a handler, so that its duration and whether it threw an exception will be recorded as {@link Stage#HANDLER}.
+	 *
+	 * @param name The name of the metrics.
+	 * @param handler The handler of the event.
+	 * @return A handler that records itself.
+	 * @since 2.2
+	 * @author Alex Cai
+	 */
+	public static Runnable timed(String name, Runnable handler)
+	{
+		return () ->
+		{
+			long start = System.nanoTime();
+			boolean failed = true;
+			try
+			{
+				handler.run();
+				failed = false;
+			}
+			finally
+			{
+				record(name, Stage.HANDLER, start, failed);
+			}
+		};
+	}
+
+	/**
+	 * Record a duration that started at {@code startNanos} and ends now.
+	 *
+	 * @param name The name of the metrics.
+	 * @param stage The stage that the duration belongs to.
+	 * @param startNanos The value of {@link System#nanoTime()} when the duration started.
+	 * @param failed If the stage ended with an exception or a failed request.
+	 * @since 2.2
+	 * @author Alex Cai
+	 */
+	public static void record(String name, Stage stage, long startNanos, boolean failed)
+	{
+		long micros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startNanos);
+		Metrics metrics = metricsMap.computeIfAbsent(name, key -> new Metrics());
+		metrics.histograms[stage.ordinal()].record(micros);
+		if (failed)
+			metrics.errors[stage.ordinal()].increment();
+	}
+
+	/**
+	 * Count an event that a listener handled. This method will be called by
+	 * {@link cartoland.events.MonitoredEventManager} for every gateway event.
+	 *
+	 * @param listener The simple name of the listener class.
+	 * @param event The simple name of the event class.
+	 * @since 2.2
+	 * @author Alex Cai
+	 */
+	public static void countEvent(String listener, String event)
+	{
+		eventCounts.computeIfAbsent(listener, key -> new ConcurrentHashMap<>())
+				.computeIfAbsent(event, key -> new LongAdder()).increment();
+	}
+
+	/**
+	 * Count an event that has been running longer than the threshold of {@link StallHandle}.
+	 *
+	 * @param eventType The type of the event.
+	 * @since 2.2
+	 * @author Alex Cai
+	 */
+	static void countStall(String eventType)
+	{
+		stallCounts.computeIfAbsent(eventType, key -> new LongAdder()).increment();
+	}
+
+	/**
+	 * Record how long a stalled event took in total, when it finally finished.
+	 *
+	 * @param eventType The type of the event.
+	 * @param startNanos The value of {@link System#nanoTime()} when the event started.
+	 * @since 2.2
+	 * @author Alex Cai
+	 */
+	static void recordStall(String eventType, long startNanos)
+	{
+		stallDurations.computeIfAbsent(eventType, key -> new Histogram()).record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startNanos));
+	}
+
+	/**
+	 * Record how long a job of {@link TimerHandle} took.
+	 *
+	 * @param job The name of the job.
+	 * @param startNanos The value of {@link System#nanoTime()} when the job started.
+	 * @since 2.2
+	 * @author Alex Cai
+	 */
+	static void recordTimerJob(String job, long startNanos)
+	{
+		timerJobDurations.computeIfAbsent(job, key -> new Histogram()).record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startNanos));
+	}
+
+	/**
+	 * Count a job of {@link TimerHandle} that didn't finish normally.
+	 *
+	 * @param job The name of the job.
+	 * @param reason {@code exception}, {@code timeout} or {@code rejected}.
+	 * @since 2.2
+	 * @author Alex Cai
+	 */
+	static void countTimerJobFailure(String job, String reason)
+	{
+		timerJobFailures.computeIfAbsent(job + ' ' + reason, key -> new LongAdder()).increment();
+	}
+
+	/**
+	 * Build an OkHttp interceptor that counts every REST request JDA sends to Discord, grouped by HTTP method and
+	 * status class, and records how long they take. Requests that reply to an interaction watched by
+	 * {@link DeferHandle} are also recorded as {@link Stage#FIRST_REPLY} and {@link Stage#REST} of that interaction.
+	 *
+	 * @return The interceptor that should be added to the HTTP client of JDA.
+	 * @since 2.2
+	 * @author Alex Cai
+	 */
+	public static Interceptor restInterceptor()
+	{
+		return chain ->
+		{
+			String method = chain.request().method();
+			String interaction = DeferHandle.replySent(chain.request().url().pathSegments()); //回覆互動的請求 要記錄到那個互動
+			long start = System.nanoTime();
+			String status = "error"; //連線失敗
+			try
+			{
+				Response response = chain.proceed(chain.request());
+				status = response.code() / 100 + "xx";
+				return response;
+			}
+			finally
+			{
+				restLatency.record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
+				restCounts.computeIfAbsent(method + ' ' + status, key -> new LongAdder()).increment();
+				if (interaction != null)
+					record(interaction, Stage.REST, start, !"2xx".equals(status));
+			}
+		};
+	}
+
+	/**
+	 * Start the HTTP server that serves the metrics on {@code /metrics}. The server only listens on the loopback
+	 * address, so it can only be scraped from the same machine.
+	 *
+	 * @param port The port that the server listens on.
+	 * @since 2.2
+	 * @author Alex Cai
+	 */
+	public static void startServer(int port)
+	{
+		try
+		{
+			server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+		}
+		catch (IOException exception)
+		{
+			FileHandle.log(exception);
+			return;
+		}
+		server.createContext("/metrics", exchange ->
+		{
+			byte[] body = prometheus().getBytes(StandardCharsets.UTF_8);
+			exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+			exchange.sendResponseHeaders(200, body.length);
+			try (OutputStream output = exchange.getResponseBody())
+			{
+				output.write(body);
+			}
+		});
+		server.start();
+		FileHandle.log("metrics server started on port ", port);
+	}
+
+	/**
+	 * Stop the HTTP server if it was started. This method will be called in
+	 * {@link cartoland.events.BotOnlineOffline#onShutdown} when the bot went offline.
+	 *
+	 * @since 2.2
+	 * @author Alex Cai
+	 */
+	public static void stopServer()
+	{
+		if (server != null)
+			server.stop(0);
+	}
+
+	/**
+	 * Build every metric in the Prometheus text format.
+	 *
+	 * @return The text that will be served on {@code /metrics}.
+	 * @since 2.2
+	 * @author Alex Cai
+	 */
+	static String prometheus()
+	{
+		StringBuilder builder = new StringBuilder(4096);
+
+		//閘道事件
+		builder.append("# TYPE cartoland_events_total counter\n");
+		eventCounts.forEach((listener, events) -> events.forEach((event, count) ->
+				builder.append("cartoland_events_total{listener=\"").append(escape(listener)).append("\",event=\"")
+						.append(escape(event)).append("\"} ").append(count.sum()).append('\n')));
+
+		//指令延遲 同一個指標的樣本必須接在它的TYPE後面 所以每個指標各走一次
+		builder.append("# TYPE cartoland_interaction_seconds histogram\n");
+		metricsMap.forEach((name, metrics) ->
+		{
+			for (Stage stage : Stage.values())
+				appendHistogram(builder, "cartoland_interaction_seconds", interactionLabels(name, stage), metrics.histograms[stage.ordinal()]);
+		});
+		builder.append("# TYPE cartoland_interaction_errors_total counter\n");
+		metricsMap.forEach((name, metrics) ->
+		{
+			for (Stage stage : Stage.values())
+				builder.append("cartoland_interaction_errors_total{").append(interactionLabels(name, stage)).append("} ")
+						.append(metrics.errors[stage.ordinal()].sum()).append('\n');
+		});
+		builder.append("# TYPE cartoland_late_replies_total counter\n");
+		DeferHandle.getLateReplies().forEach((name, count) ->
+				builder.append("cartoland_late_replies_total{name=\"").append(escape(name)).append("\"} ").append(count).append('\n'));
+		builder.append("# TYPE cartoland_defer_rescues_total counter\n");
+		DeferHandle.getRescues().forEach((name, count) ->
+				builder.append("cartoland_defer_rescues_total{name=\"").append(escape(name)).append("\"} ").append(count).append('\n'));
+
+		//卡住的事件
+		builder.append("# TYPE cartoland_stalls_total counter\n");
+		stallCounts.forEach((eventType, count) ->
+				builder.append("cartoland_stalls_total{event=\"").append(escape(eventType)).append("\"} ").append(count.sum()).append('\n'));
+		builder.append("# TYPE cartoland_stall_seconds histogram\n");
+		stallDurations.forEach((eventType, histogram) ->
+				appendHistogram(builder, "cartoland_stall_seconds", "event=\"" + escape(eventType) + '"', histogram));
+
+		//執行緒與佇列
+		builder.append("# TYPE cartoland_bulkhead_active gauge\n");
+		for (ExecutionHandle.Bulkhead bulkhead : ExecutionHandle.Bulkhead.values())
+			builder.append("cartoland_bulkhead_active{bulkhead=\"").append(bulkhead.name().toLowerCase()).append("\"} ")
+					.append(bulkhead.getActive()).append('\n');
+		builder.append("# TYPE cartoland_bulkhead_queue gauge\n");
+		for (ExecutionHandle.Bulkhead bulkhead : ExecutionHandle.Bulkhead.values())
+			builder.append("cartoland_bulkhead_queue{bulkhead=\"").append(bulkhead.name().toLowerCase()).append("\"} ")
+					.append(bulkhead.getQueueLength()).append('\n');
+		builder.append("# TYPE cartoland_timer_queue gauge\ncartoland_timer_queue ").append(TimerHandle.getQueueSize()).append('\n');
+		builder.append("# TYPE cartoland_timer_job_queue gauge\ncartoland_timer_job_queue ").append(TimerHandle.getJobQueueSize()).append('\n');
+
+		//計時器工作
+		builder.append("# TYPE cartoland_timer_job_seconds histogram\n");
+		timerJobDurations.forEach((job, histogram) ->
+				appendHistogram(builder, "cartoland_timer_job_seconds", "job=\"" + escape(job) + '"', histogram));
+		builder.append("# TYPE cartoland_timer_job_failures_total counter\n");
+		timerJobFailures.forEach((jobAndReason, count) ->
+		{
+			int space = jobAndReason.lastIndexOf(' '); //工作名稱可能有空白 原因沒有
+			builder.append("cartoland_timer_job_failures_total{job=\"").append(escape(jobAndReason.substring(0, space)))
+					.append("\",reason=\"").append(jobAndReason, space + 1, jobAndReason.length()).append("\"} ")
+					.append(count.sum()).append('\n');
+		});
+
+		//REST請求
+		builder.append("# TYPE cartoland_rest_requests_total counter\n");
+		restCounts.forEach((methodAndStatus, count) ->
+		{
+			int space = methodAndStatus.indexOf(' ');
+			builder.append("cartoland_rest_requests_total{method=\"").append(methodAndStatus, 0, space)
+					.append("\",status=\"").append(methodAndStatus, space + 1, methodAndStatus.length()).append("\"} ")
+					.append(count.sum()).append('\n');
+		});
+		builder.append("# TYPE cartoland_rest_seconds histogram\n");
+		appendHistogram(builder, "cartoland_rest_seconds", "", restLatency);
+
+		//儲存的資料
+		builder.append("# TYPE cartoland_store_size gauge\n");
+		FileHandle.getSerializeSizes().forEach((fileName, size) ->
+				builder.append("cartoland_store_size{file=\"").append(escape(fileName)).append("\"} ").append(size).append('\n'));
+
+		//JVM
+		MemoryUsage heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+		builder.append("# TYPE jvm_memory_heap_bytes gauge\n")
+				.append("jvm_memory_heap_bytes{area=\"used\"} ").append(heap.getUsed()).append('\n')
+				.append("jvm_memory_heap_bytes{area=\"committed\"} ").append(heap.getCommitted()).append('\n')
+				.append("jvm_memory_heap_bytes{area=\"max\"} ").append(heap.getMax()).append('\n');
+		List<GarbageCollectorMXBean> gcs = ManagementFactory.getGarbageCollectorMXBeans();
+		builder.append("# TYPE jvm_gc_collections_total counter\n");
+		for (GarbageCollectorMXBean gc : gcs)
+			builder.append("jvm_gc_collections_total{gc=\"").append(escape(gc.getName())).append("\"} ")
+					.append(gc.getCollectionCount()).append('\n');
+		builder.append("# TYPE jvm_gc_seconds_total counter\n");
+		for (GarbageCollectorMXBean gc : gcs)
+			builder.append("jvm_gc_seconds_total{gc=\"").append(escape(gc.getName())).append("\"} ")
+					.append(gc.getCollectionTime() / 1000.0).append('\n');
+		builder.append("# TYPE jvm_threads gauge\njvm_threads ").append(ManagementFactory.getThreadMXBean().getThreadCount()).append('\n');
+
+		return builder.toString();
+	}
+
+	/**
+	 * Append a histogram in the Prometheus format. The buckets of {@link Histogram} are merged into
+	 * {@link #BUCKET_SECONDS}, a bucket that crosses a boundary is counted into the larger one.
+	 */
+	private static void appendHistogram(StringBuilder builder, String metricName, String labels, Histogram histogram)
+	{
+		long[] snapshot = histogram.snapshot();
+		String separator = labels.isEmpty() ? "" : ",";
+		long cumulative = 0L;
+		int index = 0;
+		for (double seconds : BUCKET_SECONDS)
+		{
+			long boundMicros = (long) (seconds * 1_000_000);
+			for (; index < snapshot.length && Histogram.upperBoundOf(index) <= boundMicros; index++)
+				cumulative += snapshot[index];
+			builder.append(metricName).append("_bucket{").append(labels).append(separator).append("le=\"").append(seconds)
+					.append("\"} ").append(cumulative).append('\n');
+		}
+		for (; index < snapshot.length; index++)
+			cumulative += snapshot[index];
+		builder.append(metricName).append("_bucket{").append(labels).append(separator).append("le=\"+Inf\"} ").append(cumulative).append('\n');
+		String braces = labels.isEmpty() ? " " : '{' + labels + "} ";
+		builder.append(metricName).append("_sum").append(braces).append(histogram.sum() / 1_000_000.0).append('\n');
+		builder.append(metricName).append("_count").append(braces).append(cumulative).append('\n');
+	}
+
+	private static String interactionLabels(String name, Stage stage)
+	{
+		return "name=\"" + escape(name) + "\",stage=\"" + stage.name().toLowerCase() + '"';
+	}
+
+	private static String escape(String labelValue)
+	{
+		return labelValue.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+	}
+
+	/**
+	 * Build one line of summary for every name, sorted by names. Every line contains the count, p50, p99 and max of
+	 * each stage in milliseconds, and the error counts of handlers and REST requests.
+	 *
+	 * @return The lines of summary.
+	 * @since 2.2
+	 * @author Alex Cai
+	 */
+	public static List<String> summary()
+	{
+		Map<String, Metrics> sorted = new TreeMap<>(metricsMap); //依名稱排序
+		List<String> lines = new ArrayList<>(sorted.size());
+		StringBuilder builder = new StringBuilder();
+		for (Map.Entry<String, Metrics> entry : sorted.entrySet())
+		{
+			Metrics metrics = entry.getValue();
+			builder.setLength(0);
+			builder.append(entry.getKey()).append(" n=").append(metrics.histograms[Stage.HANDLER.ordinal()].count());
+			for (Stage stage : Stage.values())
+			{
+				Histogram histogram = metrics.histograms[stage.ordinal()];
+				if (histogram.count() == 0L) //例如自動完成就沒有REST
+					continue;
+				builder.append(' ').append(stage.name().toLowerCase()).append('=')
+						.append(millis(histogram.percentile(0.5))).append('/')
+						.append(millis(histogram.percentile(0.99))).append('/')
+						.append(millis(histogram.max())).append("ms");
+			}
+			builder.append(" err=").append(metrics.errors[Stage.HANDLER.ordinal()].sum())
+					.append('/').append(metrics.errors[Stage.REST.ordinal()].sum());
+			lines.add(builder.toString());
+		}
+		return lines;
+	}
+
+	/**
+	 * Write the summary into the log. This method will be called every hour by {@link TimerHandle}.
+	 *
+	 * @since 2.2
+	 * @author Alex Cai
+	 */
+	static void dumpToLog()
+	{
+		List<String> lines = summary();
+		if (lines.isEmpty()) //還沒有人使用過任何指令
+			return;
+		FileHandle.log("metrics (p50/p99/max, err=handler/rest)");
+		for (String line : lines)
+			FileHandle.log('\t', line);
+	}
+
+	private static String millis(long micros)
+	{
+		return micros < 10_000L ? String.format("%.1f", micros / 1000.0) : Long.toString(micros / 1000L); //小於10毫秒才顯示小數
+	}
+
+	private static class Metrics
+	{
+		private final Histogram[] histograms = new Histogram[Stage.values().length];
+		private final LongAdder[] errors = new LongAdder[Stage.values().length];
+
+		private Metrics()
+		{
+			for (int i = 0; i < histograms.length; i++)
+			{
+				histograms[i] = new Histogram();
+				errors[i] = new LongAdder();
+			}
+		}
+	}
+
+	/**
+	 * A lock-free histogram of microseconds. Each power of two is split into {@link #SUB_BUCKETS} buckets, so a
+	 * percentile is at most 12.5% larger than the real value.
+	 *
+	 * @since 2.2
+	 * @author Alex Cai
+	 */
+	static class Histogram
+	{
+		private static final int SUB_BITS = 3;
+		private static final int SUB_BUCKETS = 1 << SUB_BITS; //每個2的次方切成8格
+		private static final int BUCKETS = (Long.SIZE - SUB_BITS + 1) * SUB_BUCKETS;
+
+		private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+		private final LongAdder total = new LongAdder();
+		private final LongAdder sum = new LongAdder();
+		private final AtomicLong max = new AtomicLong();
+
+		void record(long value)
+		{
+			if (value < 0L) //時鐘不會倒退 但以防萬一
+				value = 0L;
+			counts.incrementAndGet(indexOf(value));
+			total.increment();
+			sum.add(value);
+			if (value > max.get()) //大部分的時候都不需要更新
+				max.accumulateAndGet(value, Math::max);
+		}
+
+		long count()
+		{
+			return total.sum();
+		}
+
+		long sum()
+		{
+			return sum.sum();
+		}
+
+		long max()
+		{
+			return max.get();
+		}
+
+		/**
+		 * Get the upper bound of the bucket that the percentile falls in.
+		 *
+		 * @param fraction The percentile, from 0 to 1.
+		 * @return The approximate value of the percentile, never larger than {@link #max()}.
+		 */
+		long percentile(double fraction)
+		{
+			long[] snapshot = snapshot(); //避免計算途中有新的紀錄
+			long count = 0L;
+			for (long bucket : snapshot)
+				count += bucket;
+			if (count == 0L)
+				return 0L;
+
+			long rank = Math.max(1L, (long) Math.ceil(count * fraction)); //第幾個
+			long seen = 0L;
+			for (int i = 0; i < BUCKETS; i++)
+			{
+				seen += snapshot[i];
+				if (seen >= rank)
+					return Math.min(upperBoundOf(i), max());
+			}
+			return max();
+		}
+
+		long[] snapshot()
+		{
+			long[] snapshot = new long[BUCKETS];
+			for (int i = 0; i < BUCKETS; i++)
+				snapshot[i] = counts.get(i);
+			return snapshot;
+		}
+
+		static int indexOf(long value)
+		{
+			if (value < SUB_BUCKETS) //0 ~ 7 直接對應
+				return (int) value;
+			int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(value); //最高位元的位置 至少是3
+			int sub = (int) (value >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1); //最高位元之後的3個位元
+			return (exponent - SUB_BITS + 1) * SUB_BUCKETS + sub;
+		}
+
+		static long upperBoundOf(int index)
+		{
+			if (index < SUB_BUCKETS)
+				return index;
+			int exponent = index / SUB_BUCKETS + SUB_BITS - 1;
+			int sub = index % SUB_BUCKETS;
+			long lower = (long) (SUB_BUCKETS + sub) << (exponent - SUB_BITS);
+			return lower + (1L << (exponent - SUB_BITS)) - 1L;
+		}
+	}
+}
@@ -0,0 +1,245 @@
+package cartoland.utilities;
+
+import jdk.jfr.*;
+import net.dv8tion.jda.api.interactions.Interaction;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * {@code ProfileHandle} is a utility class that provides JDK Flight Recorder events of this program, which are
+ * commands, message handlers, timer jobs of {@link TimerHandle} and persistence snapshots of {@link FileHandle}.
+ * These events are recorded by any JFR recording, including the one started by {@code /admin profile}, which is
+ * handled by {@link #record(long, Consumer)}. Can not be instantiated or inherited.
+ *
+ * @since 2.2
+ * @author Alex Cai
+ */
+public final class ProfileHandle
+{
+	private ProfileHandle()
+	{
+		throw new AssertionError(IDs.YOU_SHALL_NOT_ACCESS);
+	}
+
+	public static final long MAX_RECORD_SECONDS = 600L; //最多錄10分鐘 互動的token只有15分鐘
+	private static final long MAX_RECORD_BYTES = 64L << 20; //最多64MB
+
+	private static final AtomicBoolean recording = new AtomicBoolean(false); //同時只能有一個錄製
+	private static final ScheduledExecutorService stopper = Executors.newSingleThreadScheduledExecutor(runnable ->
+	{
+		Thread thread = new Thread(runnable, "ProfileHandle");
+		thread.setDaemon(true); //不阻止程式結束
+		return thread;
+	});
+
+	@Name("cartoland.Command")
+	@Label("Command")
+	@Category("Cartoland")
+	@Description("A slash command or context menu handled by the bot")
+	static final class CommandEvent extends Event
+	{
+		@Label("Name")
+		String name;
+		@Label("User ID")
+		long userID;
+		@Label("Late")
+		@Description("If the interaction wasn't acknowledged within the budget of DeferHandle")
+		boolean late;
+		@Label("Deferred")
+		@Description("If DeferHandle deferred the reply because the handler was too slow")
+		boolean deferred;
+	}
+
+	@Name("cartoland.MessageHandler")
+	@Label("Message Handler")
+	@Category("Cartoland")
+	@Description("An IMessage that processed a received message")
+	static final class MessageHandlerEvent extends Event
+	{
+		@Label("Handler")
+		String handler;
+	}
+
+	@Name("cartoland.TimerJob")
+	@Label("Timer Job")
+	@Category("Cartoland")
+	@Description("A job run by the timing wheel of TimerHandle")
+	static final class TimerJobEvent extends Event
+	{
+		@Label("Job")
+		String job;
+		@Label("Hour")
+		int hour;
+		@Label("Minute")
+		int minute;
+	}
+
+	@Name("cartoland.Persistence")
+	@Label("Persistence Snapshot")
+	@Category("Cartoland")
+	@Description("A registered object serialized by FileHandle")
+	static final class PersistenceEvent extends Event
+	{
+		@Label("File Name")
+		String fileName;
+		@Label("Size")
+		@DataAmount
+		long bytes;
+	}
+
+	/**
+	 * Wrap the handler of a command, so that a {@code cartoland.Command} event will be committed when it finished.
+	 *
+	 * @param name The name of the command, see {@link MetricsHandle#commandName}.
+	 * @param userID The ID of the user who used the command.
+	 * @param interaction The interaction of the command, to know if it was acknowledged late.
+	 * @param handler The handler of the command.
+	 * @return A handler that records itself.
+	 * @since 2.2
+	 * @author Alex Cai
+	 */
+	public static Runnable command(String name, long userID, Interaction interaction, Runnable handler)
+	{
+		return () ->
+		{
+			CommandEvent commandEvent = new CommandEvent();
+			commandEvent.begin();
+			try
+			{
+				handler.run();
+			}
+			finally
+			{
+				if (commandEvent.shouldCommit()) //沒有在錄製的話 就不用填資料了
+				{
+					commandEvent.name = name;
+					commandEvent.userID = userID;
+					commandEvent.late = DeferHandle.isLate(interaction);
+					commandEvent.deferred = DeferHandle.isDeferred(interaction);
+					commandEvent.commit();
+				}
+			}
+		};
+	}
+
+	/**
+	 * Run a message handler and commit a {@code cartoland.MessageHandler} event.
+	 *
+	 * @param handler The name of the handler, usually the simple name of its class.
+	 * @param process The process of the handler.
+	 * @since 2.2
+	 * @author Alex Cai
+	 */
+	public static void messageHandler(String handler, Runnable process)
+	{
+		MessageHandlerEvent messageHandlerEvent = new MessageHandlerEvent();
+		messageHandlerEvent.begin();
+		try
+		{
+			process.run();
+		}
+		finally
+		{
+			if (messageHandlerEvent.shouldCommit())
+			{
+				messageHandlerEvent.handler = handler;
+				messageHandlerEvent.commit();
+			}
+		}
+	}
+
+	/**
+	 * Run a timer job and commit a {@code cartoland.TimerJob} event.
+	 *
+	 * @param job The name of the job.
+	 * @param hour The hour that the job runs at.
+	 * @param minute The minute that the job runs at.
+	 * @param process The process of the job.
+	 * @since 2.2
+	 * @author Alex Cai
+	 */
+	static void timerJob(String job, int hour, int minute, Runnable process)
+	{
+		TimerJobEvent timerJobEvent = new TimerJobEvent();
+		timerJobEvent.begin();
+		try
+		{
+			process.run();
+		}
+		finally
+		{
+			if (timerJobEvent.shouldCommit())
+			{
+				timerJobEvent.job = job;
+				timerJobEvent.hour = hour;
+				timerJobEvent.minute = minute;
+				timerJobEvent.commit();
+			}
+		}
+	}
+
+	/**
+	 * Start a recording with the {@code profile} settings of JFR, and stop it after some seconds. Only one recording can
+	 * run at the same time.
+	 *
+	 * @param seconds How long the recording lasts, no more than {@link #MAX_RECORD_SECONDS}.
+	 * @param finished Receives the {@code .jfr} file when the recording stopped, or null if it failed to be written.
+	 * The receiver should delete the file after using it.
+	 * @return true if the recording started, false if another recording is running or the recording can't start.
+	 * @since 2.2
+	 * @author Alex Cai
+	 */
+	public static boolean record(long seconds, Consumer<Path> finished)
+	{
+		if (!recording.compareAndSet(false, true)) //已經在錄製了
+			return false;
+
+		Recording jfrRecording;
+		try
+		{
+			jfrRecording = new Recording(Configuration.getConfiguration("profile"));
+		}
+		catch (IOException | ParseException exception)
+		{
+			FileHandle.log(exception);
+			recording.set(false);
+			return false;
+		}
+		jfrRecording.setName("cartoland");
+		jfrRecording.setMaxSize(MAX_RECORD_BYTES);
+		jfrRecording.start();
+
+		stopper.schedule(() ->
+		{
+			Path file = null;
+			try
+			{
+				jfrRecording.stop();
+				file = Files.createTempFile("cartoland-", ".jfr");
+				jfrRecording.dump(file);
+			}
+			catch (IOException exception)
+			{
+				FileHandle.log(exception);
+				if (file != null) //檔案建立了但寫入失敗
+					file.toFile().delete();
+				file = null;
+			}
+			finally
+			{
+				jfrRecording.close();
+				recording.set(false);
+			}
+			finished.accept(file);
+		}, Math.min(seconds, MAX_RECORD_SECONDS), TimeUnit.SECONDS);
+		return true;
+	}
+}
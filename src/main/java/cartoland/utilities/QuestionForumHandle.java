@@ -1,11 +1,11 @@
 package cartoland.utilities;
 
+import cartoland.Cartoland;
 import net.dv8tion.jda.api.EmbedBuilder;
 import net.dv8tion.jda.api.Permission;
 import net.dv8tion.jda.api.entities.Member;
 import net.dv8tion.jda.api.entities.Message;
 import net.dv8tion.jda.api.entities.MessageEmbed;
-import net.dv8tion.jda.api.entities.User;
 import net.dv8tion.jda.api.entities.channel.concrete.ForumChannel;
 import net.dv8tion.jda.api.entities.channel.concrete.ThreadChannel;
 import net.dv8tion.jda.api.entities.channel.forums.ForumTag;
@@ -13,29 +13,25 @@ import net.dv8tion.jda.api.entities.emoji.CustomEmoji;
 import net.dv8tion.jda.api.entities.emoji.Emoji;
 import net.dv8tion.jda.api.events.message.MessageReceivedEvent;
 import net.dv8tion.jda.api.events.message.react.MessageReactionAddEvent;
-import net.dv8tion.jda.api.exceptions.ErrorHandler;
 import net.dv8tion.jda.api.managers.channel.concrete.ThreadChannelManager;
-import net.dv8tion.jda.api.requests.ErrorResponse;
 
 import java.awt.Color;
-import java.time.Duration;
-import java.time.OffsetDateTime;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 public final class QuestionForumHandle
 {
-	private static final QuestionForumHandle instance = new QuestionForumHandle();
 	public static QuestionForumHandle getInstance(ThreadChannel forumPost)
 	{
-		instance.forumPost = forumPost;
-		instance.forumManager = forumPost.getManager();
-		return instance;
+		return new QuestionForumHandle(forumPost); //每篇貼文各自一個 事件可能同時在不同執行緒上處理
 	}
 
 	private static final String UNRESOLVED_QUESTIONS_SET = "unresolved_questions.ser";
 	private static final String RESOLVED_FORMAT = "<:resolved:" + IDs.RESOLVED_EMOJI_ID + '>';
-	private static final long LAST_MESSAGE_HOUR = 48L;
+	private static final String REMIND_TIMES_MAP = "serialize/question_remind_times.ser";
+	private static final long REMIND_MILLISECONDS = 48L * 60 * 60 * 1000; //最後一則訊息的48小時後提醒
 	public static boolean isQuestionPost(ThreadChannel forumPost)
 	{
 		return isQuestionPost(forumPost.getParentChannel().getIdLong());
@@ -45,11 +41,15 @@ public final class QuestionForumHandle
 		return parentID == IDs.QUESTIONS_CHANNEL_ID;
 	}
 
-	private QuestionForumHandle() {}
+	private QuestionForumHandle(ThreadChannel forumPost)
+	{
+		this.forumPost = forumPost;
+		forumManager = forumPost.getManager();
+	}
 
-	private ThreadChannel forumPost;
-	private ThreadChannelManager forumManager;
-	private final MessageEmbed startEmbed = new EmbedBuilder()
+	private final ThreadChannel forumPost;
+	private final ThreadChannelManager forumManager;
+	private static final MessageEmbed startEmbed = new EmbedBuilder()
 			.setTitle("**-=發問指南=-**", "https://discord.com/channels/886936474723950603/1079081061658673253/1079081061658673253")
 			.appendDescription("""
 								-=發問指南=-
@@ -66,8 +66,53 @@ public final class QuestionForumHandle
 								""".formatted(RESOLVED_FORMAT, RESOLVED_FORMAT))
 			.setColor(new Color(133, 201, 103, 255).getRGB()) //創聯的綠色 -8009369
 			.build();
-	@SuppressWarnings("unchecked")
-	private final Set<Long> unresolvedPosts = CastToInstance.modifiableSet(FileHandle.deserialize(UNRESOLVED_QUESTIONS_SET));
+	private static final Set<Long> unresolvedPosts = ConcurrentHashMap.newKeySet();
+	private static final Map<Long, Long> remindTimes = new ConcurrentHashMap<>(); //貼文ID為key 提醒的時間為value 以毫秒為單位
+	private static final Map<Long, TimingWheel.Timer> remindTimers = new ConcurrentHashMap<>(); //用來取消提醒
+
+	static
+	{
+		@SuppressWarnings("unchecked")
+		Set<Long> savedPosts = CastToInstance.modifiableSet(FileHandle.deserialize(UNRESOLVED_QUESTIONS_SET));
+		unresolvedPosts.addAll(savedPosts);
+		@SuppressWarnings("unchecked")
+		Map<Long, Long> savedRemindTimes = CastToInstance.modifiableMap(FileHandle.deserialize(REMIND_TIMES_MAP));
+		remindTimes.putAll(savedRemindTimes);
+		FileHandle.registerSerialize(REMIND_TIMES_MAP, remindTimes);
+	}
+
+	/**
+	 * Arm the reminders that were saved when the bot went offline. This method will be called in
+	 * {@link cartoland.events.BotOnlineOffline#onReady} when the bot is online. The reminders that should have been
+	 * sent while the bot was offline are sent in the next minute.
+	 *
+	 * @since 2.2
+	 * @author Alex Cai
+	 */
+	public static void startReminders()
+	{
+		for (Map.Entry<Long, Long> postAndTime : remindTimes.entrySet())
+			scheduleRemind(postAndTime.getKey(), postAndTime.getValue());
+	}
+
+	private static void scheduleRemind(long postID, long remindTime)
+	{
+		remindTimes.put(postID, remindTime);
+		remindTimers.compute(postID, (id, oldTimer) ->
+		{
+			if (oldTimer != null) //有人說話 重新計時
+				TimerHandle.cancel(oldTimer);
+			return TimerHandle.runAtMinute("forum_remind", remindTime, () -> remind(postID, remindTime));
+		});
+	}
+
+	private static void cancelRemind(long postID)
+	{
+		remindTimes.remove(postID);
+		TimingWheel.Timer timer = remindTimers.remove(postID);
+		if (timer != null)
+			TimerHandle.cancel(timer);
+	}
 
 	public void createEvent()
 	{
@@ -91,7 +136,12 @@ public final class QuestionForumHandle
 	{
 		Message message = event.getMessage();
 		if (forumPost.getIdLong() == message.getIdLong()) //是第一則訊息
+		{
 			forumPost.sendMessageEmbeds(startEmbed).queue(); //傳送發問指南
+			cancelRemind(forumPost.getIdLong()); //最後一則訊息是機器人的指南 不用提醒
+		}
+		else //MessageEvent已經排除了機器人和系統 所以這是成員最後的發言
+			scheduleRemind(forumPost.getIdLong(), message.getTimeCreated().toInstant().toEpochMilli() + REMIND_MILLISECONDS);
 		if (message.getContentRaw().equals(RESOLVED_FORMAT)) //輸入了resolved表情符號
 			typedResolved(message);
 	}
@@ -114,29 +164,28 @@ public final class QuestionForumHandle
 		forumManager.setAppliedTags(tags).queue(); //貼文狀態為未解決
 	}
 
-	public void remind()
+	private static void remind(long postID, long remindTime)
 	{
-		if (forumPost.isArchived())
+		if (!remindTimes.remove(postID, remindTime)) //剛好有人說話 已經重新計時了
 			return;
-		forumPost.retrieveMessageById(forumPost.getLatestMessageIdLong()).queue(lastMessage ->
-		{
-			User author = lastMessage.getAuthor();
-			if (author.isBot() || author.isSystem() || Duration.between(lastMessage.getTimeCreated(), OffsetDateTime.now()).toHours() != LAST_MESSAGE_HOUR)
-				return; //是機器人或系統 或上次有人發言不是在LAST_MESSAGE_HOUR小時前 就不用執行
-
-			String mentionOwner = "<@" + forumPost.getOwnerId() + ">"; //注意這裡使用String型別的get id
-			forumPost.sendMessage(mentionOwner + "，你的問題解決了嗎？如果已經解決了，記得使用`:resolved:` " + RESOLVED_FORMAT + " 表情符號關閉貼文。\n" +
-								"如果還沒解決，可以嘗試在問題中加入更多資訊。\n" +
-								mentionOwner + ", did your question got a solution? If it did, remember to close this post using `:resolved:` " + RESOLVED_FORMAT + " emoji.\n" +
-								"If it didn't, try offer more information of question.")
-					.queue(); //提醒開串者
-		}, new ErrorHandler().ignore(ErrorResponse.UNKNOWN_MESSAGE));
+		remindTimers.remove(postID); //提醒一次就好 有人再說話才會重新計時
+		ThreadChannel forumPost = Cartoland.getJDA().getThreadChannelById(postID); //從快取中找 不需要向Discord查詢
+		if (forumPost == null || forumPost.isArchived()) //貼文被刪除或關閉了
+			return;
+
+		String mentionOwner = "<@" + forumPost.getOwnerId() + ">"; //注意這裡使用String型別的get id
+		forumPost.sendMessage(mentionOwner + "，你的問題解決了嗎？如果已經解決了，記得使用`:resolved:` " + RESOLVED_FORMAT + " 表情符號關閉貼文。\n" +
+							"如果還沒解決，可以嘗試在問題中加入更多資訊。\n" +
+							mentionOwner + ", did your question got a solution? If it did, remember to close this post using `:resolved:` " + RESOLVED_FORMAT + " emoji.\n" +
+							"If it didn't, try offer more information of question.")
+				.queue(); //提醒開串者
 	}
 
 	private void typedResolved(Message message)
 	{
 		if (!unresolvedPosts.remove(forumPost.getIdLong()))
 			return; //已經resolved了
+		cancelRemind(forumPost.getIdLong()); //解決了就不用提醒
 
 		message.addReaction(Emoji.fromCustom("resolved", IDs.RESOLVED_EMOJI_ID, false)).queue();
 
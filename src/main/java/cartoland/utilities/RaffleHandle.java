@@ -0,0 +1,209 @@
+package cartoland.utilities;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.random.RandomGenerator;
+
+/**
+ * {@code RaffleHandle} is a utility class that handles the raffle of {@code /lottery draw}. Users buy tickets with
+ * command blocks, and the winners are drawn in proportion to their tickets. Tickets are kept in a Fenwick tree, so
+ * buying a ticket and drawing a winner are both O(log n) no matter how many users joined. Multiple winners are drawn
+ * without replacement, and the pot is shared by them, the first winner also gets what can't be shared equally. Tickets
+ * are serialized when the bot goes offline, from a copy taken with the lock of the tickets. Can not be instantiated or
+ * inherited.
+ *
+ * @since 2.2
+ * @author Alex Cai
+ */
+public final class RaffleHandle
+{
+	private RaffleHandle()
+	{
+		throw new AssertionError(IDs.YOU_SHALL_NOT_ACCESS);
+	}
+
+	public static final long TICKET_PRICE = 100L; //一張彩券的價格
+	private static final String TICKETS_FILE_NAME = "serialize/raffle_tickets.ser";
+
+	//會有unchecked assignment的警告 but I did it anyway
+	@SuppressWarnings("unchecked")
+	private static final Map<Long, Long> tickets = CastToInstance.modifiableMap(FileHandle.deserialize(TICKETS_FILE_NAME)); //使用者ID為key 彩券數為value
+
+	private static final Map<Long, Integer> slots = new HashMap<>(); //使用者在樹中的位置 從1開始
+	private static long[] tree = new long[16]; //Fenwick tree tree[0]不使用
+	private static long[] users = new long[16]; //每個位置的使用者ID
+	private static int used = 0; //已經使用的位置數
+	private static long total = 0L; //彩券總數
+
+	static
+	{
+		FileHandle.registerSerialize(TICKETS_FILE_NAME, () ->
+		{
+			synchronized (tickets) //序列化時不能被改變
+			{
+				return new HashMap<>(tickets);
+			}
+		});
+		for (Map.Entry<Long, Long> userAndTickets : tickets.entrySet()) //建立樹
+		{
+			add(slotOf(userAndTickets.getKey()), userAndTickets.getValue());
+			total += userAndTickets.getValue();
+		}
+	}
+
+	/**
+	 * Buy tickets for a user. The command blocks are taken by
+	 * {@link CommandBlocksHandle.LotteryData#compareAndSetBlocks(long, long, String)}.
+	 *
+	 * @param userID The ID of the user.
+	 * @param amount The amount of tickets to buy.
+	 * @return true if the tickets were bought, false if the user doesn't have enough command blocks.
+	 * @since 2.2
+	 * @author Alex Cai
+	 */
+	public static boolean buy(long userID, long amount)
+	{
+		CommandBlocksHandle.LotteryData lotteryData = CommandBlocksHandle.getLotteryData(userID);
+		long cost = amount * TICKET_PRICE;
+		long nowHave;
+		do
+		{
+			nowHave = lotteryData.getBlocks();
+			if (nowHave < cost) //不夠買
+				return false;
+		}
+		while (!lotteryData.compareAndSetBlocks(nowHave, nowHave - cost, LedgerHandle.RAFFLE)); //其他互動同時改變了方塊 就重新檢查
+
+		synchronized (tickets)
+		{
+			tickets.merge(userID, amount, Long::sum);
+			add(slotOf(userID), amount);
+			total += amount;
+		}
+		return true;
+	}
+
+	public static long ticketsOf(long userID)
+	{
+		synchronized (tickets)
+		{
+			return tickets.getOrDefault(userID, 0L);
+		}
+	}
+
+	public static long totalTickets()
+	{
+		synchronized (tickets)
+		{
+			return total;
+		}
+	}
+
+	/**
+	 * Split a pot among winners. Every winner gets the same prize, and the first winner also gets the remainder, so
+	 * no command blocks are lost.
+	 *
+	 * @param pot The command blocks of the pot.
+	 * @param winnersCount The amount of winners, must be positive.
+	 * @return The prizes, in the same order as the winners.
+	 * @since 2.2
+	 * @author Alex Cai
+	 */
+	public static long[] split(long pot, int winnersCount)
+	{
+		long[] prizes = new long[winnersCount];
+		Arrays.fill(prizes, pot / winnersCount);
+		prizes[0] += pot % winnersCount; //分不完的給第一位
+		return prizes;
+	}
+
+	/**
+	 * Draw winners in proportion to their tickets, without replacement. The pot is shared by the winners as
+	 * {@link #split(long, int)}, then every ticket is cleared.
+	 *
+	 * @param winnersCount The amount of winners, will be reduced to the amount of users who have tickets.
+	 * @return The IDs of the winners in the order they were drawn, or an empty array if nobody has tickets.
+	 * @since 2.2
+	 * @author Alex Cai
+	 */
+	public static long[] draw(int winnersCount)
+	{
+		long[] winners;
+		long[] prizes;
+		synchronized (tickets)
+		{
+			winnersCount = Math.min(winnersCount, tickets.size());
+			winners = new long[winnersCount];
+			if (winnersCount == 0) //沒有人買
+				return winners;
+
+			RandomGenerator random = Algorithm.random();
+			long remaining = total;
+			for (int i = 0; i < winnersCount; i++)
+			{
+				int slot = find(random.nextLong(remaining)); //依照彩券數量抽出
+				winners[i] = users[slot];
+				long winnerTickets = tickets.get(users[slot]);
+				add(slot, -winnerTickets); //同一個人不會再被抽中
+				remaining -= winnerTickets;
+			}
+			prizes = split(total * TICKET_PRICE, winnersCount);
+
+			tickets.clear(); //開始新的一輪
+			slots.clear();
+			Arrays.fill(tree, 0L);
+			used = 0;
+			total = 0L;
+		}
+
+		for (int i = 0; i < winners.length; i++) //每一筆都會記進帳本
+			CommandBlocksHandle.getLotteryData(winners[i]).addBlocks(prizes[i], LedgerHandle.RAFFLE);
+		return winners;
+	}
+
+	private static int slotOf(long userID)
+	{
+		Integer slot = slots.get(userID);
+		if (slot != null)
+			return slot;
+		if (++used == tree.length) //滿了
+		{
+			tree = Arrays.copyOf(tree, tree.length << 1);
+			users = Arrays.copyOf(users, users.length << 1);
+			rebuild(); //長度改變 上層的節點要重新計算
+		}
+		users[used] = userID;
+		slots.put(userID, used);
+		return used;
+	}
+
+	private static void add(int slot, long delta)
+	{
+		for (; slot < tree.length; slot += slot & -slot)
+			tree[slot] += delta;
+	}
+
+	//找出前綴和大於target的最小位置
+	private static int find(long target)
+	{
+		int slot = 0;
+		for (int step = Integer.highestOneBit(tree.length - 1); step != 0; step >>= 1)
+		{
+			int next = slot + step;
+			if (next < tree.length && tree[next] <= target)
+			{
+				slot = next;
+				target -= tree[next];
+			}
+		}
+		return slot + 1;
+	}
+
+	private static void rebuild()
+	{
+		Arrays.fill(tree, 0L);
+		for (int slot = 1; slot < used; slot++) //used是新的位置 還沒有彩券
+			add(slot, tickets.getOrDefault(users[slot], 0L));
+	}
+}
@@ -0,0 +1,205 @@
+package cartoland.utilities;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * {@code RankIndex} is an order-statistic treap of lottery data, ordered by command blocks (more first) and then by
+ * user ID. Every node knows the size of its subtree, so the rank of a user and a range of ranks can be found in
+ * O(log n) and O(log n + k). It is used by {@link CommandBlocksHandle} to answer {@code /lottery ranking} without
+ * sorting every user. All methods lock the index itself.
+ *
+ * @since 2.2
+ * @author Alex Cai
+ */
+final class RankIndex
+{
+	private Node root;
+	private final SplittableRandom random = new SplittableRandom();
+
+	/**
+	 * A node of the treap. The key is ({@link #blocks}, {@link #userID}) at the time it was inserted.
+	 *
+	 * @since 2.2
+	 * @author Alex Cai
+	 */
+	private static final class Node
+	{
+		private final long blocks;
+		private final long userID;
+		private final CommandBlocksHandle.LotteryData data;
+		private final int priority;
+		private Node left;
+		private Node right;
+		private int size = 1; //包含自己的子樹大小
+
+		private Node(long blocks, long userID, CommandBlocksHandle.LotteryData data, int priority)
+		{
+			this.blocks = blocks;
+			this.userID = userID;
+			this.data = data;
+			this.priority = priority;
+		}
+	}
+
+	synchronized void insert(long blocks, long userID, CommandBlocksHandle.LotteryData data)
+	{
+		root = insert(root, new Node(blocks, userID, data, random.nextInt()));
+	}
+
+	synchronized void remove(long blocks, long userID)
+	{
+		root = remove(root, blocks, userID);
+	}
+
+	synchronized int size()
+	{
+		return sizeOf(root);
+	}
+
+	/**
+	 * Find the rank of a key.
+	 *
+	 * @param blocks The command blocks of the user.
+	 * @param userID The ID of the user.
+	 * @return The rank of the user, starts from 1, or 0 if the key isn't in the index.
+	 * @since 2.2
+	 * @author Alex Cai
+	 */
+	synchronized int rankOf(long blocks, long userID)
+	{
+		int rank = 0;
+		for (Node node = root; node != null;)
+		{
+			int compare = compare(blocks, userID, node);
+			if (compare < 0)
+				node = node.left;
+			else if (compare > 0)
+			{
+				rank += sizeOf(node.left) + 1; //左子樹和自己都在前面
+				node = node.right;
+			}
+			else
+				return rank + sizeOf(node.left) + 1;
+		}
+		return 0;
+	}
+
+	/**
+	 * Get a range of ranks.
+	 *
+	 * @param from The first rank of the range, starts from 0.
+	 * @param count The maximum amount of ranks.
+	 * @return The lottery data in the range, in the order of ranks.
+	 * @since 2.2
+	 * @author Alex Cai
+	 */
+	synchronized List<CommandBlocksHandle.LotteryData> range(int from, int count)
+	{
+		List<CommandBlocksHandle.LotteryData> ranks = new ArrayList<>(count);
+		collect(root, from, from + count, 0, ranks);
+		return ranks;
+	}
+
+	private static void collect(Node node, int from, int to, int offset, List<CommandBlocksHandle.LotteryData> ranks)
+	{
+		if (node == null)
+			return;
+		int index = offset + sizeOf(node.left); //這個節點的名次
+		if (from < index) //範圍有一部分在左子樹
+			collect(node.left, from, to, offset, ranks);
+		if (from <= index && index < to)
+			ranks.add(node.data);
+		if (index + 1 < to) //範圍有一部分在右子樹
+			collect(node.right, from, to, index + 1, ranks);
+	}
+
+	private static Node insert(Node node, Node newNode)
+	{
+		if (node == null)
+			return newNode;
+		if (compare(newNode.blocks, newNode.userID, node) < 0)
+		{
+			node.left = insert(node.left, newNode);
+			if (node.left.priority > node.priority)
+				node = rotateRight(node);
+		}
+		else
+		{
+			node.right = insert(node.right, newNode);
+			if (node.right.priority > node.priority)
+				node = rotateLeft(node);
+		}
+		update(node);
+		return node;
+	}
+
+	private static Node remove(Node node, long blocks, long userID)
+	{
+		if (node == null) //找不到
+			return null;
+		int compare = compare(blocks, userID, node);
+		if (compare < 0)
+			node.left = remove(node.left, blocks, userID);
+		else if (compare > 0)
+			node.right = remove(node.right, blocks, userID);
+		else
+			return merge(node.left, node.right);
+		update(node);
+		return node;
+	}
+
+	private static Node merge(Node left, Node right)
+	{
+		if (left == null)
+			return right;
+		if (right == null)
+			return left;
+		if (left.priority > right.priority)
+		{
+			left.right = merge(left.right, right);
+			update(left);
+			return left;
+		}
+		right.left = merge(left, right.left);
+		update(right);
+		return right;
+	}
+
+	private static Node rotateRight(Node node)
+	{
+		Node left = node.left;
+		node.left = left.right;
+		update(node);
+		left.right = node;
+		update(left);
+		return left;
+	}
+
+	private static Node rotateLeft(Node node)
+	{
+		Node right = node.right;
+		node.right = right.left;
+		update(node);
+		right.left = node;
+		update(right);
+		return right;
+	}
+
+	private static void update(Node node)
+	{
+		node.size = sizeOf(node.left) + sizeOf(node.right) + 1;
+	}
+
+	private static int sizeOf(Node node)
+	{
+		return node != null ? node.size : 0;
+	}
+
+	private static int compare(long blocks, long userID, Node node)
+	{
+		int compare = Long.compare(node.blocks, blocks); //方塊較多的在前面
+		return compare != 0 ? compare : Long.compare(userID, node.userID);
+	}
+}
@@ -0,0 +1,213 @@
+package cartoland.utilities;
+
+import cartoland.Cartoland;
+import cartoland.buttons.IButton;
+import net.dv8tion.jda.api.entities.Guild;
+import net.dv8tion.jda.api.interactions.components.ActionRow;
+import net.dv8tion.jda.api.interactions.components.buttons.Button;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * {@code RankingHandle} is a utility class that renders the pages of {@code /lottery ranking}. A rendered page is
+ * cached by the version of the ranking, the language and the first rank of the page, so users who look at the same
+ * page, or turn pages by the buttons, reuse it until the ranking changes. The line of the user's own rank and the
+ * highlight of the user's row are spliced into the cached page for every reply. Can not be instantiated or inherited.
+ *
+ * @since 2.2
+ * @author Alex Cai
+ */
+public final class RankingHandle
+{
+	private RankingHandle()
+	{
+		throw new AssertionError(IDs.YOU_SHALL_NOT_ACCESS);
+	}
+
+	public static final int PAGE_SIZE = 10; //一頁10名
+	private static final String ROW_START = "[\u001B[36m"; //一般的名次用藍色
+	private static final String MY_ROW_START = "[\u001B[33m"; //自己用黃色標示
+
+	private static final Map<PageKey, Page> pages = new ConcurrentHashMap<>();
+	private static volatile long cachedVersion = -1L; //快取中最新的排名版本
+
+	private record PageKey(long version, String language, int start) {}
+
+	/**
+	 * A rendered page. {@link #rows} don't have the start of the rank, which is different for the user himself.
+	 *
+	 * @since 2.2
+	 * @author Alex Cai
+	 */
+	private record Page(String header, String[] rows, CommandBlocksHandle.LotteryData[] ranks, String footer, int length) {}
+
+	/**
+	 * Get the first rank of a page.
+	 *
+	 * @param inputPage The page that the user typed, starts from 1. 0 is the first page, -1 is the last page, -2 is
+	 * the second last page, and so on.
+	 * @return The first rank of the page, starts from 0.
+	 * @since 2.2
+	 * @author Alex Cai
+	 */
+	public static int pageStart(int inputPage)
+	{
+		//假設總共有27位使用者 (27 - 1) / 10 + 1 = 3 總共有3頁
+		int maxPage = maxPage(CommandBlocksHandle.rankingSize());
+		int page;
+		if (inputPage > maxPage) //超出範圍
+			page = maxPage; //同上例子 就改成顯示第3頁
+		else if (inputPage < 0) //-1 = 最後一頁, -2 = 倒數第二頁 負太多就變第一頁
+			page = (-inputPage < maxPage) ? maxPage + inputPage + 1 : 1;
+		else
+			page = Math.max(inputPage, 1); //0就當作第1頁
+		return (page - 1) * PAGE_SIZE;
+	}
+
+	/**
+	 * Get the first rank of the ranks around a user, which puts the user in the middle.
+	 *
+	 * @param userID The ID of the user.
+	 * @return The first rank, starts from 0.
+	 * @since 2.2
+	 * @author Alex Cai
+	 */
+	public static int aroundStart(long userID)
+	{
+		int myRank = CommandBlocksHandle.rankOf(CommandBlocksHandle.getLotteryData(userID));
+		return Math.max(0, Math.min(myRank - 1 - PAGE_SIZE / 2, CommandBlocksHandle.rankingSize() - PAGE_SIZE)); //自己大約在中間 但不超出範圍
+	}
+
+	/**
+	 * Clamp the first rank of a page that came from a button, since the ranking might be smaller than when the button
+	 * was created.
+	 *
+	 * @param start The first rank of the page.
+	 * @return The first rank that is in the ranking.
+	 * @since 2.2
+	 * @author Alex Cai
+	 */
+	public static int clampStart(int start)
+	{
+		return Math.max(0, Math.min(start, CommandBlocksHandle.rankingSize() - 1));
+	}
+
+	/**
+	 * Render a page of the ranking for a user.
+	 *
+	 * @param userID The ID of the user who looks at the page.
+	 * @param start The first rank of the page, starts from 0.
+	 * @return The page in a single string.
+	 * @since 2.2
+	 * @author Alex Cai
+	 */
+	public static String render(long userID, int start)
+	{
+		CommandBlocksHandle.LotteryData myData = CommandBlocksHandle.getLotteryData(userID); //確保自己也在排名內
+		int myRank = CommandBlocksHandle.rankOf(myData);
+		Page page = page(userID, start);
+
+		StringBuilder pageBuilder = new StringBuilder(page.length + 128) //128給自己的名次
+				.append(page.header)
+				.append(JsonHandle.getString(userID, "lottery.ranking.my_rank", myRank, myData.getBlocks()))
+				.append("\n\n");
+		for (int i = 0; i < page.rows.length; i++)
+			pageBuilder.append(page.ranks[i] == myData ? MY_ROW_START : ROW_START).append(page.rows[i]);
+		return pageBuilder.append(page.footer).toString();
+	}
+
+	/**
+	 * Create the buttons that turn pages. The ID of a button is {@link IButton#RANKING_PAGE}, the ID of the user who
+	 * the page belongs to and the first rank of the page to turn to, separated by {@code :}.
+	 *
+	 * @param userID The ID of the user who looks at the page.
+	 * @param start The first rank of the current page.
+	 * @return The row of the previous page button and the next page button.
+	 * @since 2.2
+	 * @author Alex Cai
+	 */
+	public static ActionRow buttons(long userID, int start)
+	{
+		String prefix = IButton.RANKING_PAGE + ':' + userID + ':';
+		int previous = Math.max(0, start - PAGE_SIZE);
+		int next = start + PAGE_SIZE;
+		return ActionRow.of(
+				Button.secondary(prefix + previous, "◀").withDisabled(start == 0),
+				Button.secondary(prefix + next, "▶").withDisabled(next >= CommandBlocksHandle.rankingSize()));
+	}
+
+	private static Page page(long userID, int start)
+	{
+		long version = CommandBlocksHandle.getRankingVersion();
+		if (version != cachedVersion) //排名改變過了
+		{
+			cachedVersion = version;
+			pages.keySet().removeIf(key -> key.version < version); //舊版本的頁面不會再被用到
+		}
+		PageKey key = new PageKey(version, JsonHandle.getLanguage(userID), start);
+		Page page = pages.get(key);
+		if (page == null) //還沒產生過
+		{
+			page = renderPage(userID, start);
+			pages.put(key, page); //就算同時有人產生同一頁 結果也一樣
+		}
+		return page;
+	}
+
+	private static Page renderPage(long userID, int start)
+	{
+		List<CommandBlocksHandle.LotteryData> ranking = CommandBlocksHandle.ranking(start, PAGE_SIZE); //要查看的那一頁
+		int size = ranking.size();
+
+		Guild cartoland = Cartoland.getJDA().getGuildById(IDs.CARTOLAND_SERVER_ID);
+		String header = "```ansi\n" + JsonHandle.getString(userID, "lottery.ranking.title", cartoland != null ? cartoland.getName() : "") +
+				"\n--------------------\n";
+
+		String[] rows = new String[size];
+		CommandBlocksHandle.LotteryData[] ranks = ranking.toArray(new CommandBlocksHandle.LotteryData[0]);
+		StringBuilder rowBuilder = new StringBuilder(64);
+		int length = header.length();
+		for (int i = 0; i < size; i++)
+		{
+			rowBuilder.setLength(0);
+			appendPadded(rowBuilder, start + i + 1);
+			rowBuilder.append("\u001B[0m]\t")
+					.append(ranks[i].getName())
+					.append(": \u001B[36m");
+			appendGrouped(rowBuilder, ranks[i].getBlocks());
+			rows[i] = rowBuilder.append("\u001B[0m\n").toString();
+			length += ROW_START.length() + rows[i].length();
+		}
+
+		String footer = "\n--------------------\n" + (start / PAGE_SIZE + 1) + " / " + maxPage(CommandBlocksHandle.rankingSize()) + "\n```";
+		return new Page(header, rows, ranks, footer, length + footer.length());
+	}
+
+	private static int maxPage(int size)
+	{
+		return Math.max((size - 1) / PAGE_SIZE + 1, 1);
+	}
+
+	private static void appendPadded(StringBuilder builder, int rank)
+	{
+		if (rank < 100) //補到3位數 和%03d相同
+			builder.append(rank < 10 ? "00" : "0");
+		builder.append(rank);
+	}
+
+	private static void appendGrouped(StringBuilder builder, long value)
+	{
+		if (value < 0L)
+		{
+			builder.append('-');
+			value = -value;
+		}
+		String digits = Long.toString(value);
+		int firstGroup = (digits.length() - 1) % 3 + 1; //第一組的位數 和%,d相同
+		builder.append(digits, 0, firstGroup);
+		for (int i = firstGroup; i < digits.length(); i += 3)
+			builder.append(',').append(digits, i, i + 3);
+	}
+}
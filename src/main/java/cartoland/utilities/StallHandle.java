@@ -0,0 +1,145 @@
+package cartoland.utilities;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code StallHandle} is a utility class that detects events that run for too long. Every listener dispatch calls
+ * {@link #enter} before it starts and {@link #exit} after it finished. A scanner checks the running events every
+ * second, and when one of them has been running longer than {@link #THRESHOLD_NANOS} (can be changed by
+ * {@code -Dcartoland.stall_threshold=} in milliseconds), the stack of its thread is written into the log, along with
+ * the type of the event and the user. Stalls are also counted by {@link MetricsHandle}. Can not be instantiated or
+ * inherited.
+ *
+ * @since 2.2
+ * @author Alex Cai
+ */
+public final class StallHandle
+{
+	private StallHandle()
+	{
+		throw new AssertionError(IDs.YOU_SHALL_NOT_ACCESS);
+	}
+
+	private static final long THRESHOLD_NANOS = TimeUnit.MILLISECONDS.toNanos(Long.getLong("cartoland.stall_threshold", 3000L));
+
+	private static final Set<InFlight> inFlights = ConcurrentHashMap.newKeySet(); //正在執行的事件
+	private static final ThreadLocal<InFlight> current = new ThreadLocal<>(); //這個執行緒正在執行的事件
+	private static final ScheduledExecutorService scanner = Executors.newSingleThreadScheduledExecutor(runnable ->
+	{
+		Thread thread = new Thread(runnable, "StallHandle");
+		thread.setDaemon(true); //不阻止程式結束
+		return thread;
+	});
+
+	static
+	{
+		scanner.scheduleWithFixedDelay(StallHandle::scan, 1L, 1L, TimeUnit.SECONDS);
+	}
+
+	/**
+	 * An event that is running on a thread.
+	 *
+	 * @since 2.2
+	 * @author Alex Cai
+	 */
+	public static final class InFlight
+	{
+		private final Thread thread = Thread.currentThread();
+		private final long startNanos = System.nanoTime();
+		private final String eventType;
+		private final long userID;
+		private final InFlight previous; //同一個執行緒上 外層的事件
+		private volatile boolean stalled = false;
+
+		private InFlight(String eventType, long userID, InFlight previous)
+		{
+			this.eventType = eventType;
+			this.userID = userID;
+			this.previous = previous;
+		}
+	}
+
+	/**
+	 * Mark that the current thread starts to handle an event.
+	 *
+	 * @param eventType The type of the event, usually the name of the listener and the name of the event.
+	 * @param userID The ID of the user who caused the event, or 0 if there isn't one.
+	 * @return The mark that should be passed to {@link #exit} when the event finished.
+	 * @since 2.2
+	 * @author Alex Cai
+	 */
+	public static InFlight enter(String eventType, long userID)
+	{
+		InFlight inFlight = new InFlight(eventType, userID, current.get());
+		current.set(inFlight);
+		inFlights.add(inFlight);
+		return inFlight;
+	}
+
+	/**
+	 * Continue the event that the current thread is handling on another thread. This is used by
+	 * {@link ExecutionHandle#dispatch} when the handler runs on a virtual thread.
+	 *
+	 * @param handler The handler of the event.
+	 * @return A task that marks the event on the thread it runs on.
+	 * @since 2.2
+	 * @author Alex Cai
+	 */
+	static Runnable propagate(Runnable handler)
+	{
+		InFlight dispatcher = current.get();
+		if (dispatcher == null) //不是在事件中呼叫的
+			return handler;
+		String eventType = dispatcher.eventType;
+		long userID = dispatcher.userID;
+		return () ->
+		{
+			InFlight inFlight = enter(eventType, userID);
+			try
+			{
+				handler.run();
+			}
+			finally
+			{
+				exit(inFlight);
+			}
+		};
+	}
+
+	/**
+	 * Mark that the current thread finished handling an event.
+	 *
+	 * @param inFlight The mark returned by {@link #enter}.
+	 * @since 2.2
+	 * @author Alex Cai
+	 */
+	public static void exit(InFlight inFlight)
+	{
+		inFlights.remove(inFlight);
+		current.set(inFlight.previous);
+		if (inFlight.stalled) //曾經卡住過 記錄總共花了多久
+			MetricsHandle.recordStall(inFlight.eventType, inFlight.startNanos);
+	}
+
+	private static void scan()
+	{
+		long now = System.nanoTime();
+		for (InFlight inFlight : inFlights)
+		{
+			if (inFlight.stalled || now - inFlight.startNanos < THRESHOLD_NANOS) //已經回報過 或還沒超過時間
+				continue;
+			inFlight.stalled = true; //只回報一次
+			MetricsHandle.countStall(inFlight.eventType);
+
+			StringBuilder stackBuilder = new StringBuilder();
+			for (StackTraceElement trace : inFlight.thread.getStackTrace()) //卡住的地方
+				stackBuilder.append("\n\t").append(trace);
+			FileHandle.log("stall ", inFlight.eventType, " user ", Long.toUnsignedString(inFlight.userID), " running ",
+					TimeUnit.NANOSECONDS.toMillis(now - inFlight.startNanos), "ms on ", inFlight.thread.getName(), stackBuilder);
+		}
+	}
+}
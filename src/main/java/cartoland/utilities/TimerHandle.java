@@ -1,20 +1,26 @@
 package cartoland.utilities;
 
 import cartoland.Cartoland;
-import cartoland.commands.AdminCommand;
-import net.dv8tion.jda.api.entities.channel.concrete.ForumChannel;
+import net.dv8tion.jda.api.entities.Message;
 import net.dv8tion.jda.api.entities.channel.concrete.TextChannel;
-import net.dv8tion.jda.api.entities.channel.concrete.ThreadChannel;
+import net.dv8tion.jda.api.entities.channel.middleman.MessageChannel;
 
+import java.io.File;
 import java.io.Serial;
 import java.io.Serializable;
 import java.time.*;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
- * {@code TimerHandle} is a utility class that handles schedule. Including checking if functions should execute in every
- * hour or handle {@code /admin temp_ban} with scheduled service. Can not be instantiated or inherited.
+ * {@code TimerHandle} is a utility class that handles schedule. Including running functions at a time of every day with
+ * a {@link TimingWheel} that ticks every minute, or run a function at an exact time with scheduled service. Every tick
+ * reads the clock again, so the minutes missed by a suspended machine are caught up. The jobs of a tick run on a
+ * bounded pool of workers, each with a timeout and its own exception handling, so a slow or failing job doesn't delay
+ * the others. Jobs that must keep their order, such as scheduled messages, run one after another on a single lane,
+ * each with its own timeout, and the batch of the next tick waits until the batch before it finished. Can not be
+ * instantiated or inherited.
  *
  * @since 2.1
  * @author Alex Cai
@@ -26,10 +32,55 @@ public final class TimerHandle
 		throw new AssertionError(IDs.YOU_SHALL_NOT_ACCESS);
 	}
 
-	public record TimerEvent(byte hour, Runnable function) implements Serializable
+	/**
+	 * A job that runs in the order it was scheduled, after the sequential jobs before it in the same tick.
+	 *
+	 * @param function The function of the job.
+	 * @since 2.2
+	 * @author Alex Cai
+	 */
+	private record Sequential(Runnable function) implements Runnable
+	{
+		@Override
+		public void run()
+		{
+			function.run();
+		}
+	}
+
+	/**
+	 * A function that runs at a time of every day.
+	 *
+	 * @param name The name of the timer, used by metrics and profiling, such as {@code flush_log}.
+	 * @param hour The hour in UTC+8.
+	 * @param minute The minute.
+	 * @param function The function to run.
+	 * @since 2.1
+	 * @author Alex Cai
+	 */
+	public record TimerEvent(String name, byte hour, byte minute, Runnable function)
+	{
+		public TimerEvent(String name, byte hour, Runnable function)
+		{
+			this(name, hour, (byte) 0, function); //整點
+		}
+	}
+
+	/**
+	 * A scheduled message of {@code /schedule}. It only has plain data, so it can be serialized and deserialized
+	 * without any code. The timer is rebuilt from {@link #cron} when the bot starts.
+	 *
+	 * @param channelID The ID of the channel to send the message to.
+	 * @param content The content of the message.
+	 * @param cron The cron expression of when to send, see {@link CronExpression}.
+	 * @param once If the message is deleted after it was sent.
+	 * @since 2.2
+	 * @author Alex Cai
+	 */
+	public record ScheduledMessage(long channelID, String content, String cron, boolean once) implements Serializable
 	{
 		@Serial
-		private static final long serialVersionUID = 2_718281828459045235L;
+		private static final long serialVersionUID = 1_602176634L;
 	}
 
 	public record Birthday(byte month, byte date) implements Serializable
@@ -70,55 +121,76 @@ public final class TimerHandle
 
 	private static final short DAYS = 366; //一年有366天
 	private static final short HOURS = 24; //一天有24小時
+	private static final long MINUTES_PER_HOUR = 60L;
+	private static final long MINUTES_PER_DAY = HOURS * MINUTES_PER_HOUR;
+	private static final long UTC8_OFFSET = 8 * MINUTES_PER_HOUR; //UTC+8比UTC快8小時
 
 	private static final String BIRTHDAY_MAP = "serialize/birthday_map.ser";
-	private static final String SCHEDULED_EVENTS = "serialize/scheduled_events.ser";
+	private static final String SCHEDULED_MESSAGES = "serialize/scheduled_messages.ser";
+	private static final String LEGACY_SCHEDULED_EVENTS = "serialize/scheduled_events.ser"; //舊版存的是lambda 無法還原
+	private static final AtomicReference<String> legacyNotice = new AtomicReference<>(); //舊版的排程被捨棄了 只通知一次
 
 	@SuppressWarnings("unchecked") //閉嘴IntelliJ IDEA
 	private static final Map<Long, Birthday> idToBirthday = CastToInstance.modifiableMap(FileHandle.deserialize(BIRTHDAY_MAP));
-	private static final Map<Birthday, Set<Long>> birthdayToIDs = HashMap.newHashMap(DAYS);
+	private static final BirthdayIndex birthdayIndex = new BirthdayIndex(DAYS); //修改生日時要鎖住它
 
-	@SuppressWarnings({"unchecked"}) //閉嘴IntelliJ IDEA
-	private static final Set<Runnable>[] hourRunFunctions = new LinkedHashSet[HOURS]; //用LinkedHashSet確保訊息根據schedule的順序發送
-	@SuppressWarnings("unchecked") //閉嘴IntelliJ IDEA
-	private static final Map<String, TimerEvent> scheduledEvents = CastToInstance.modifiableMap(FileHandle.deserialize(SCHEDULED_EVENTS)); //timer event是匿名的 scheduled event是有名字的
-	private static final Set<TimerEvent> toBeRemoved = new HashSet<>(); //不能直接在Runnable裡呼叫unregister
+	private static final TimingWheel wheel = new TimingWheel(minutesFrom1970()); //同一分鐘的計時器會根據註冊的順序執行
+	private static final Map<String, ScheduledMessage> scheduledMessages = new ConcurrentHashMap<>(); //timer event是匿名的 scheduled message是有名字的
+	private static final Map<String, TimingWheel.Timer> scheduledTimers = new ConcurrentHashMap<>(); //每個排程下一次發送的計時器
 
 	static
 	{
 		FileHandle.registerSerialize(BIRTHDAY_MAP, idToBirthday);
-		FileHandle.registerSerialize(SCHEDULED_EVENTS, scheduledEvents);
-
-		for (int i = 0 ; i < DAYS; i++)
-			birthdayToIDs.put(Birthday.cache[i], new HashSet<>()); //準備366天份的HashSet
+		@SuppressWarnings("unchecked") //閉嘴IntelliJ IDEA
+		Map<String, ScheduledMessage> savedMessages = CastToInstance.modifiableMap(FileHandle.deserialize(SCHEDULED_MESSAGES));
+		for (Map.Entry<String, ScheduledMessage> nameAndMessage : savedMessages.entrySet()) //從描述重建計時器
+			registerScheduledMessage(nameAndMessage.getKey(), nameAndMessage.getValue());
+		FileHandle.registerSerialize(SCHEDULED_MESSAGES, scheduledMessages);
+		dropLegacySchedules();
 
 		//生日
 		for (Map.Entry<Long, Birthday> idAndBirthday : idToBirthday.entrySet())
-			birthdayToIDs.get(idAndBirthday.getValue()).add(idAndBirthday.getKey());
+			birthdayIndex.add(dayOf(idAndBirthday.getValue()), idAndBirthday.getKey());
 
-		//初始化時間事件
-		for (short i = 0; i < HOURS; i++)
-			hourRunFunctions[i] = new LinkedHashSet<>();
+		//每小時 將指令的延遲統計寫進log 要在更換log的日期之前
+		long nextHour = (wheel.getCurrent() / MINUTES_PER_HOUR + 1) * MINUTES_PER_HOUR;
+		wheel.schedule("metrics", nextHour, MINUTES_PER_HOUR, new Sequential(MetricsHandle::dumpToLog));
 
 		//半夜12點
 		final byte zero = 0;
-		TimerHandle.registerTimerEvent(new TimerEvent(zero, FileHandle::flushLog)); //更換log的日期
-		TimerHandle.registerTimerEvent(new TimerEvent(zero, () -> //和生日有關的
+		TimerHandle.registerTimerEvent(new TimerEvent("flush_log", zero, new Sequential(FileHandle::flushLog))); //更換log的日期
+		TimerHandle.registerTimerEvent(new TimerEvent("birthday", zero, () -> //和生日有關的
 		{
-			LocalDate today = LocalDate.now(utc8);
-			Set<Long> birthdayMembersID = birthdayToIDs.get(Birthday.valueOf(today.getMonthValue(), today.getDayOfMonth())); //今天生日的成員們的ID
-			if (birthdayMembersID.isEmpty()) //今天沒有人生日
+			long[] birthdayMembersID = birthdayIndex.usersOn(today()); //今天生日的成員們的ID
+			if (birthdayMembersID.length == 0) //今天沒有人生日
 				return;
 			TextChannel lobbyChannel = Cartoland.getJDA().getTextChannelById(IDs.LOBBY_CHANNEL_ID); //大廳頻道
 			if (lobbyChannel == null) //找不到大廳頻道
 				return;
+
+			final String start = "今天是 ", end = " 的生日！";
+			StringBuilder birthdayBuilder = new StringBuilder(Message.MAX_CONTENT_LENGTH).append(start);
+			boolean first = true;
 			for (long birthdayMemberID : birthdayMembersID)
-				lobbyChannel.sendMessage("今天是 <@" + Long.toUnsignedString(birthdayMemberID) + "> 的生日！").queue();
+			{
+				String mention = "<@" + Long.toUnsignedString(birthdayMemberID) + '>';
+				if (birthdayBuilder.length() + 1 + mention.length() + end.length() > Message.MAX_CONTENT_LENGTH) //放不下了 先送出這一則
+				{
+					lobbyChannel.sendMessage(birthdayBuilder.append(end).toString()).queue();
+					birthdayBuilder.setLength(start.length());
+					first = true;
+				}
+				if (!first)
+					birthdayBuilder.append('、');
+				birthdayBuilder.append(mention);
+				first = false;
+			}
+			lobbyChannel.sendMessage(birthdayBuilder.append(end).toString()).queue(); //盡量合併成最少的訊息
 		}));
 
 		final byte three = 3;
 		//凌晨3點
-		TimerHandle.registerTimerEvent(new TimerEvent(three, () -> //好棒 三點了
+		TimerHandle.registerTimerEvent(new TimerEvent("three_am", three, () -> //好棒 三點了
 		{
 			TextChannel undergroundChannel = Cartoland.getJDA().getTextChannelById(IDs.UNDERGROUND_CHANNEL_ID);
 			if (undergroundChannel == null) //找不到地下頻道
@@ -129,63 +201,255 @@ public final class TimerHandle
 	}
 
 	//https://stackoverflow.com/questions/65984126
-	private static final ScheduledExecutorService executorService = Executors.newSingleThreadScheduledExecutor();
-	private static int nowHour = LocalTime.now(utc8).getHour(); //現在是幾點
-	private static long hoursFrom1970 = System.currentTimeMillis() / (1000 * 60 * 60); //從1970年1月1日開始過了幾個小時
-	private static final ScheduledFuture<?> everyHour = executorService.scheduleAtFixedRate(() -> //每小時執行一次
+	private static final ScheduledThreadPoolExecutor executorService = new ScheduledThreadPoolExecutor(1); //不用Executors包裝 才能查看佇列
+
+	private static final int JOB_WORKERS = Integer.getInteger("cartoland.timer_workers", 4);
+	private static final long JOB_TIMEOUT_SECONDS = Long.getLong("cartoland.timer_job_timeout", 60L);
+	private static final int JOB_QUEUE_CAPACITY = 256; //滿了就放棄 不讓計時器的執行緒等待
+	private static final ThreadPoolExecutor jobPool = new ThreadPoolExecutor(JOB_WORKERS, JOB_WORKERS, 0L, TimeUnit.MILLISECONDS,
+			new ArrayBlockingQueue<>(JOB_QUEUE_CAPACITY), runnable ->
+	{
+		Thread thread = new Thread(runnable, "TimerHandle-job");
+		thread.setDaemon(true); //不阻止程式結束
+		return thread;
+	});
+
+	private static final ThreadPoolExecutor sequentialLane = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+			new ArrayBlockingQueue<>(JOB_QUEUE_CAPACITY), runnable -> //只有一個執行緒 一批結束了下一批才會開始
 	{
-		hoursFrom1970++; //增加小時
-		nowHour++; //增加現在幾點
-		if (nowHour == HOURS) //第24小時是0點
-			nowHour = 0;
+		Thread thread = new Thread(runnable, "TimerHandle-sequential");
+		thread.setDaemon(true); //不阻止程式結束
+		return thread;
+	});
 
-		if (!toBeRemoved.isEmpty()) //有事件要被移除
+	private static final ScheduledFuture<?> everyMinute = executorService.scheduleAtFixedRate(TimerHandle::tick,
+			60_000L - System.currentTimeMillis() % 60_000L, 60_000L, TimeUnit.MILLISECONDS); //從下一分鐘開始
+
+	private static void tick()
+	{
+		List<TimingWheel.Timer> sequential = new ArrayList<>();
+		for (TimingWheel.Timer timer : wheel.advance(minutesFrom1970())) //睡眠或卡住而錯過的分鐘 會在這裡一起補上
+		{
+			if (timer.getFunction() instanceof Sequential) //要照順序執行的 之後一起送出
+				sequential.add(timer);
+			else
+				submitJob(timer.getName(), () -> runTimer(timer));
+		}
+		if (sequential.isEmpty())
+			return;
+		try
+		{
+			sequentialLane.execute(() -> runSequential(sequential));
+		}
+		catch (RejectedExecutionException exception) //前面的批次卡住太久了 或是已經關閉了
 		{
-			for (TimerEvent removeTimerEvent : toBeRemoved) //移除要被移除的事件們
-				hourRunFunctions[removeTimerEvent.hour].remove(removeTimerEvent.function);
-			toBeRemoved.clear(); //清空將被移除事件的紀錄
+			for (TimingWheel.Timer timer : sequential)
+				jobFailed(timer.getName(), "rejected");
 		}
+	}
 
-		for (Runnable event : hourRunFunctions[nowHour]) //走訪被註冊的事件們
-			event.run(); //執行
+	private static void submitJob(String job, Runnable process)
+	{
+		Future<?> future;
+		try
+		{
+			future = jobPool.submit(process);
+		}
+		catch (RejectedExecutionException exception) //工作太多了 或是已經關閉了
+		{
+			jobFailed(job, "rejected");
+			return;
+		}
+		executorService.schedule(() ->
+		{
+			if (future.cancel(true)) //還沒完成
+				jobFailed(job, "timeout");
+		}, JOB_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+	}
 
-		ForumChannel questionsChannel = Cartoland.getJDA().getForumChannelById(IDs.QUESTIONS_CHANNEL_ID); //疑難雜症頻道
-		if (questionsChannel != null) //找不到就算了
-			for (ThreadChannel forumPost : questionsChannel.getThreadChannels()) //走訪論壇貼文們
-				QuestionForumHandle.getInstance(forumPost).remind(); //試著提醒
+	/**
+	 * Run the sequential timers of a tick on {@link #sequentialLane}, one after another in the order of the batch.
+	 * Each timer runs on {@link #jobPool} and has its own timeout, so a slow timer only fails itself, and the lane
+	 * moves on to the next timer when it times out.
+	 *
+	 * @param timers The sequential timers of a tick.
+	 * @since 2.2
+	 * @author Alex Cai
+	 */
+	private static void runSequential(List<TimingWheel.Timer> timers)
+	{
+		for (TimingWheel.Timer timer : timers)
+		{
+			String job = timer.getName();
+			Future<?> future;
+			try
+			{
+				future = jobPool.submit(() -> runTimer(timer));
+			}
+			catch (RejectedExecutionException exception) //工作太多了 或是已經關閉了
+			{
+				jobFailed(job, "rejected");
+				continue;
+			}
+			try
+			{
+				future.get(JOB_TIMEOUT_SECONDS, TimeUnit.SECONDS); //等這個計時器結束 才執行下一個
+			}
+			catch (TimeoutException exception)
+			{
+				future.cancel(true);
+				jobFailed(job, "timeout");
+			}
+			catch (ExecutionException exception) //runTimer只處理Exception 這裡是Error
+			{
+				FileHandle.log(exception);
+				MetricsHandle.countTimerJobFailure(job, "exception");
+			}
+			catch (InterruptedException exception) //正在關閉
+			{
+				future.cancel(true);
+				Thread.currentThread().interrupt();
+				return;
+			}
+		}
+	}
 
-		//根據現在的時間 決定是否解ban
-		if (AdminCommand.tempBanSet.isEmpty()) //沒有人被temp_ban
-			return; //不用執行
-		for (AdminCommand.BanData bannedMember : new HashSet<>(AdminCommand.tempBanSet)) //建立新物件 以免修改到原set
-			bannedMember.tryUnban(); //嘗試解ban
+	private static void jobFailed(String job, String reason)
+	{
+		FileHandle.log("timer job ", reason, ": ", job);
+		MetricsHandle.countTimerJobFailure(job, reason);
+	}
 
-	}, secondsUntil((nowHour + 1) % HOURS), 60 * 60, TimeUnit.SECONDS); //從下個小時開始
+	private static void runTimer(TimingWheel.Timer timer)
+	{
+		if (timer.isCancelled()) //在執行前被取消了
+			return;
+		String job = timer.getName();
+		long localMinute = (timer.getDeadline() + UTC8_OFFSET) % MINUTES_PER_DAY; //重複的計時器已經是下一次的時間了 但時和分不變
+		long start = System.nanoTime();
+		try
+		{
+			ProfileHandle.timerJob(job, (int) (localMinute / MINUTES_PER_HOUR), (int) (localMinute % MINUTES_PER_HOUR), timer.getFunction()); //執行
+		}
+		catch (Exception exception) //不要因為一個計時器出錯 就影響同一個工作中的其他計時器
+		{
+			FileHandle.log(exception);
+			MetricsHandle.countTimerJobFailure(job, "exception");
+		}
+		finally
+		{
+			MetricsHandle.recordTimerJob(job, start);
+		}
+	}
+
+	private static long minutesFrom1970()
+	{
+		return System.currentTimeMillis() / (1000 * 60);
+	}
 
-	public static long getHoursFrom1970()
+	//輪中的計時器數量
+	public static int getQueueSize()
 	{
-		return hoursFrom1970;
+		return wheel.size();
+	}
+
+	//正在等待工作者的計時器工作數量 加上等待前一批結束的批次數量
+	public static int getJobQueueSize()
+	{
+		return jobPool.getQueue().size() + sequentialLane.getQueue().size();
+	}
+
+	/**
+	 * Run a function once at the first minute that is not before a time. Unlike {@link #runAt(long, Runnable)}, the
+	 * timer is in the {@link TimingWheel}, so there can be thousands of them.
+	 *
+	 * @param name The name of the timer, used by profiling.
+	 * @param epochMilli The time in milliseconds since 1970.
+	 * @param function The function to run.
+	 * @return The timer, which can be passed to {@link #cancel(TimingWheel.Timer)}.
+	 * @since 2.2
+	 * @author Alex Cai
+	 */
+	static TimingWheel.Timer runAtMinute(String name, long epochMilli, Runnable function)
+	{
+		return wheel.schedule(name, Math.ceilDiv(epochMilli, 1000L * 60), 0L, function); //無條件進位 才不會提早執行
+	}
+
+	static void cancel(TimingWheel.Timer timer)
+	{
+		wheel.cancel(timer);
+	}
+
+	/**
+	 * Run a function once at an exact time, instead of the minute of the {@link TimingWheel}. This is used by
+	 * {@code /admin temp_ban} to lift a ban when it expires.
+	 *
+	 * @param epochMilli The time in milliseconds since 1970. A time that has passed means right away.
+	 * @param function The function to run.
+	 * @return The future that can cancel the function.
+	 * @since 2.2
+	 * @author Alex Cai
+	 */
+	public static ScheduledFuture<?> runAt(long epochMilli, Runnable function)
+	{
+		return executorService.schedule(function, Math.max(epochMilli - System.currentTimeMillis(), 0L), TimeUnit.MILLISECONDS);
 	}
 
 	public static void setBirthday(long userID, int month, int date)
 	{
 		Birthday newBirthday = Birthday.valueOf(month, date); //新生日
-		birthdayToIDs.get(newBirthday).add(userID); //將該使用者增加到那天生日的清單中
-		Birthday oldBirthday = idToBirthday.put(userID, newBirthday); //設定使用者的生日 並同時獲取舊生日
-		if (oldBirthday != null) //如果確實設定過舊生日
-			birthdayToIDs.get(oldBirthday).remove(userID); //移除設定
+		synchronized (birthdayIndex)
+		{
+			Birthday oldBirthday = idToBirthday.put(userID, newBirthday); //設定使用者的生日 並同時獲取舊生日
+			if (oldBirthday != null) //如果確實設定過舊生日
+				birthdayIndex.remove(dayOf(oldBirthday), userID); //移除設定
+			birthdayIndex.add(dayOf(newBirthday), userID); //將該使用者增加到那天生日的清單中
+		}
 	}
 
 	public static Birthday getBirthday(long userID)
 	{
-		return idToBirthday.get(userID); //查詢map的紀錄
+		synchronized (birthdayIndex)
+		{
+			return idToBirthday.get(userID); //查詢map的紀錄
+		}
 	}
 
 	public static void deleteBirthday(long userID)
 	{
-		Birthday oldBirthday = idToBirthday.remove(userID); //移除舊生日 並把移除掉的值存起來
-		if (oldBirthday != null) //如果設定過舊生日
-			birthdayToIDs.get(oldBirthday).remove(userID); //從記錄中移除這位成員
+		synchronized (birthdayIndex)
+		{
+			Birthday oldBirthday = idToBirthday.remove(userID); //移除舊生日 並把移除掉的值存起來
+			if (oldBirthday != null) //如果設定過舊生日
+				birthdayIndex.remove(dayOf(oldBirthday), userID); //從記錄中移除這位成員
+		}
+	}
+
+	/**
+	 * Get the birthdays in the next days, starting from today.
+	 *
+	 * @param days The amount of days, including today.
+	 * @return The birthdays in the order of days, and the IDs of the users of each birthday.
+	 * @since 2.2
+	 * @author Alex Cai
+	 */
+	public static Map<Birthday, long[]> upcomingBirthdays(int days)
+	{
+		Map<Birthday, long[]> birthdays = new LinkedHashMap<>();
+		birthdayIndex.visitRange(today(), days, (day, userIDs, from, to) -> birthdays.put(Birthday.cache[day], Arrays.copyOfRange(userIDs, from, to)));
+		return birthdays;
+	}
+
+	//生日在一年中的第幾天 從0開始
+	private static int dayOf(Birthday birthday)
+	{
+		return getDateOfYear(birthday.month, birthday.date) - 1;
+	}
+
+	private static int today()
+	{
+		LocalDate today = LocalDate.now(utc8);
+		return getDateOfYear(today.getMonthValue(), today.getDayOfMonth()) - 1;
 	}
 
 	/**
@@ -227,49 +491,124 @@ public final class TimerHandle
 		};
 	}
 
-	private static long secondsUntil(int hour)
+	private static void registerTimerEvent(TimerEvent timerEvent)
 	{
-		LocalDateTime now = LocalDateTime.now(utc8); //現在的時間
-		LocalDateTime untilTime = now.withHour(hour).withMinute(0).withSecond(0); //目標時間
+		//下一次到達這個時和分的分鐘 介於現在之後的1到1440分鐘
+		long target = timerEvent.hour * MINUTES_PER_HOUR + timerEvent.minute;
+		long now = wheel.getCurrent();
+		long deadline = now + Math.floorMod(target - (now + UTC8_OFFSET) % MINUTES_PER_DAY - 1, MINUTES_PER_DAY) + 1;
+		wheel.schedule(timerEvent.name, deadline, MINUTES_PER_DAY, timerEvent.function);
+	}
 
-		//如果現在的小時已經超過了目標的小時 例如要在3點時執行 但現在的時間已經4點了 那就明天再執行 否則今天就可執行
-		return Duration.between(now, now.isAfter(untilTime) ? untilTime.plusDays(1L) : untilTime).getSeconds();
+	/**
+	 * Register a scheduled message. The cron expression is compiled, and the message is put into the wheel at its next
+	 * minute. After it was sent, it is put into the wheel again at the minute after, unless it is only sent once.
+	 *
+	 * @param name The name of the scheduled message.
+	 * @param scheduledMessage The descriptor of the message.
+	 * @throws IllegalArgumentException If the cron expression of the message is invalid.
+	 * @since 2.2
+	 * @author Alex Cai
+	 */
+	public static void registerScheduledMessage(String name, ScheduledMessage scheduledMessage)
+	{
+		CronExpression cron = CronExpression.compile(scheduledMessage.cron);
+		scheduledMessages.put(name, scheduledMessage);
+		scheduleNextMessage(name, scheduledMessage, cron, wheel.getCurrent());
 	}
 
-	private static void registerTimerEvent(TimerEvent timerEvent)
+	private static void scheduleNextMessage(String name, ScheduledMessage scheduledMessage, CronExpression cron, long afterMinute)
 	{
-		hourRunFunctions[timerEvent.hour].add(timerEvent.function);
+		long next = cron.next(afterMinute);
+		if (next == Long.MAX_VALUE) //永遠不會發送
+			return;
+		scheduledTimers.put(name, wheel.schedule(name, next, 0L, new Sequential(() -> //同一分鐘的訊息 照排程的順序發送
+		{
+			if (scheduledMessages.get(name) != scheduledMessage) //已經被刪除或取代了
+				return;
+			if (scheduledMessage.once) //如果是一次性
+				unregisterScheduledEvent(name); //刪除事件
+			else
+				scheduleNextMessage(name, scheduledMessage, cron, next); //先排好下一次 發送失敗也不影響
+			MessageChannel channel = Cartoland.getJDA().getChannelById(MessageChannel.class, scheduledMessage.channelID); //尋找頻道
+			if (channel != null) //如果找到頻道
+				channel.sendMessage(scheduledMessage.content).queue(); //發送訊息
+		})));
 	}
 
-	public static void registerScheduledEvent(String name, TimerEvent timerEvent)
+	/**
+	 * Drop the schedules in {@link #LEGACY_SCHEDULED_EVENTS}, which were saved by older versions as lambdas and can't
+	 * be restored. The name of every dropped schedule is logged, and the file is renamed, so it is only dropped once.
+	 * The notice can be taken by {@link #takeLegacyNotice()}. Old versions failed to write the file if there were any
+	 * schedules, since the lambdas aren't serializable, so the names can only be logged if the file could be read.
+	 *
+	 * @since 2.2
+	 * @author Alex Cai
+	 */
+	private static void dropLegacySchedules()
 	{
-		registerTimerEvent(timerEvent);
-		scheduledEvents.put(name, timerEvent);
+		File legacyFile = new File(LEGACY_SCHEDULED_EVENTS);
+		if (!legacyFile.isFile()) //已經處理過了 或從來沒有舊版的排程
+			return;
+
+		Object legacy = FileHandle.deserialize(LEGACY_SCHEDULED_EVENTS);
+		if (legacy instanceof Map<?, ?> legacyEvents) //讀得到名字
+		{
+			if (!legacyEvents.isEmpty())
+			{
+				for (Object name : legacyEvents.keySet())
+					FileHandle.log("dropped legacy schedule: ", name);
+				String notice = "Scheduled messages from the old version were dropped, please create them again: " +
+						String.join(", ", legacyEvents.keySet().stream().map(String::valueOf).toList());
+				legacyNotice.set(notice.length() <= Message.MAX_CONTENT_LENGTH ? notice : notice.substring(0, Message.MAX_CONTENT_LENGTH - 1) + '…'); //太長就截斷
+			}
+		}
+		else //寫到一半失敗的檔案
+		{
+			FileHandle.log("dropped legacy schedules: ", LEGACY_SCHEDULED_EVENTS, " can't be read");
+			legacyNotice.set("Scheduled messages from the old version couldn't be read and were dropped, please create them again.");
+		}
+
+		if (!legacyFile.renameTo(new File(LEGACY_SCHEDULED_EVENTS + ".dropped"))) //留著查看 但下次不再處理
+			FileHandle.log("can't rename ", LEGACY_SCHEDULED_EVENTS);
 	}
 
-	public static boolean hasScheduledEvent(String name)
+	/**
+	 * Take the notice of the dropped legacy schedules. The notice is only returned once, so it is shown to the first
+	 * user of {@code /schedule} after the bot was updated.
+	 *
+	 * @return The notice, or null if nothing was dropped or it was already taken.
+	 * @since 2.2
+	 * @author Alex Cai
+	 */
+	public static String takeLegacyNotice()
 	{
-		return scheduledEvents.containsKey(name);
+		return legacyNotice.getAndSet(null);
 	}
 
-	public static Set<String> scheduledEventsNames()
+	public static boolean hasScheduledEvent(String name)
 	{
-		return scheduledEvents.keySet();
+		return scheduledMessages.containsKey(name);
 	}
 
-	public static void unregisterTimerEvent(TimerEvent timerEvent)
+	public static Set<String> scheduledEventsNames()
 	{
-		toBeRemoved.add(timerEvent);
+		return scheduledMessages.keySet();
 	}
 
 	public static void unregisterScheduledEvent(String name)
 	{
-		unregisterTimerEvent(scheduledEvents.remove(name));
+		scheduledMessages.remove(name);
+		TimingWheel.Timer timer = scheduledTimers.remove(name);
+		if (timer != null) //可以在計時器執行時取消自己
+			wheel.cancel(timer);
 	}
 
 	/**
-	 * Stop the {@link #everyHour} timer. This method will be called in
-	 * {@link cartoland.events.BotOnlineOffline#onShutdown} when the bot went offline.
+	 * Stop the {@link #everyMinute} timer. This method will be called in
+	 * {@link cartoland.events.BotOnlineOffline#onShutdown} when the bot went offline. Delayed tasks that haven't run,
+	 * such as the timeouts of timer jobs and {@link #runAt(long, Runnable)}, are dropped, otherwise the thread of
+	 * {@link #executorService} would keep the program alive until the last of them.
 	 *
 	 * @since 2.1
 	 * @author Alex Cai
@@ -277,8 +616,11 @@ public final class TimerHandle
 	public static void stopTimer()
 	{
 		//https://stackoverflow.com/questions/34202701
-		everyHour.cancel(true);
+		everyMinute.cancel(true);
+		executorService.setExecuteExistingDelayedTasksAfterShutdownPolicy(false); //不要等還沒到時間的工作
 		executorService.shutdown();
+		sequentialLane.shutdownNow(); //中斷正在等待的批次
+		jobPool.shutdown();
 	}
 
 	public static String getTimeString()
@@ -0,0 +1,224 @@
+package cartoland.utilities;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * {@code TimingWheel} is a hierarchical timing wheel with the resolution of a minute. It has {@link #LEVELS} levels of
+ * {@link #SLOTS} slots, and a timer is put in the lowest level that can hold its deadline. Every slot is a doubly linked
+ * list, so inserting and cancelling a timer are O(1). When the lowest level wraps around, the timers of the next slot of
+ * the upper level are cascaded down. Deadlines are absolute minutes since 1970, so {@link #advance(long)} can catch up
+ * on any missed minutes. It is used by {@link TimerHandle}. All methods lock the wheel itself, but the timers are run
+ * by the caller of {@link #advance(long)} without the lock.
+ *
+ * @since 2.2
+ * @author Alex Cai
+ */
+final class TimingWheel
+{
+	private static final int BITS = 6;
+	private static final int SLOTS = 1 << BITS; //每層64格
+	private static final int MASK = SLOTS - 1;
+	private static final int LEVELS = 4; //64的4次方分鐘 大約31年
+
+	private final Timer[][] heads = new Timer[LEVELS][SLOTS];
+	private final Timer[][] tails = new Timer[LEVELS][SLOTS];
+	private long current; //已經處理過的分鐘
+	private long sequence = 0L; //註冊的順序
+	private int size = 0;
+
+	/**
+	 * A timer in the wheel. A periodic timer is put back into the wheel after it ran.
+	 *
+	 * @since 2.2
+	 * @author Alex Cai
+	 */
+	static final class Timer
+	{
+		private final String name;
+		private final long period; //0代表只執行一次
+		private final Runnable function;
+		private long deadline; //從1970年開始的分鐘
+		private long order; //同一分鐘的計時器 照註冊的順序執行
+		private int level = -1; //-1代表不在輪中
+		private int slot;
+		private Timer previous;
+		private Timer next;
+		private boolean expired = false; //只執行一次的計時器已經離開輪了
+		private volatile boolean cancelled = false;
+
+		private Timer(String name, long deadline, long period, Runnable function)
+		{
+			this.name = name;
+			this.deadline = deadline;
+			this.period = period;
+			this.function = function;
+		}
+
+		String getName()
+		{
+			return name;
+		}
+
+		long getDeadline()
+		{
+			return deadline;
+		}
+
+		Runnable getFunction()
+		{
+			return function;
+		}
+
+		boolean isCancelled()
+		{
+			return cancelled;
+		}
+	}
+
+	TimingWheel(long now)
+	{
+		current = now;
+	}
+
+	/**
+	 * Add a timer to the wheel.
+	 *
+	 * @param name The name of the timer, used by profiling.
+	 * @param deadline The minute since 1970 that the timer runs at. A minute that has passed means the next minute.
+	 * @param period The minutes between two runs, or 0 if the timer only runs once.
+	 * @param function The function to run.
+	 * @return The timer, which can be passed to {@link #cancel(Timer)}.
+	 * @since 2.2
+	 * @author Alex Cai
+	 */
+	synchronized Timer schedule(String name, long deadline, long period, Runnable function)
+	{
+		Timer timer = new Timer(name, Math.max(deadline, current + 1), period, function); //已經過了的時間 就在下一分鐘執行
+		timer.order = sequence++;
+		link(timer);
+		size++;
+		return timer;
+	}
+
+	synchronized void cancel(Timer timer)
+	{
+		if (timer.cancelled) //已經取消過了
+			return;
+		timer.cancelled = true;
+		if (timer.level != -1) //還在輪中
+			unlink(timer);
+		if (!timer.expired) //離開輪的時候已經減過了
+			size--;
+	}
+
+	synchronized int size()
+	{
+		return size;
+	}
+
+	synchronized long getCurrent()
+	{
+		return current;
+	}
+
+	/**
+	 * Advance the wheel to a minute and collect the timers that should run. Periodic timers are put back into the wheel
+	 * before they are returned, so a timer that missed many periods only runs once.
+	 *
+	 * @param now The minute since 1970 to advance to. Nothing happens if it is not after the current minute.
+	 * @return The timers to run, in the order of their deadlines and then the order they were scheduled. A timer
+	 * might be cancelled by an earlier one, so check {@link Timer#isCancelled()} before running it.
+	 * @since 2.2
+	 * @author Alex Cai
+	 */
+	synchronized List<Timer> advance(long now)
+	{
+		List<Timer> expired = new ArrayList<>();
+		while (current < now)
+		{
+			current++;
+			cascade();
+			int slot = (int) (current & MASK);
+			int from = expired.size();
+			for (Timer timer = heads[0][slot]; timer != null; timer = timer.next)
+				expired.add(timer);
+			heads[0][slot] = tails[0][slot] = null;
+			for (int i = from, end = expired.size(); i < end; i++)
+				expired.get(i).level = -1; //離開輪了
+			expired.subList(from, expired.size()).sort(Comparator.comparingLong(timer -> timer.order));
+		}
+
+		for (Timer timer : expired)
+		{
+			if (timer.period == 0L) //只執行一次
+			{
+				timer.expired = true;
+				size--;
+				continue;
+			}
+			long next = timer.deadline + timer.period;
+			if (next <= current) //錯過了好幾次 就不補執行了
+				next += ((current - next) / timer.period + 1) * timer.period;
+			timer.deadline = next;
+			link(timer);
+		}
+		return expired;
+	}
+
+	//上層的下一格輪到了 就把裡面的計時器放到下層
+	private void cascade()
+	{
+		for (int level = 1; level < LEVELS; level++)
+		{
+			if ((current & ((1L << (BITS * level)) - 1)) != 0) //下層還沒轉完一圈
+				return;
+			int slot = (int) ((current >>> (BITS * level)) & MASK);
+			Timer timer = heads[level][slot];
+			heads[level][slot] = tails[level][slot] = null;
+			while (timer != null)
+			{
+				Timer next = timer.next;
+				link(timer);
+				timer = next;
+			}
+		}
+	}
+
+	private void link(Timer timer)
+	{
+		long delta = timer.deadline - current;
+		int level = 0;
+		while (level < LEVELS - 1 && delta >= 1L << (BITS * (level + 1))) //找能容納這個時間的最低層
+			level++;
+		int slot = delta < 1L << (BITS * LEVELS) ?
+				(int) ((timer.deadline >>> (BITS * level)) & MASK) :
+				(int) (((current >>> (BITS * level)) - 1) & MASK); //太遠了 放在最後才會轉到的格子 轉到時會再放一次
+
+		timer.level = level;
+		timer.previous = tails[level][slot];
+		timer.next = null;
+		if (tails[level][slot] != null)
+			tails[level][slot].next = timer;
+		else
+			heads[level][slot] = timer;
+		tails[level][slot] = timer;
+		timer.slot = slot;
+	}
+
+	private void unlink(Timer timer)
+	{
+		int level = timer.level, slot = timer.slot;
+		if (timer.previous != null)
+			timer.previous.next = timer.next;
+		else
+			heads[level][slot] = timer.next;
+		if (timer.next != null)
+			timer.next.previous = timer.previous;
+		else
+			tails[level][slot] = timer.previous;
+		timer.previous = timer.next = null;
+		timer.level = -1;
+	}
+}
@@ -0,0 +1,33 @@
+package cartoland;
+
+import cartoland.replay.FakeEntities;
+import cartoland.utilities.IDs;
+
+/**
+ * {@code ToolsAccess} is a utility class that lets the tools of {@code src/tools} and the benchmarks of {@code src/jmh}
+ * reach the package-private parts of {@link Cartoland}, which the bot itself never changes from outside. It is only
+ * compiled by the {@code tools} and {@code jmh} profiles, so it isn't in the jar of the bot. Can not be instantiated or
+ * inherited.
+ *
+ * @since 2.2
+ * @author Alex Cai
+ */
+public final class ToolsAccess
+{
+	private ToolsAccess()
+	{
+		throw new AssertionError(IDs.YOU_SHALL_NOT_ACCESS);
+	}
+
+	/**
+	 * Make {@link Cartoland#getJDA()} return the fake JDA of {@link FakeEntities}, since the tools have no connection
+	 * to Discord.
+	 *
+	 * @since 2.2
+	 * @author Alex Cai
+	 */
+	public static void useFakeJDA()
+	{
+		Cartoland.useJDA(FakeEntities.jda());
+	}
+}
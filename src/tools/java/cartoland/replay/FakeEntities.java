@@ -0,0 +1,372 @@
+package cartoland.replay;
+
+import cartoland.utilities.IDs;
+import net.dv8tion.jda.api.JDA;
+import net.dv8tion.jda.api.entities.Guild;
+import net.dv8tion.jda.api.entities.Member;
+import net.dv8tion.jda.api.entities.User;
+import net.dv8tion.jda.api.entities.channel.ChannelType;
+import net.dv8tion.jda.api.entities.channel.concrete.*;
+import net.dv8tion.jda.api.entities.channel.unions.GuildChannelUnion;
+import net.dv8tion.jda.api.entities.channel.unions.IThreadContainerUnion;
+import net.dv8tion.jda.api.entities.channel.unions.MessageChannelUnion;
+import net.dv8tion.jda.api.requests.RestAction;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.*;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * {@code FakeEntities} is a utility class that creates in-memory entities of JDA for {@link ReplayHarness}. Every
+ * entity is a {@link Proxy} of the interfaces of JDA, which returns the value given by its name, or a default value
+ * if there isn't one. Default methods of JDA are invoked as they are, so {@code getId()} or
+ * {@code getOption(String)} work like the real ones. Every {@link RestAction} is a stub that completes immediately
+ * with a fake result, without sending any request. Can not be instantiated or inherited.
+ *
+ * @since 2.2
+ * @author Alex Cai
+ */
+public final class FakeEntities
+{
+	private FakeEntities()
+	{
+		throw new AssertionError(IDs.YOU_SHALL_NOT_ACCESS);
+	}
+
+	private static final JDA jda = fake(JDA.class, Map.of());
+
+	/**
+	 * The fake JDA that every fake entity returns from {@code getJDA()}.
+	 *
+	 * @return The fake JDA.
+	 * @since 2.2
+	 * @author Alex Cai
+	 */
+	public static JDA jda()
+	{
+		return jda;
+	}
+
+	/**
+	 * Create a fake entity. A method of the entity returns the value in {@code values} whose key is the name of the
+	 * method, no matter what arguments were passed.
+	 *
+	 * @param type The interface of the entity.
+	 * @param values The values of methods, the key is the name of the method.
+	 * @return The fake entity.
+	 * @since 2.2
+	 * @author Alex Cai
+	 */
+	public static <T> T fake(Class<T> type, Map<String, Object> values)
+	{
+		return type.cast(Proxy.newProxyInstance(FakeEntities.class.getClassLoader(), new Class<?>[] { type }, new FakeEntity(type, values)));
+	}
+
+	public static User user(long userID, String name, boolean bot)
+	{
+		return fake(User.class, Map.of("getIdLong", userID, "getName", name, "getEffectiveName", name, "getGlobalName", name,
+				"getAsMention", "<@" + Long.toUnsignedString(userID) + '>', "isBot", bot));
+	}
+
+	public static Guild guild(long guildID)
+	{
+		return fake(Guild.class, Map.of("getIdLong", guildID));
+	}
+
+	public static Member member(Guild guild, User user)
+	{
+		return fake(Member.class, Map.of("getIdLong", user.getIdLong(), "getUser", user, "getGuild", guild,
+				"getEffectiveName", user.getName(), "getAsMention", user.getAsMention()));
+	}
+
+	/**
+	 * Create a fake channel, which also implements the concrete interface of its type, so checks such as
+	 * {@code channel instanceof ThreadChannel} work.
+	 *
+	 * @param channelID The ID of the channel.
+	 * @param channelType The type of the channel.
+	 * @param guild The guild of the channel, or null if it is a private channel.
+	 * @param parentID The ID of the channel that the thread is in, or 0 if the channel isn't a thread.
+	 * @param parentType The type of the channel that the thread is in.
+	 * @param categoryID The ID of the category of the channel, or 0 if there isn't one.
+	 * @return The fake channel.
+	 * @since 2.2
+	 * @author Alex Cai
+	 */
+	public static MessageChannelUnion channel(long channelID, ChannelType channelType, Guild guild, long parentID, ChannelType parentType, long categoryID)
+	{
+		Map<String, Object> values = new HashMap<>();
+		values.put("getIdLong", channelID);
+		values.put("getType", channelType);
+		values.put("getParentCategoryIdLong", categoryID);
+		if (guild != null)
+			values.put("getGuild", guild);
+		if (parentID != 0L) //是討論串
+		{
+			Map<String, Object> parentValues = new HashMap<>(values);
+			parentValues.put("getIdLong", parentID);
+			parentValues.put("getType", parentType);
+			values.put("getParentChannel", fake(IThreadContainerUnion.class, concreteOf(parentType), parentValues));
+			values.put("getParentChannelIdLong", parentID);
+		}
+		return fake(MessageChannelUnion.class, concreteOf(channelType), values);
+	}
+
+	public static GuildChannelUnion guildChannel(long channelID, Guild guild)
+	{
+		return fake(GuildChannelUnion.class, Map.of("getIdLong", channelID, "getGuild", guild));
+	}
+
+	private static <T> T fake(Class<T> type, Class<?> concrete, Map<String, Object> values)
+	{
+		if (concrete == null)
+			return fake(type, values);
+		try
+		{
+			return type.cast(Proxy.newProxyInstance(FakeEntities.class.getClassLoader(), new Class<?>[] { type, concrete }, new FakeEntity(type, values)));
+		}
+		catch (IllegalArgumentException exception) //兩個介面有衝突的方法
+		{
+			return fake(type, values);
+		}
+	}
+
+	private static Class<?> concreteOf(ChannelType channelType)
+	{
+		return switch (channelType)
+		{
+			case TEXT -> TextChannel.class;
+			case PRIVATE -> PrivateChannel.class;
+			case VOICE -> VoiceChannel.class;
+			case NEWS -> NewsChannel.class;
+			case STAGE -> StageChannel.class;
+			case FORUM -> ForumChannel.class;
+			case MEDIA -> MediaChannel.class;
+			case GUILD_NEWS_THREAD, GUILD_PUBLIC_THREAD, GUILD_PRIVATE_THREAD -> ThreadChannel.class;
+			default -> null;
+		};
+	}
+
+	/**
+	 * The handler of fake entities.
+	 *
+	 * @since 2.2
+	 * @author Alex Cai
+	 */
+	private static class FakeEntity implements InvocationHandler
+	{
+		private final Class<?> type;
+		private final Map<String, Object> values;
+		private final Map<String, Object> children = new ConcurrentHashMap<>(); //用過的子實體 下次回傳同一個
+
+		private FakeEntity(Class<?> type, Map<String, Object> values)
+		{
+			this.type = type;
+			this.values = values;
+		}
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable
+		{
+			String name = method.getName();
+			if (method.getDeclaringClass() == Object.class)
+				return switch (name)
+				{
+					case "equals" -> proxy == args[0];
+					case "hashCode" -> System.identityHashCode(proxy);
+					default -> "Fake" + type.getSimpleName() + values;
+				};
+			if (values.containsKey(name))
+				return values.get(name);
+			if ("getJDA".equals(name))
+				return jda;
+
+			Class<?> returnType = method.getReturnType();
+			if (RestAction.class.isAssignableFrom(returnType)) //不發送任何請求
+				return FakeAction.of(method.getGenericReturnType(), Map.of());
+			if (returnType.isInterface() && args != null && args.length == 1 && name.startsWith("get") && name.endsWith("ById")) //例如getGuildById 不經過快取
+				return children.computeIfAbsent(name + ' ' + args[0], key -> fake(returnType, Map.of("getIdLong", idOf(args[0]))));
+			if (method.isDefault())
+				return InvocationHandler.invokeDefault(proxy, method, args);
+			if (returnType.isInterface() && args == null && name.startsWith("as")) //例如asTextChannel 和自己是同一個頻道
+				return children.computeIfAbsent(name, key -> fake(returnType, values));
+			if (isNullable(method))
+				return null;
+			if (args == null && returnType.isInterface() && !isContainer(returnType))
+				return children.computeIfAbsent(name, key -> fake(returnType, Map.of()));
+			return defaultValue(returnType);
+		}
+	}
+
+	/**
+	 * The handler of fake {@link RestAction}s. Methods that return the action itself return the proxy, so chains such
+	 * as {@code reply(...).setEphemeral(true).queue()} work, and the action completes on the calling thread.
+	 *
+	 * @since 2.2
+	 * @author Alex Cai
+	 */
+	private static class FakeAction implements InvocationHandler
+	{
+		private final Class<?> type;
+		private final Type resultType;
+
+		private FakeAction(Class<?> type, Type resultType)
+		{
+			this.type = type;
+			this.resultType = resultType;
+		}
+
+		private static Object of(Type actionType, Map<TypeVariable<?>, Type> bindings)
+		{
+			Class<?> rawType = rawOf(actionType);
+			Type resultType = resultOf(rawType, bindingsOf(actionType, bindings));
+			return Proxy.newProxyInstance(FakeEntities.class.getClassLoader(), new Class<?>[] { rawType }, new FakeAction(rawType, resultType));
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable
+		{
+			String name = method.getName();
+			if (method.getDeclaringClass() == Object.class)
+				return switch (name)
+				{
+					case "equals" -> proxy == args[0];
+					case "hashCode" -> System.identityHashCode(proxy);
+					default -> "Fake" + type.getSimpleName();
+				};
+
+			switch (name)
+			{
+				case "queue", "queueAfter" ->
+				{
+					if (args != null && args.length > 0 && args[0] instanceof Consumer<?> success)
+						((Consumer<Object>) success).accept(result());
+					return null;
+				}
+				case "complete", "completeAfter" ->
+				{
+					return result();
+				}
+				case "submit", "submitAfter" ->
+				{
+					return CompletableFuture.completedFuture(result());
+				}
+				case "getJDA" ->
+				{
+					return jda;
+				}
+			}
+
+			Class<?> returnType = method.getReturnType();
+			if (returnType.isInstance(proxy)) //例如setEphemeral
+				return proxy;
+			if (RestAction.class.isAssignableFrom(returnType)) //例如map或flatMap 結果型態無法得知
+				return of(method.getGenericReturnType(), Map.of());
+			if (method.isDefault())
+				return InvocationHandler.invokeDefault(proxy, method, args);
+			return defaultValue(returnType);
+		}
+
+		private Object result()
+		{
+			Class<?> resultClass = rawOf(resultType);
+			if (resultClass == Void.class || resultClass == Object.class)
+				return null;
+			if (resultClass.isInterface() && !isContainer(resultClass))
+				return fake(resultClass, Map.of());
+			return defaultValue(resultClass);
+		}
+	}
+
+	private static Type resultOf(Class<?> type, Map<TypeVariable<?>, Type> bindings)
+	{
+		if (type == RestAction.class)
+			return bindings.getOrDefault(RestAction.class.getTypeParameters()[0], Object.class);
+		for (Type superType : type.getGenericInterfaces()) //往上找到RestAction為止
+			if (RestAction.class.isAssignableFrom(rawOf(superType)))
+				return resultOf(rawOf(superType), bindingsOf(superType, bindings));
+		return Object.class;
+	}
+
+	private static Map<TypeVariable<?>, Type> bindingsOf(Type type, Map<TypeVariable<?>, Type> outer)
+	{
+		if (!(type instanceof ParameterizedType parameterizedType))
+			return Map.of();
+		TypeVariable<?>[] variables = rawOf(type).getTypeParameters();
+		Type[] arguments = parameterizedType.getActualTypeArguments();
+		Map<TypeVariable<?>, Type> bindings = new HashMap<>();
+		for (int i = 0; i < variables.length; i++)
+			bindings.put(variables[i], arguments[i] instanceof TypeVariable<?> variable ? outer.getOrDefault(variable, Object.class) : arguments[i]);
+		return bindings;
+	}
+
+	private static Class<?> rawOf(Type type)
+	{
+		return switch (type)
+		{
+			case Class<?> typeClass -> typeClass;
+			case ParameterizedType parameterizedType -> (Class<?>) parameterizedType.getRawType();
+			default -> Object.class;
+		};
+	}
+
+	private static long idOf(Object id)
+	{
+		return id instanceof Long longID ? longID : Long.parseUnsignedLong(id.toString());
+	}
+
+	private static boolean isNullable(Method method)
+	{
+		for (Annotation annotation : method.getAnnotations()) //JDA使用javax.annotation.Nullable
+			if ("Nullable".equals(annotation.annotationType().getSimpleName()))
+				return true;
+		return false;
+	}
+
+	private static boolean isContainer(Class<?> type)
+	{
+		return Collection.class.isAssignableFrom(type) || Map.class.isAssignableFrom(type) || Stream.class.isAssignableFrom(type);
+	}
+
+	private static Object defaultValue(Class<?> type)
+	{
+		if (type == boolean.class)
+			return false;
+		if (type == int.class)
+			return 0;
+		if (type == long.class)
+			return 0L;
+		if (type == double.class)
+			return 0.0;
+		if (type == float.class)
+			return 0.0F;
+		if (type == short.class)
+			return (short) 0;
+		if (type == byte.class)
+			return (byte) 0;
+		if (type == char.class)
+			return '\0';
+		if (type == String.class)
+			return "";
+		if (type == List.class || type == Collection.class)
+			return List.of();
+		if (type == Set.class)
+			return Set.of();
+		if (type == Map.class)
+			return Map.of();
+		if (type == Optional.class)
+			return Optional.empty();
+		if (type == Stream.class)
+			return Stream.empty();
+		if (type.isArray())
+			return Array.newInstance(type.getComponentType(), 0);
+		if (type.isEnum())
+			return type.getEnumConstants()[0];
+		return null; //void或無法得知的類別
+	}
+}
@@ -0,0 +1,286 @@
+package cartoland.replay;
+
+import cartoland.ToolsAccess;
+import cartoland.events.*;
+import cartoland.utilities.ExecutionHandle;
+import cartoland.utilities.FileHandle;
+import cartoland.utilities.IDs;
+import cartoland.utilities.MetricsHandle;
+import cartoland.utilities.TimerHandle;
+import net.dv8tion.jda.api.JDA;
+import net.dv8tion.jda.api.entities.*;
+import net.dv8tion.jda.api.entities.channel.ChannelType;
+import net.dv8tion.jda.api.entities.channel.unions.MessageChannelUnion;
+import net.dv8tion.jda.api.events.GenericEvent;
+import net.dv8tion.jda.api.events.interaction.command.CommandAutoCompleteInteractionEvent;
+import net.dv8tion.jda.api.events.interaction.command.SlashCommandInteractionEvent;
+import net.dv8tion.jda.api.events.message.MessageReceivedEvent;
+import net.dv8tion.jda.api.interactions.AutoCompleteQuery;
+import net.dv8tion.jda.api.interactions.InteractionType;
+import net.dv8tion.jda.api.interactions.commands.Command;
+import net.dv8tion.jda.api.interactions.commands.OptionMapping;
+import net.dv8tion.jda.api.interactions.commands.OptionType;
+import net.dv8tion.jda.api.interactions.commands.SlashCommandInteraction;
+import net.dv8tion.jda.api.interactions.commands.CommandAutoCompleteInteraction;
+import net.dv8tion.jda.api.utils.data.DataObject;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * {@code ReplayHarness} replays a file written by {@link EventRecorder} into the listeners of this bot, without a
+ * connection to Discord. Every recorded message, slash command and auto complete is turned into an event of JDA whose
+ * entities are created by {@link FakeEntities}, and is dispatched by {@link MonitoredEventManager} on a single thread,
+ * like the event thread of JDA. All REST requests complete immediately. After the replay, the throughput and the
+ * latency percentiles of each kind of event are printed, followed by {@link MetricsHandle#summary()}.
+ *
+ * <p>Usage: {@code mvn -P tools test-compile exec:exec -Dtool.main=cartoland.replay.ReplayHarness
+ * -Dtool.args="<absolute path of the file> [speed]"}. It runs in {@code target/scratch}, see {@link ScratchDirectory},
+ * so the listeners start with empty data and everything they write stays there. The speed is how many times faster
+ * than the recorded timing the events are sent, or 0 (default) to send them as fast as possible. Options such as
+ * {@code -Dcartoland.virtual_threads=true} can be passed by {@code -Dtool.jvm_args=}, and
+ * {@code -Dcartoland.random_seed=} makes lotteries and mini games the same in every replay.</p>
+ *
+ * @since 2.2
+ * @author Alex Cai
+ */
+public final class ReplayHarness
+{
+	private ReplayHarness()
+	{
+		throw new AssertionError(IDs.YOU_SHALL_NOT_ACCESS);
+	}
+
+	private static final String[] KIND_NAMES = { "", "message", "slash", "auto_complete" };
+
+	/**
+	 * The entry point of the harness.
+	 *
+	 * @param args The file to replay, and the speed-up (optional).
+	 * @throws IOException If the file can't be read or isn't a recording.
+	 * @since 2.2
+	 * @author Alex Cai
+	 */
+	public static void main(String[] args) throws IOException
+	{
+		if (args.length == 0)
+		{
+			System.out.println("Usage: ReplayHarness <file> [speed]");
+			return;
+		}
+		double speed = args.length > 1 ? Double.parseDouble(args[1]) : 0.0; //0代表全速
+		ScratchDirectory.prepare(); //在載入任何資料之前
+
+		JDA jda = FakeEntities.jda();
+		ToolsAccess.useFakeJDA(); //讓Cartoland.getJDA()拿到假的JDA
+		MonitoredEventManager eventManager = new MonitoredEventManager();
+		for (Object listener : new Object[] { new MessageEvent(), new AddReaction(), new CommandUsage(), new AutoComplete(),
+				new ContextMenu(), new NewMember(), new ThreadEvent(), new UserChangeName(), new ClickedButton(),
+				new ReceiveModal(), new EditMessage() }) //和Cartoland.main相同 除了BotOnlineOffline 不需要序列化
+			eventManager.register(listener);
+
+		long[][] latencies = new long[KIND_NAMES.length][1024];
+		int[] counts = new int[KIND_NAMES.length];
+		long firstMillis = -1L;
+		long startNanos = System.nanoTime();
+		long responseNumber = 0L;
+
+		try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(args[0]))))
+		{
+			if (input.readInt() != EventRecorder.MAGIC || input.readShort() != EventRecorder.VERSION)
+				throw new IOException(args[0] + " is not a recording of EventRecorder");
+
+			byte kind;
+			while ((kind = readKind(input)) != 0)
+			{
+				long millis = input.readLong();
+				GenericEvent event = readEvent(kind, input, jda, responseNumber++);
+				if (firstMillis == -1L)
+					firstMillis = millis;
+				if (speed > 0.0) //依照錄製的時間間隔
+				{
+					long waitNanos = startNanos + (long) (TimeUnit.MILLISECONDS.toNanos(millis - firstMillis) / speed) - System.nanoTime();
+					if (waitNanos > 0L)
+						LockSupport.parkNanos(waitNanos);
+				}
+
+				long beginNanos = System.nanoTime();
+				eventManager.handle(event);
+				long elapsed = System.nanoTime() - beginNanos;
+				if (counts[kind] == latencies[kind].length)
+					latencies[kind] = Arrays.copyOf(latencies[kind], counts[kind] << 1);
+				latencies[kind][counts[kind]++] = elapsed;
+			}
+		}
+
+		long totalNanos = System.nanoTime() - startNanos;
+		report(latencies, counts, totalNanos);
+
+		TimerHandle.stopTimer(); //讓程式可以結束
+		ExecutionHandle.shutdown();
+		FileHandle.flushLog(); //寫進暫存資料夾的logs 可以查看重播時的紀錄
+	}
+
+	private static byte readKind(DataInputStream input) throws IOException
+	{
+		try
+		{
+			return input.readByte();
+		}
+		catch (EOFException exception) //讀完了
+		{
+			return 0;
+		}
+	}
+
+	private static GenericEvent readEvent(byte kind, DataInputStream input, JDA jda, long responseNumber) throws IOException
+	{
+		long guildID = input.readLong();
+		long channelID = input.readLong();
+		ChannelType channelType = ChannelType.fromId(input.readInt());
+		long parentID = input.readLong();
+		ChannelType parentType = ChannelType.fromId(input.readInt());
+		long categoryID = input.readLong();
+		User user = FakeEntities.user(input.readLong(), input.readUTF(), input.readBoolean());
+
+		Guild guild = guildID != 0L ? FakeEntities.guild(guildID) : null;
+		Member member = guild != null ? FakeEntities.member(guild, user) : null;
+		MessageChannelUnion channel = FakeEntities.channel(channelID, channelType, guild, parentID, parentType, categoryID);
+
+		Map<String, Object> values = new HashMap<>();
+		values.put("getUser", user);
+		values.put("getAuthor", user);
+		values.put("getChannel", channel);
+		values.put("getChannelIdLong", channelID);
+		values.put("getChannelType", channelType);
+		values.put("isFromGuild", guild != null);
+		if (guild != null)
+		{
+			values.put("getGuild", guild);
+			values.put("getMember", member);
+			values.put("getGuildChannel", channel);
+		}
+
+		switch (kind)
+		{
+			case EventRecorder.MESSAGE ->
+			{
+				values.put("getIdLong", input.readLong());
+				String content = input.readUTF();
+				values.put("getContentRaw", content);
+				values.put("getContentDisplay", content);
+				values.put("getContentStripped", content);
+				return new MessageReceivedEvent(jda, responseNumber, FakeEntities.fake(Message.class, values));
+			}
+			case EventRecorder.SLASH ->
+			{
+				readCommand(input, values, jda, guild);
+				values.put("getType", InteractionType.COMMAND);
+				return new SlashCommandInteractionEvent(jda, responseNumber, FakeEntities.fake(SlashCommandInteraction.class, values));
+			}
+			case EventRecorder.AUTO_COMPLETE ->
+			{
+				List<OptionMapping> options = readCommand(input, values, jda, guild);
+				String focused = input.readUTF();
+				for (OptionMapping option : options)
+					if (option.getName().equals(focused))
+						values.put("getFocusedOption", new AutoCompleteQuery(option));
+				values.put("getType", InteractionType.COMMAND_AUTOCOMPLETE);
+				return new CommandAutoCompleteInteractionEvent(jda, responseNumber, FakeEntities.fake(CommandAutoCompleteInteraction.class, values));
+			}
+			default -> throw new IOException("Unknown kind of record " + kind);
+		}
+	}
+
+	private static List<OptionMapping> readCommand(DataInputStream input, Map<String, Object> values, JDA jda, Guild guild) throws IOException
+	{
+		values.put("getIdLong", System.nanoTime()); //互動的ID不重要
+		values.put("getName", input.readUTF());
+		String group = input.readUTF();
+		String subcommand = input.readUTF();
+		values.put("getSubcommandGroup", group.isEmpty() ? null : group);
+		values.put("getSubcommandName", subcommand.isEmpty() ? null : subcommand);
+		values.put("getCommandType", Command.Type.SLASH);
+
+		int optionsCount = input.readUnsignedByte();
+		List<OptionMapping> options = new ArrayList<>(optionsCount);
+		for (int i = 0; i < optionsCount; i++)
+			options.add(option(input.readUTF(), OptionType.fromKey(input.readUnsignedByte()), input.readUTF(), jda, guild));
+		values.put("getOptions", options);
+		return options;
+	}
+
+	private static void report(long[][] latencies, int[] counts, long totalNanos)
+	{
+		int total = 0;
+		for (int count : counts)
+			total += count;
+		double seconds = totalNanos / 1e9;
+		System.out.printf("replayed %d events in %.3fs, %.1f events/s%n", total, seconds, total / seconds);
+		System.out.println("dispatch latency (p50/p90/p99/p999/max, us)");
+		for (int kind = 1; kind < KIND_NAMES.length; kind++)
+		{
+			int count = counts[kind];
+			if (count == 0) //沒有這種事件
+				continue;
+			long[] sorted = Arrays.copyOf(latencies[kind], count);
+			Arrays.sort(sorted);
+			System.out.printf("\t%s n=%d %d/%d/%d/%d/%d%n", KIND_NAMES[kind], count,
+					micros(sorted, 0.5), micros(sorted, 0.9), micros(sorted, 0.99), micros(sorted, 0.999), sorted[count - 1] / 1000L);
+		}
+		System.out.println("handlers (p50/p99/max, err=handler/rest)");
+		for (String line : MetricsHandle.summary())
+			System.out.println('\t' + line);
+	}
+
+	private static long micros(long[] sorted, double percentile)
+	{
+		int index = (int) Math.ceil(percentile * sorted.length) - 1; //nearest-rank
+		return sorted[Math.max(index, 0)] / 1000L;
+	}
+
+	/**
+	 * Create an option of a recorded interaction. Users, members, roles and channels are fake entities that only have
+	 * IDs. The constructor of {@link OptionMapping} takes a map of Trove, which is a runtime dependency of JDA, so it
+	 * is created by reflection.
+	 *
+	 * @since 2.2
+	 * @author Alex Cai
+	 */
+	private static OptionMapping option(String name, OptionType type, String value, JDA jda, Guild guild) throws IOException
+	{
+		Object optionValue = switch (type)
+		{
+			case INTEGER -> Long.parseLong(value);
+			case NUMBER -> Double.parseDouble(value);
+			case BOOLEAN -> Boolean.parseBoolean(value);
+			default -> value;
+		};
+		DataObject data = DataObject.empty().put("name", name).put("type", type.getKey()).put("value", optionValue);
+
+		try
+		{
+			Object resolved = Class.forName("gnu.trove.map.hash.TLongObjectHashMap").getConstructor().newInstance();
+			Object entity = switch (type) //選項的值是ID
+			{
+				case USER, MENTIONABLE ->
+				{
+					User user = FakeEntities.user(Long.parseUnsignedLong(value), "", false);
+					yield guild != null ? FakeEntities.member(guild, user) : user;
+				}
+				case ROLE -> FakeEntities.fake(Role.class, Map.of("getIdLong", Long.parseUnsignedLong(value), "getGuild", guild));
+				case CHANNEL -> FakeEntities.guildChannel(Long.parseUnsignedLong(value), guild);
+				default -> null;
+			};
+			if (entity != null)
+				resolved.getClass().getMethod("put", long.class, Object.class).invoke(resolved, Long.parseUnsignedLong(value), entity);
+			return (OptionMapping) OptionMapping.class.getConstructors()[0].newInstance(data, resolved, jda, guild);
+		}
+		catch (ReflectiveOperationException exception)
+		{
+			throw new IOException("Can't create the option " + name, exception);
+		}
+	}
+}
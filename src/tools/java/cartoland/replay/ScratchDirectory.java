@@ -0,0 +1,49 @@
+package cartoland.replay;
+
+import cartoland.utilities.IDs;
+
+import java.io.File;
+
+/**
+ * {@code ScratchDirectory} is a utility class that makes sure the tools of {@code src/tools} and the benchmarks of
+ * {@code src/jmh} run in a scratch directory instead of the directory of the bot. Every handle of this bot reads and
+ * writes relative paths such as {@code serialize/lottery_data.ser} and {@code logs/ledger.tsv}, and the working
+ * directory of a JVM can't be changed, so the tools are started in {@code target/scratch} by the {@code tools} and
+ * {@code jmh} profiles, which also copy the {@code lang} folder into it. Can not be instantiated or inherited.
+ *
+ * @since 2.2
+ * @author Alex Cai
+ */
+public final class ScratchDirectory
+{
+	private ScratchDirectory()
+	{
+		throw new AssertionError(IDs.YOU_SHALL_NOT_ACCESS);
+	}
+
+	/**
+	 * Check that the working directory is a scratch directory, create the folders that the handles write into, and
+	 * delete the ledger of the last run, since the tools always start without lottery data. This method must be called
+	 * before any handle is loaded, since the handles load their data in static initializers.
+	 *
+	 * @throws IllegalStateException If the working directory has serialized data, which means it is the directory of
+	 * the bot, or it doesn't have the {@code lang} folder.
+	 * @since 2.2
+	 * @author Alex Cai
+	 */
+	public static void prepare()
+	{
+		File serialize = new File("serialize");
+		String[] serialized = serialize.list();
+		if (serialized != null && serialized.length != 0) //工具不會序列化 有檔案代表這是機器人的資料夾
+			throw new IllegalStateException("Refuse to run in " + new File("").getAbsolutePath() + ", it has the data of the bot in serialize/");
+		if (!new File("lang/en.json").isFile())
+			throw new IllegalStateException("No lang folder in " + new File("").getAbsolutePath() + ", run with -P tools or -P jmh");
+
+		//和機器人的資料夾相同的結構
+		serialize.mkdirs();
+		new File("logs").mkdirs();
+		new File("dms").mkdirs();
+		new File("logs/ledger.tsv").delete(); //工具不會保留資料 上一次的帳本也不能留著
+	}
+}
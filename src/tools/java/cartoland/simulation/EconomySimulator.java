@@ -0,0 +1,339 @@
+package cartoland.simulation;
+
+import cartoland.ToolsAccess;
+import cartoland.replay.ScratchDirectory;
+import cartoland.utilities.*;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.random.RandomGenerator;
+
+/**
+ * {@code EconomySimulator} drives {@link CommandBlocksHandle} with synthetic users, without a connection to Discord.
+ * Many threads talk, bet, play slots, claim daily rewards and transfer command blocks in the same way as the commands
+ * do, then the throughput, the contention of locks, the distribution of command blocks and the cost of the ranking are
+ * printed. It is also a stress test: after the run, the command blocks of every user must add up to what the
+ * operations created or destroyed, no user may have negative command blocks, {@link CommandBlocksHandle#auditLedger()}
+ * must pass and the rank index must agree with a sort. The process exits with 1 if any of them fails.
+ *
+ * <p>Usage: {@code mvn -P tools test-compile exec:exec -Dtool.main=cartoland.simulation.EconomySimulator
+ * -Dtool.args="[threads] [operations] [users]"}. It runs in {@code target/scratch}, see
+ * {@link cartoland.replay.ScratchDirectory}, so it starts without any lottery data and the ledger is written there.
+ * The defaults are 8 threads, 2,000,000 operations and 10,000 users. {@code -Dcartoland.random_seed=} can be passed
+ * by {@code -Dtool.jvm_args=} to make the operations the same in every run.</p>
+ *
+ * @since 2.2
+ * @author Alex Cai
+ */
+public final class EconomySimulator
+{
+	private EconomySimulator()
+	{
+		throw new AssertionError(IDs.YOU_SHALL_NOT_ACCESS);
+	}
+
+	private static final long FIRST_USER_ID = 1_000_000L; //避免和真正的使用者重複
+	private static final long INITIAL_BLOCKS = 10_000L;
+	private static final String[] BETS = { "100", "1000", "10%", "50%", "half", "quarter", "all" }; //和指令相同的輸入
+
+	private static final LongAdder created = new LongAdder(); //操作產生或消滅的方塊
+	private static final LongAdder retries = new LongAdder(); //compare-and-set失敗的次數
+	private static final LongAdder[] counts = { new LongAdder(), new LongAdder(), new LongAdder(), new LongAdder(), new LongAdder() };
+	private static final String[] KIND_NAMES = { "talk", "bet", "slot", "daily", "transfer" };
+
+	/**
+	 * The entry point of the simulator.
+	 *
+	 * @param args The amount of threads, operations and users (all optional).
+	 * @throws InterruptedException If the main thread was interrupted while waiting for the workers.
+	 * @since 2.2
+	 * @author Alex Cai
+	 */
+	public static void main(String[] args) throws InterruptedException
+	{
+		int threads = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+		long operations = args.length > 1 ? Long.parseLong(args[1]) : 2_000_000L;
+		int users = args.length > 2 ? Integer.parseInt(args[2]) : 10_000;
+		ScratchDirectory.prepare(); //在載入任何資料之前
+
+		ToolsAccess.useFakeJDA(); //讓Cartoland.getJDA()拿到假的JDA
+		CommandBlocksHandle.LotteryData[] lotteryData = new CommandBlocksHandle.LotteryData[users];
+		for (int i = 0; i < users; i++) //事先建立所有使用者 操作時只改變方塊
+		{
+			lotteryData[i] = CommandBlocksHandle.getLotteryData(FIRST_USER_ID + i);
+			lotteryData[i].setName("user" + i);
+			lotteryData[i].setBlocks(INITIAL_BLOCKS);
+		}
+		long initialSum = sum(lotteryData);
+
+		ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+		if (threadBean.isThreadContentionMonitoringSupported())
+			threadBean.setThreadContentionMonitoringEnabled(true);
+		boolean cpuTime = threadBean.isCurrentThreadCpuTimeSupported();
+
+		Thread[] workers = new Thread[threads];
+		long[][] contention = new long[threads][3]; //每個執行緒自己的格子 被阻擋的次數 時間 CPU時間
+		CountDownLatch start = new CountDownLatch(1);
+		long perThread = operations / threads;
+		for (int t = 0; t < threads; t++)
+		{
+			long[] slot = contention[t];
+			workers[t] = new Thread(() ->
+			{
+				try
+				{
+					start.await();
+				}
+				catch (InterruptedException exception)
+				{
+					return;
+				}
+				for (long i = 0; i < perThread; i++)
+					operate(lotteryData);
+
+				//執行緒結束之後就拿不到資訊了 要在結束前自己讀取
+				ThreadInfo info = threadBean.getThreadInfo(Thread.currentThread().threadId());
+				if (info != null)
+				{
+					slot[0] = info.getBlockedCount();
+					slot[1] = Math.max(info.getBlockedTime(), 0L); //沒有啟用contention monitoring時是-1
+				}
+				if (cpuTime)
+					slot[2] = threadBean.getCurrentThreadCpuTime();
+			}, "EconomySimulator-" + t);
+			workers[t].start();
+		}
+
+		long startNanos = System.nanoTime();
+		start.countDown();
+		for (Thread worker : workers)
+			worker.join();
+		long elapsedNanos = System.nanoTime() - startNanos;
+		CommandBlocksHandle.foldAccruals(); //把還沒加進去的方塊加進去
+
+		long blockedCount = 0L, blockedMillis = 0L, cpuNanos = 0L;
+		for (long[] slot : contention) //join之後才讀取 每個格子都寫完了
+		{
+			blockedCount += slot[0];
+			blockedMillis += slot[1];
+			cpuNanos += slot[2];
+		}
+
+		double seconds = elapsedNanos / 1e9;
+		System.out.printf("%d threads, %d users, %d operations in %.3fs, %.0f operations/s%n", threads, users, perThread * threads, seconds, perThread * threads / seconds);
+		for (int kind = 0; kind < KIND_NAMES.length; kind++)
+			System.out.printf("\t%s %d%n", KIND_NAMES[kind], counts[kind].sum());
+		System.out.printf("contention: %d compare-and-set retries, blocked %d times for %dms in total, %dms of CPU time%n",
+				retries.sum(), blockedCount, blockedMillis, cpuNanos / 1_000_000L);
+
+		reportDistribution(lotteryData);
+		reportRanking(users);
+
+		boolean passed = checkInvariants(lotteryData, initialSum);
+		System.out.println(passed ? "all invariants hold" : "INVARIANTS VIOLATED");
+		System.exit(passed ? 0 : 1);
+	}
+
+	private static void operate(CommandBlocksHandle.LotteryData[] lotteryData)
+	{
+		RandomGenerator random = Algorithm.random();
+		CommandBlocksHandle.LotteryData user = lotteryData[random.nextInt(lotteryData.length)];
+		int dice = random.nextInt(100);
+		if (dice < 60) //大部分的操作是說話 和GuildMessage相同
+		{
+			CommandBlocksHandle.accrue(user.getUserID(), 1L);
+			created.add(1L);
+			counts[0].increment();
+		}
+		else if (dice < 80)
+			gamble(user, random.nextBoolean(), 1L, LedgerHandle.BET, random, 1);
+		else if (dice < 90)
+		{
+			boolean win = random.nextInt(49) == 0; //和三個表情符號相同的機率一樣
+			gamble(user, win, 49L, LedgerHandle.SLOT, random, 2);
+		}
+		else if (dice < 95)
+		{
+			if (user.tryClaimDaily(new byte[3]))
+			{
+				created.add(CommandBlocksHandle.LotteryData.DAILY);
+				boolean[] bonus = new boolean[3];
+				if (user.tryClaimBonus(bonus))
+					created.add((bonus[0] ? CommandBlocksHandle.LotteryData.WEEKLY : 0L) +
+							(bonus[1] ? CommandBlocksHandle.LotteryData.MONTHLY : 0L) +
+							(bonus[2] ? CommandBlocksHandle.LotteryData.YEARLY : 0L));
+			}
+			counts[3].increment();
+		}
+		else
+		{
+			CommandBlocksHandle.LotteryData target = lotteryData[random.nextInt(lotteryData.length)];
+			if (target != user)
+			{
+				long nowHave;
+				long amount;
+				do
+				{
+					nowHave = user.getBlocks();
+					amount = nowHave >> 2;
+					if (amount == 0L) //沒有可以轉的
+						break;
+				}
+				while (!CommandBlocksHandle.transfer(user, target, nowHave, amount) && retried());
+			}
+			counts[4].increment();
+		}
+	}
+
+	//和LotteryCommand相同的流程 先決定輸贏 再compare-and-set
+	private static void gamble(CommandBlocksHandle.LotteryData user, boolean win, long multiplier, String reason, RandomGenerator random, int kind)
+	{
+		String betString = BETS[random.nextInt(BETS.length)];
+		long nowHave, afterBet;
+		do
+		{
+			nowHave = user.getBlocks();
+			long bet = betOf(betString, nowHave);
+			if (bet <= 0L || bet > nowHave) //和createValidBet相同 不能賭0或比現有的多
+			{
+				counts[kind].increment();
+				return;
+			}
+			afterBet = win ? Algorithm.safeAdd(nowHave, bet * multiplier) : nowHave - bet;
+		}
+		while (!user.compareAndSetBlocks(nowHave, afterBet, reason) && retried());
+		created.add(afterBet - nowHave);
+		counts[kind].increment();
+	}
+
+	private static long betOf(String betString, long nowHave)
+	{
+		return switch (betString)
+		{
+			case "all" -> nowHave;
+			case "half" -> nowHave >> 1;
+			case "quarter" -> nowHave >> 2;
+			default -> betString.endsWith("%") ?
+					nowHave * Integer.parseInt(betString.substring(0, betString.length() - 1)) / 100 :
+					Long.parseLong(betString);
+		};
+	}
+
+	private static boolean retried()
+	{
+		retries.increment();
+		return true;
+	}
+
+	private static long sum(CommandBlocksHandle.LotteryData[] lotteryData)
+	{
+		long sum = 0L;
+		for (CommandBlocksHandle.LotteryData data : lotteryData)
+			sum += data.getBlocks();
+		return sum;
+	}
+
+	private static void reportDistribution(CommandBlocksHandle.LotteryData[] lotteryData)
+	{
+		long[] blocks = new long[lotteryData.length];
+		for (int i = 0; i < blocks.length; i++)
+			blocks[i] = lotteryData[i].getBlocks();
+		Arrays.sort(blocks);
+
+		double weighted = 0.0, total = 0.0; //吉尼係數
+		for (int i = 0; i < blocks.length; i++)
+		{
+			weighted += (2.0 * (i + 1) - blocks.length - 1) * blocks[i];
+			total += blocks[i];
+		}
+		double gini = total > 0.0 ? weighted / (blocks.length * total) : 0.0;
+		System.out.printf("blocks (p10/p50/p90/p99/max): %d/%d/%d/%d/%d, broke %d, gini %.3f%n",
+				percentile(blocks, 0.1), percentile(blocks, 0.5), percentile(blocks, 0.9), percentile(blocks, 0.99), blocks[blocks.length - 1],
+				Arrays.stream(blocks).filter(value -> value == 0L).count(), gini);
+	}
+
+	private static long percentile(long[] sorted, double percentile)
+	{
+		return sorted[Math.max((int) Math.ceil(percentile * sorted.length) - 1, 0)]; //nearest-rank
+	}
+
+	private static void reportRanking(int users)
+	{
+		RandomGenerator random = Algorithm.random();
+		int pages = 10_000;
+		int maxStart = Math.max(users - RankingHandle.PAGE_SIZE, 1);
+
+		long begin = System.nanoTime();
+		for (int i = 0; i < pages; i++)
+			CommandBlocksHandle.ranking(random.nextInt(maxStart), RankingHandle.PAGE_SIZE);
+		long rangeNanos = (System.nanoTime() - begin) / pages;
+
+		long userID = FIRST_USER_ID;
+		RankingHandle.render(userID, 0); //載入語言檔等等 不算在內
+		CommandBlocksHandle.rankingChanged(); //讓快取失效
+		begin = System.nanoTime();
+		RankingHandle.render(userID, 0);
+		long coldNanos = System.nanoTime() - begin;
+		begin = System.nanoTime();
+		for (int i = 0; i < pages; i++)
+			RankingHandle.render(userID, 0);
+		long cachedNanos = (System.nanoTime() - begin) / pages;
+		System.out.printf("ranking: range %dns, render cold %dns, render cached %dns%n", rangeNanos, coldNanos, cachedNanos);
+	}
+
+	private static boolean checkInvariants(CommandBlocksHandle.LotteryData[] lotteryData, long initialSum)
+	{
+		boolean passed = true;
+
+		long sum = sum(lotteryData);
+		long expected = initialSum + created.sum();
+		if (sum != expected)
+		{
+			System.out.printf("conservation: expected %d command blocks but found %d%n", expected, sum);
+			passed = false;
+		}
+
+		for (CommandBlocksHandle.LotteryData data : lotteryData)
+		{
+			if (data.getBlocks() < 0L)
+			{
+				System.out.printf("negative: user %d has %d command blocks%n", data.getUserID(), data.getBlocks());
+				passed = false;
+			}
+		}
+
+		if (!CommandBlocksHandle.auditLedger())
+		{
+			System.out.println("audit: the ledger doesn't match the lottery data, see the log");
+			passed = false;
+		}
+
+		List<CommandBlocksHandle.LotteryData> ranking = CommandBlocksHandle.ranking(0, CommandBlocksHandle.rankingSize());
+		for (int i = 1; i < ranking.size(); i++)
+		{
+			CommandBlocksHandle.LotteryData previous = ranking.get(i - 1), current = ranking.get(i);
+			if (previous.getBlocks() < current.getBlocks() || (previous.getBlocks() == current.getBlocks() && previous.getUserID() > current.getUserID()))
+			{
+				System.out.printf("ranking: rank %d and %d are out of order%n", i, i + 1);
+				passed = false;
+				break;
+			}
+		}
+		for (CommandBlocksHandle.LotteryData data : lotteryData)
+		{
+			int rank = CommandBlocksHandle.rankOf(data);
+			if (rank == 0 || ranking.get(rank - 1) != data)
+			{
+				System.out.printf("ranking: user %d is not at rank %d%n", data.getUserID(), rank);
+				passed = false;
+				break;
+			}
+		}
+		return passed;
+	}
+}